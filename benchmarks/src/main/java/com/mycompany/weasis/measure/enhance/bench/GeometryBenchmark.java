@@ -0,0 +1,130 @@
+package com.mycompany.weasis.measure.enhance.bench;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mycompany.weasis.measure.enhance.AngleCalculationAction;
+import com.mycompany.weasis.measure.enhance.ConstructionType;
+import com.mycompany.weasis.measure.enhance.GeomKernel;
+import com.mycompany.weasis.measure.enhance.testkit.SyntheticStudy;
+
+/**
+ * Per-call cost of the geometry used by the construction actions: the points of the
+ * constructions, computed when they are created and each time a source line moves, and the
+ * kernel functions behind them.
+ * Run with "-prof gc" to get the allocation rate per operation: none is expected.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryBenchmark {
+
+    private static final int SIZE = 1024; // Power of 2, used as a mask
+
+    private Line2D[] lines;
+    private Point2D[] points;
+    private final double[] src = new double[4];
+    private final double[] args = new double[2];
+    private final double[] out = new double[12];
+    private int index;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        lines = new Line2D[SIZE];
+        points = new Point2D[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            lines[i] = new Line2D.Double(
+                random.nextDouble(SyntheticStudy.IMAGE_SIZE), random.nextDouble(SyntheticStudy.IMAGE_SIZE),
+                random.nextDouble(SyntheticStudy.IMAGE_SIZE), random.nextDouble(SyntheticStudy.IMAGE_SIZE));
+            points[i] = new Point2D.Double(
+                random.nextDouble(SyntheticStudy.IMAGE_SIZE), random.nextDouble(SyntheticStudy.IMAGE_SIZE));
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (SIZE - 1);
+        return index;
+    }
+
+    private void readSource(Line2D line) {
+        src[0] = line.getX1();
+        src[1] = line.getY1();
+        src[2] = line.getX2();
+        src[3] = line.getY2();
+    }
+
+    @Benchmark
+    public double perpendicularDistance() {
+        int i = next();
+        readSource(lines[i]);
+        args[0] = points[i].getX();
+        args[1] = points[i].getY();
+        ConstructionType.PERPENDICULAR_DISTANCE.computePoints(src, args, out);
+        return out[2] + out[3];
+    }
+
+    @Benchmark
+    public double perpendicularAtFraction() {
+        readSource(lines[next()]);
+        args[0] = 0.5;
+        args[1] = 100.0;
+        ConstructionType.PERPENDICULAR_AT_FRACTION.computePoints(src, args, out);
+        return out[0] + out[3];
+    }
+
+    @Benchmark
+    public double parallelLine() {
+        readSource(lines[next()]);
+        args[0] = 50.0;
+        ConstructionType.PARALLEL_LINE.computePoints(src, args, out);
+        return out[4] + out[11];
+    }
+
+    @Benchmark
+    public double angle() {
+        int i = next();
+        return AngleCalculationAction.getAngle(lines[i], lines[(i + 1) & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public double kernelAngle() {
+        int i = next();
+        Line2D a = lines[i];
+        Line2D b = lines[(i + 1) & (SIZE - 1)];
+        return GeomKernel.angleBetween(a.getX2() - a.getX1(), a.getY2() - a.getY1(), b.getX2() - b.getX1(),
+            b.getY2() - b.getY1());
+    }
+
+    @Benchmark
+    public double kernelFoot() {
+        int i = next();
+        Line2D line = lines[i];
+        Point2D p = points[i];
+        GeomKernel.foot(line.getX1(), line.getY1(), line.getX2(), line.getY2(), p.getX(), p.getY(), out, 0);
+        return out[0] + out[1];
+    }
+
+    @Benchmark
+    public double kernelOffsetSegment() {
+        Line2D line = lines[next()];
+        GeomKernel.offsetSegment(line.getX1(), line.getY1(), line.getX2(), line.getY2(), 50.0, out, 0);
+        return out[0] + out[3];
+    }
+}
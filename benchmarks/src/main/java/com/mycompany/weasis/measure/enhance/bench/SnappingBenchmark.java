@@ -0,0 +1,106 @@
+package com.mycompany.weasis.measure.enhance.bench;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+
+import com.mycompany.weasis.measure.enhance.SnappingUtil;
+import com.mycompany.weasis.measure.enhance.testkit.HeadlessViewCanvas;
+import com.mycompany.weasis.measure.enhance.testkit.SyntheticStudy;
+
+/**
+ * Per-event cost of snapping while drawing a line over models of increasing size.
+ * Run with "-prof gc" to get the allocation rate per mouse event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnappingBenchmark {
+
+    private static final int CURSORS = 1024; // Power of 2, used as a mask
+
+    @Param({"10", "1000", "100000"})
+    public int graphicCount;
+
+    @Param({"1.0", "2.5"})
+    public double zoom;
+
+    private ViewCanvas<?> view;
+    private LineGraphic drawing;
+    private Point2D[] cursors;
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphicModel model = SyntheticStudy.createModel(graphicCount, 7L);
+        view = HeadlessViewCanvas.create(model, AffineTransform.getScaleInstance(zoom, zoom));
+
+        // Half of the cursor positions are close to an existing handle, half are anywhere
+        SplittableRandom random = new SplittableRandom(11L);
+        List<Graphic> graphics = model.getModels();
+        cursors = new Point2D[CURSORS];
+        for (int i = 0; i < CURSORS; i++) {
+            if (i % 2 == 0) {
+                Point2D handle = graphics.get(random.nextInt(graphics.size())).getPts().get(0);
+                cursors[i] = new Point2D.Double(
+                    handle.getX() + random.nextDouble(-4.0, 4.0), handle.getY() + random.nextDouble(-4.0, 4.0));
+            } else {
+                cursors[i] = new Point2D.Double(
+                    random.nextDouble(SyntheticStudy.IMAGE_SIZE), random.nextDouble(SyntheticStudy.IMAGE_SIZE));
+            }
+        }
+
+        // The line being drawn, as added to the model by the drawing handler on mouse press
+        drawing = SyntheticStudy.line(100, 100, 200, 200);
+        model.addGraphic(drawing);
+
+        // Build the index outside of the measurement
+        SnappingUtil.getSnapPoint(view, cursors[0], drawing);
+    }
+
+    private Point2D nextCursor() {
+        index = (index + 1) & (CURSORS - 1);
+        return cursors[index];
+    }
+
+    /**
+     * Snap lookup alone, as done for the last point on every mouse move.
+     */
+    @Benchmark
+    public Point2D snapQuery() {
+        return SnappingUtil.getSnapPoint(view, nextCursor(), drawing);
+    }
+
+    /**
+     * A drag event: the end point moves, the shape is rebuilt (which re-indexes the drawn
+     * line through its bounds event) and the new position is snapped.
+     */
+    @Benchmark
+    public Point2D dragWithSnap() {
+        Point2D cursor = nextCursor();
+        drawing.getPts().get(1).setLocation(cursor);
+        drawing.buildShape(null);
+        return SnappingUtil.getSnapPoint(view, cursor, drawing);
+    }
+}
@@ -4,22 +4,28 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 import javax.swing.JOptionPane;
 
 import org.weasis.core.ui.editor.image.ViewCanvas;
 import org.weasis.core.ui.model.GraphicModel;
 import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
 
 /**
  * Utility class to calculate angle between two selected lines.
  * Call calculateAngle() when you want to compute the angle.
+ * With more than two selected lines, all the angles are computed at once and shown in a table.
  */
 public class AngleCalculationAction {
 
+    // Below this number of pairs, a parallel stream costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 20_000;
+
     /**
      * Calculate the angle between two selected LineGraphic objects.
-     * Shows a dialog with the result.
+     * Shows the result as a label on the canvas, or a table of angles if more than two lines are selected.
      * 
      * @param view The ViewCanvas containing the graphics
      */
@@ -34,6 +40,7 @@ public class AngleCalculationAction {
         }
         
         List<Graphic> selected = model.getSelectedGraphics();
+        List<LineGraphic> lineGraphics = new ArrayList<>();
         List<Line2D> lines = new ArrayList<>();
         
         for (Graphic g : selected) {
@@ -43,53 +50,97 @@ public class AngleCalculationAction {
                     Point2D p1 = pts.get(0);
                     Point2D p2 = pts.get(1);
                     if (p1 != null && p2 != null) {
+                        lineGraphics.add(lineGraphic);
                         lines.add(new Line2D.Double(p1, p2));
                     }
                 }
             }
         }
         
-        if (lines.size() >= 2) {
-            Line2D line1 = lines.get(0);
-            Line2D line2 = lines.get(1);
-            
-            // Calculate direction vectors
-            double dx1 = line1.getX2() - line1.getX1();
-            double dy1 = line1.getY2() - line1.getY1();
-            double dx2 = line2.getX2() - line2.getX1();
-            double dy2 = line2.getY2() - line2.getY1();
-            
-            // Calculate angle using dot product
-            double dot = dx1 * dx2 + dy1 * dy2;
-            double len1 = Math.sqrt(dx1 * dx1 + dy1 * dy1);
-            double len2 = Math.sqrt(dx2 * dx2 + dy2 * dy2);
-            
-            if (len1 > 0 && len2 > 0) {
-                double cosAngle = dot / (len1 * len2);
-                // Clamp to [-1, 1] to avoid NaN from acos
-                cosAngle = Math.max(-1.0, Math.min(1.0, cosAngle));
-                double angle = Math.toDegrees(Math.acos(cosAngle));
-                
-                // Also calculate the supplementary angle
-                double supplementary = 180 - angle;
-                
-                String message = String.format(
-                    "Angle between the two lines:\n" +
-                    "  Acute/Obtuse: %.2f°\n" +
-                    "  Supplementary: %.2f°",
-                    angle, supplementary);
+        if (lines.size() > 2) {
+            AngleResultsDialog.show(view, lineGraphics);
+        } else if (lines.size() == 2) {
+            if (Double.isNaN(getAngle(lines.get(0), lines.get(1)))) {
+                Toast.show(view.getJComponent(), "One of the lines has no length.");
+                return;
+            }
+            // The angle is shown as a label on the canvas, updated when the lines are edited
+            try {
+                ConstructionGraph.construct(view, ConstructionType.ANGLE_LABEL,
+                    new Graphic[] {lineGraphics.get(0), lineGraphics.get(1)}, 0.0, 0.0);
+            } catch (InvalidShapeException e) {
                 JOptionPane.showMessageDialog(
                     view.getJComponent(), 
-                    message, 
+                    "Failed to create angle label: " + e.getMessage(), 
                     "Angle Calculation", 
-                    JOptionPane.INFORMATION_MESSAGE);
+                    JOptionPane.ERROR_MESSAGE);
+                return;
             }
         } else {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "Please select exactly 2 lines (use Ctrl+Click to multi-select).", 
-                "Angle Calculation", 
-                JOptionPane.WARNING_MESSAGE);
+            Toast.show(view.getJComponent(), "Please select at least 2 lines (use Ctrl+Click to multi-select).");
+        }
+    }
+    
+    /**
+     * Calculate the angle between the direction vectors of two lines.
+     * 
+     * @return The angle in degrees in [0, 180], or NaN if one line has no length
+     */
+    public static double getAngle(Line2D line1, Line2D line2) {
+        return GeomKernel.angleBetween(
+            line1.getX2() - line1.getX1(), line1.getY2() - line1.getY1(),
+            line2.getX2() - line2.getX1(), line2.getY2() - line2.getY1());
+    }
+    
+    /**
+     * Angles of the line pairs given by the indexes first[i] and second[i], from the direction
+     * vectors (dx, dy) of the lines. Large batches are computed in parallel.
+     * 
+     * @return The angles in degrees in [0, 180], NaN for a degenerate line
+     */
+    public static double[] computePairAngles(double[] dx, double[] dy, int[] first, int[] second) {
+        double[] angles = new double[first.length];
+        IntStream range = IntStream.range(0, first.length);
+        if (first.length >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(i -> angles[i] = GeomKernel.angleBetween(dx[first[i]], dy[first[i]], dx[second[i]], dy[second[i]]));
+        return angles;
+    }
+    
+    /**
+     * Index pairs (i, i + 1) of consecutive lines.
+     * 
+     * @return first indexes at [0] and second indexes at [1]
+     */
+    public static int[][] adjacentPairs(int lineCount) {
+        int count = Math.max(0, lineCount - 1);
+        int[] first = new int[count];
+        int[] second = new int[count];
+        for (int i = 0; i < count; i++) {
+            first[i] = i;
+            second[i] = i + 1;
+        }
+        return new int[][] {first, second};
+    }
+    
+    /**
+     * All index pairs (i, j) with i < j.
+     * 
+     * @return first indexes at [0] and second indexes at [1]
+     */
+    public static int[][] allPairs(int lineCount) {
+        int count = lineCount * (lineCount - 1) / 2;
+        int[] first = new int[count];
+        int[] second = new int[count];
+        int k = 0;
+        for (int i = 0; i < lineCount; i++) {
+            for (int j = i + 1; j < lineCount; j++) {
+                first[k] = i;
+                second[k] = j;
+                k++;
+            }
         }
+        return new int[][] {first, second};
     }
 }
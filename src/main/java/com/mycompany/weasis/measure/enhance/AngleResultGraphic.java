@@ -0,0 +1,75 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.weasis.core.api.image.util.MeasurableLayer;
+import org.weasis.core.api.image.util.Unit;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.PointGraphic;
+import org.weasis.core.ui.model.utils.bean.MeasureItem;
+import org.weasis.core.ui.model.utils.bean.Measurement;
+
+/**
+ * Label point showing the angle between two lines on the canvas.
+ *
+ * It is bound to the two lines with {@link ConstructionType#ANGLE_LABEL}, so the point follows
+ * the lines and the label is updated through the usual measurement label of Weasis when a
+ * handle of one of them moves. The point itself can be dragged to move the label.
+ */
+public class AngleResultGraphic extends PointGraphic {
+
+    public static final Measurement ANGLE = new Measurement("Angle", 1, true, true, true);
+    public static final Measurement SUPPLEMENTARY = new Measurement("Supplementary", 2, true, true, true);
+
+    private static final List<Measurement> MEASUREMENT_LIST = List.of(ANGLE, SUPPLEMENTARY);
+
+    // Last value, kept when a source line is deleted
+    private double angle = Double.NaN;
+
+    public AngleResultGraphic() {
+        super();
+    }
+
+    public AngleResultGraphic(AngleResultGraphic graphic) {
+        super(graphic);
+        this.angle = graphic.angle;
+    }
+
+    @Override
+    public List<MeasureItem> computeMeasurements(MeasurableLayer layer, boolean releaseEvent, Unit displayUnit) {
+        Graphic[] sources = ConstructionGraph.getSources(this);
+        if (sources != null && sources.length == 2) {
+            List<Point2D> l1 = sources[0].getPts();
+            List<Point2D> l2 = sources[1].getPts();
+            if (l1.size() >= 2 && l2.size() >= 2) {
+                angle = GeomKernel.angleBetween(
+                    l1.get(1).getX() - l1.get(0).getX(), l1.get(1).getY() - l1.get(0).getY(),
+                    l2.get(1).getX() - l2.get(0).getX(), l2.get(1).getY() - l2.get(0).getY());
+            }
+        }
+
+        List<MeasureItem> measVal = new ArrayList<>(2);
+        if (!Double.isNaN(angle)) {
+            measVal.add(new MeasureItem(ANGLE, angle, "°"));
+            measVal.add(new MeasureItem(SUPPLEMENTARY, 180.0 - angle, "°"));
+        }
+        return measVal;
+    }
+
+    @Override
+    public List<Measurement> getMeasurementList() {
+        return MEASUREMENT_LIST;
+    }
+
+    @Override
+    public String getUIName() {
+        return "Angle";
+    }
+
+    @Override
+    public AngleResultGraphic copy() {
+        return new AngleResultGraphic(this);
+    }
+}
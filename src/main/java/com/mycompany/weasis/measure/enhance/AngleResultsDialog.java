@@ -0,0 +1,223 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Window;
+import java.awt.geom.Point2D;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+
+/**
+ * Non-modal table of the angles between many selected lines.
+ *
+ * The lines are numbered L1..Ln from top to bottom of the image (by midpoint), which is the
+ * natural order of vertebral endplates. Either the adjacent pairs (L1-L2, L2-L3...) or all
+ * the pairs are shown; the table can be sorted by any column and exported to CSV. Selecting a
+ * row selects its two lines in the view, so that each row can be matched to the image.
+ */
+public class AngleResultsDialog extends JDialog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AngleResultsDialog.class);
+
+    private static final String ADJACENT = "Adjacent pairs";
+    private static final String ALL = "All pairs";
+
+    private final ViewCanvas<?> view;
+    // Lines in the order of their L1..Ln numbers
+    private final LineGraphic[] lines;
+    private final double[] dx;
+    private final double[] dy;
+    private final PairTableModel tableModel = new PairTableModel();
+    private final JLabel summary = new JLabel();
+
+    private AngleResultsDialog(Window owner, ViewCanvas<?> view, LineGraphic[] lines, double[] dx, double[] dy) {
+        super(owner, "Angle Calculation", ModalityType.MODELESS);
+        this.view = view;
+        this.lines = lines;
+        this.dx = dx;
+        this.dy = dy;
+
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            int row = table.getSelectedRow();
+            if (!e.getValueIsAdjusting() && row >= 0) {
+                selectPair(table.convertRowIndexToModel(row));
+            }
+        });
+
+        JComboBox<String> pairMode = new JComboBox<>(new String[] {ADJACENT, ALL});
+        pairMode.addActionListener(e -> computePairs(ALL.equals(pairMode.getSelectedItem())));
+
+        JButton exportButton = new JButton("Export CSV...");
+        exportButton.addActionListener(e -> exportCsv());
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(pairMode);
+        top.add(summary);
+
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottom.add(exportButton);
+
+        getContentPane().add(top, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        getContentPane().add(bottom, BorderLayout.SOUTH);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        computePairs(false);
+        setSize(420, 360);
+    }
+
+    /**
+     * Show the angles between the given lines, which have both their points.
+     */
+    public static void show(ViewCanvas<?> view, List<LineGraphic> lines) {
+        // Top to bottom, so that adjacent pairs follow the anatomy
+        LineGraphic[] sorted = lines.toArray(new LineGraphic[0]);
+        Arrays.sort(sorted, Comparator.comparingDouble(l -> l.getStartPoint().getY() + l.getEndPoint().getY()));
+
+        double[] dx = new double[sorted.length];
+        double[] dy = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Point2D a = sorted[i].getStartPoint();
+            Point2D b = sorted[i].getEndPoint();
+            dx[i] = b.getX() - a.getX();
+            dy[i] = b.getY() - a.getY();
+        }
+
+        Window owner = SwingUtilities.getWindowAncestor(view.getJComponent());
+        AngleResultsDialog dialog = new AngleResultsDialog(owner, view, sorted, dx, dy);
+        dialog.setLocationRelativeTo(view.getJComponent());
+        dialog.setVisible(true);
+    }
+
+    /**
+     * Select the two lines of a row in the view, in place of the current selection.
+     */
+    private void selectPair(int row) {
+        GraphicModel model = view.getGraphicManager();
+        if (model == null) {
+            return;
+        }
+        for (Graphic graphic : model.getSelectedGraphics()) {
+            graphic.setSelected(Boolean.FALSE);
+        }
+        // Lines deleted or on another slice since the table was shown are not selected
+        for (LineGraphic line : new LineGraphic[] {lines[tableModel.first[row]], lines[tableModel.second[row]]}) {
+            if (model.getModels().contains(line)) {
+                line.setSelected(Boolean.TRUE);
+            }
+        }
+        view.getJComponent().repaint();
+    }
+
+    private void computePairs(boolean allPairs) {
+        int[][] pairs = allPairs ? AngleCalculationAction.allPairs(dx.length)
+            : AngleCalculationAction.adjacentPairs(dx.length);
+        double[] angles = AngleCalculationAction.computePairAngles(dx, dy, pairs[0], pairs[1]);
+        tableModel.setPairs(pairs[0], pairs[1], angles);
+        summary.setText(String.format("%d lines, %d pairs", dx.length, angles.length));
+    }
+
+    private void exportCsv() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("angles.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("line1,line2,angle,supplementary");
+            writer.newLine();
+            for (int row = 0; row < tableModel.getRowCount(); row++) {
+                double angle = tableModel.angles[row];
+                writer.write(String.format(Locale.ROOT, "L%d,L%d,%.4f,%.4f", tableModel.first[row] + 1,
+                    tableModel.second[row] + 1, angle, 180 - angle));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot export angles to {}", file, e);
+            JOptionPane.showMessageDialog(this, "Cannot write " + file.getName() + ": " + e.getMessage(),
+                "Angle Calculation", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Rows backed directly by the primitive pair and angle arrays.
+     */
+    private static class PairTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Line 1", "Line 2", "Angle (°)", "Supplementary (°)"};
+
+        private int[] first = new int[0];
+        private int[] second = new int[0];
+        private double[] angles = new double[0];
+
+        void setPairs(int[] first, int[] second, double[] angles) {
+            this.first = first;
+            this.second = second;
+            this.angles = angles;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return angles.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column < 2 ? Integer.class : Double.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return switch (column) {
+                case 0 -> first[row] + 1;
+                case 1 -> second[row] + 1;
+                case 2 -> round(angles[row]);
+                default -> round(180 - angles[row]);
+            };
+        }
+
+        private static Double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.mycompany.weasis.measure.enhance;
 
 import java.awt.Shape;
-import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
@@ -13,34 +12,65 @@ import org.weasis.core.ui.util.MouseEventDouble;
 
 public class CircleCenterToolGraphic extends ThreePointsCircleGraphic {
 
+    private static final double CROSS_SIZE = 5.0;
+
+    // Reused while drawing, so that dragging does not allocate a path per mouse event
+    private final ShapeBuffers buffers = new ShapeBuffers();
+    private final PointSnapper snapper = new PointSnapper();
+    private List<Point2D> handles;
+
     public CircleCenterToolGraphic() {
         super();
     }
 
     @Override
     public void buildShape(MouseEventDouble mouseEvent) {
+        PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.CIRCLE_CENTER_SHAPE);
+        try {
+            rebuildShape(mouseEvent);
+        } finally {
+            span.end();
+        }
+    }
+
+    private void rebuildShape(MouseEventDouble mouseEvent) {
+        List<Point2D> pts = getPts();
+        snapper.snapMovedPoint(mouseEvent, pts, buffers, this);
+        if (getShape() != null && buffers.isUnchanged(pts) && !ShapeBuffers.isRelease(mouseEvent)) {
+            return;
+        }
         super.buildShape(mouseEvent);
+        handles = null;
         
         if (Objects.nonNull(centerPt) && !Objects.equals(radiusPt, 0d)) {
             Shape circle = getShape();
             if (circle != null) {
-                Path2D path = new Path2D.Double(circle);
+                Path2D path = buffers.nextPath();
+                path.append(circle, false);
                 
                 // Add a cross at the center
-                double crossSize = 5.0;
-                path.append(new Line2D.Double(centerPt.getX() - crossSize, centerPt.getY(), centerPt.getX() + crossSize, centerPt.getY()), false);
-                path.append(new Line2D.Double(centerPt.getX(), centerPt.getY() - crossSize, centerPt.getX(), centerPt.getY() + crossSize), false);
+                double cx = centerPt.getX();
+                double cy = centerPt.getY();
+                path.moveTo(cx - CROSS_SIZE, cy);
+                path.lineTo(cx + CROSS_SIZE, cy);
+                path.moveTo(cx, cy - CROSS_SIZE);
+                path.lineTo(cx, cy + CROSS_SIZE);
                 
                 setShape(path, mouseEvent);
             }
         }
+        buffers.remember(pts);
     }
 
     @Override
     public List<Point2D> getHandlePointList() {
-        List<Point2D> handles = new ArrayList<>(super.getHandlePointList());
-        if (centerPt != null) {
-            handles.add(centerPt);
+        // The points and the center only change in buildShape, which clears the cache
+        if (handles == null) {
+            List<Point2D> list = new ArrayList<>(super.getHandlePointList());
+            if (centerPt != null) {
+                list.add(centerPt);
+            }
+            handles = list;
         }
         return handles;
     }
@@ -0,0 +1,132 @@
+package com.mycompany.weasis.measure.enhance;
+
+/**
+ * Algebraic least-squares (Kasa) circle fit maintained from running sums.
+ *
+ * The circle x^2 + y^2 + D x + E y + F = 0 minimizing the sum of the squared algebraic
+ * residuals only depends on sums of the point coordinates, so adding, removing or moving a
+ * point updates the fit in constant time. Coordinates are shifted by a fixed origin (the
+ * first point added) to keep the sums well conditioned for points far from the image origin.
+ */
+public class CircleFit {
+
+    private boolean hasOrigin = false;
+    private double ox;
+    private double oy;
+
+    private int n;
+    private double sx;
+    private double sy;
+    private double sxx;
+    private double syy;
+    private double sxy;
+    private double sz;
+    private double sxz;
+    private double syz;
+    private double szz;
+
+    // Last solution in shifted coordinates
+    private double d;
+    private double e;
+    private double f;
+
+    public void reset() {
+        hasOrigin = false;
+        n = 0;
+        sx = sy = sxx = syy = sxy = sz = sxz = syz = szz = 0.0;
+    }
+
+    public int getCount() {
+        return n;
+    }
+
+    public void add(double x, double y) {
+        if (!hasOrigin) {
+            hasOrigin = true;
+            ox = x;
+            oy = y;
+        }
+        accumulate(x - ox, y - oy, 1.0);
+        n++;
+    }
+
+    public void remove(double x, double y) {
+        accumulate(x - ox, y - oy, -1.0);
+        n--;
+    }
+
+    public void move(double oldX, double oldY, double newX, double newY) {
+        accumulate(oldX - ox, oldY - oy, -1.0);
+        accumulate(newX - ox, newY - oy, 1.0);
+    }
+
+    private void accumulate(double x, double y, double sign) {
+        double z = x * x + y * y;
+        sx += sign * x;
+        sy += sign * y;
+        sxx += sign * x * x;
+        syy += sign * y * y;
+        sxy += sign * x * y;
+        sz += sign * z;
+        sxz += sign * x * z;
+        syz += sign * y * z;
+        szz += sign * z * z;
+    }
+
+    /**
+     * Solve the fit.
+     *
+     * @param out Receives the center x, center y, radius and residual RMS (image space)
+     * @return false if there are less than 3 points or they are collinear
+     */
+    public boolean fit(double[] out) {
+        if (n < 3) {
+            return false;
+        }
+        // Normal equations of min sum (z + D x + E y + F)^2, solved by Cramer's rule
+        double a11 = sxx;
+        double a12 = sxy;
+        double a13 = sx;
+        double a22 = syy;
+        double a23 = sy;
+        double a33 = n;
+        double b1 = -sxz;
+        double b2 = -syz;
+        double b3 = -sz;
+
+        double c11 = a22 * a33 - a23 * a23;
+        double c12 = a13 * a23 - a12 * a33;
+        double c13 = a12 * a23 - a13 * a22;
+        double det = a11 * c11 + a12 * c12 + a13 * c13;
+        double scale = Math.max(1.0, Math.abs(a11 * a22 * a33));
+        if (Math.abs(det) <= 1e-12 * scale) {
+            return false;
+        }
+        double c22 = a11 * a33 - a13 * a13;
+        double c23 = a12 * a13 - a11 * a23;
+        double c33 = a11 * a22 - a12 * a12;
+        d = (c11 * b1 + c12 * b2 + c13 * b3) / det;
+        e = (c12 * b1 + c22 * b2 + c23 * b3) / det;
+        f = (c13 * b1 + c23 * b2 + c33 * b3) / det;
+
+        double cx = -d / 2.0;
+        double cy = -e / 2.0;
+        double r2 = cx * cx + cy * cy - f;
+        if (r2 <= 0.0) {
+            return false;
+        }
+        double radius = Math.sqrt(r2);
+
+        // Sum of the squared algebraic residuals (d_i^2 - R^2), expanded on the running sums.
+        // (d_i - R) ~ (d_i^2 - R^2) / 2R, so this is the geometric RMS to the first order.
+        double ss = szz + d * d * sxx + e * e * syy + f * f * n
+            + 2.0 * (d * sxz + e * syz + f * sz + d * e * sxy + d * f * sx + e * f * sy);
+        double rms = Math.sqrt(Math.max(0.0, ss) / n) / (2.0 * radius);
+
+        out[0] = cx + ox;
+        out[1] = cy + oy;
+        out[2] = radius;
+        out[3] = rms;
+        return true;
+    }
+}
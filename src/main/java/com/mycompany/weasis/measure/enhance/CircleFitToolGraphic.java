@@ -0,0 +1,176 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.weasis.core.api.image.measure.MeasurementsAdapter;
+import org.weasis.core.api.image.util.MeasurableLayer;
+import org.weasis.core.api.image.util.Unit;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.graphic.imp.line.PolylineGraphic;
+import org.weasis.core.ui.model.utils.bean.MeasureItem;
+import org.weasis.core.ui.model.utils.bean.Measurement;
+import org.weasis.core.ui.util.MouseEventDouble;
+
+/**
+ * Circle and center fitted by least squares through any number of points (double-click to
+ * finish, like a polyline). The fit is updated incrementally: only the points that were added
+ * or moved since the last shape are applied to the running sums of {@link CircleFit}.
+ */
+public class CircleFitToolGraphic extends PolylineGraphic {
+
+    public static final Measurement CENTER_X = new Measurement("Center X", 1, true, true, false);
+    public static final Measurement CENTER_Y = new Measurement("Center Y", 2, true, true, false);
+    public static final Measurement RADIUS = new Measurement("Radius", 3, true, true, true);
+    public static final Measurement RMS = new Measurement("Residual RMS", 4, true, true, true);
+
+    private static final List<Measurement> MEASUREMENT_LIST = List.of(CENTER_X, CENTER_Y, RADIUS, RMS);
+
+    private static final double CROSS_SIZE = 5.0;
+
+    private final CircleFit fit = new CircleFit();
+    // Coordinates of the points currently in the running sums
+    private double[] fitted = new double[0];
+    private int fittedCount = 0;
+    // Center x, center y, radius, RMS
+    private final double[] result = new double[4];
+    private boolean valid = false;
+
+    private final ShapeBuffers buffers = new ShapeBuffers();
+    private final Ellipse2D.Double circle = new Ellipse2D.Double();
+
+    public CircleFitToolGraphic() {
+        super();
+    }
+
+    public CircleFitToolGraphic(CircleFitToolGraphic graphic) {
+        super(graphic);
+    }
+
+    @Override
+    public void buildShape(MouseEventDouble mouseEvent) {
+        PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.CIRCLE_FIT_SHAPE);
+        try {
+            rebuildShape(mouseEvent);
+        } finally {
+            span.end();
+        }
+    }
+
+    private void rebuildShape(MouseEventDouble mouseEvent) {
+        ViewCanvas<?> view = mouseEvent == null ? null : getDefaultView2d(mouseEvent);
+        List<Point2D> pts = getPts();
+        boolean release = ShapeBuffers.isRelease(mouseEvent);
+        if (getShape() != null && buffers.isUnchanged(pts) && !release) {
+            return;
+        }
+        if (release) {
+            // Rebuild the sums from scratch once per gesture, so rounding errors cannot pile up
+            fit.reset();
+            fittedCount = 0;
+        }
+        updateFit(pts);
+        valid = fit.fit(result);
+
+        Path2D path = buffers.nextPath();
+        if (valid) {
+            double r = result[2];
+            circle.setFrame(result[0] - r, result[1] - r, 2.0 * r, 2.0 * r);
+            path.append(circle, false);
+            path.moveTo(result[0] - CROSS_SIZE, result[1]);
+            path.lineTo(result[0] + CROSS_SIZE, result[1]);
+            path.moveTo(result[0], result[1] - CROSS_SIZE);
+            path.lineTo(result[0], result[1] + CROSS_SIZE);
+        } else if (!pts.isEmpty() && pts.get(0) != null) {
+            // Not enough points yet: join them
+            path.moveTo(pts.get(0).getX(), pts.get(0).getY());
+            for (int i = 1; i < pts.size(); i++) {
+                Point2D p = pts.get(i);
+                if (p != null) {
+                    path.lineTo(p.getX(), p.getY());
+                }
+            }
+        }
+        setShape(path, mouseEvent);
+        updateLabel(mouseEvent, view);
+        buffers.remember(pts);
+    }
+
+    /**
+     * Apply to the running sums only the points that differ from the last fit.
+     */
+    private void updateFit(List<Point2D> pts) {
+        int count = pts.size();
+        if (fitted.length < count * 2) {
+            fitted = Arrays.copyOf(fitted, Math.max(count * 2, fitted.length * 2));
+        }
+        // Removed points (undo of the last click)
+        while (fittedCount > count) {
+            fittedCount--;
+            fit.remove(fitted[2 * fittedCount], fitted[2 * fittedCount + 1]);
+        }
+        for (int i = 0; i < count; i++) {
+            Point2D p = pts.get(i);
+            if (p == null) {
+                break;
+            }
+            double x = p.getX();
+            double y = p.getY();
+            if (i >= fittedCount) {
+                fit.add(x, y);
+                fittedCount = i + 1;
+            } else if (x != fitted[2 * i] || y != fitted[2 * i + 1]) {
+                fit.move(fitted[2 * i], fitted[2 * i + 1], x, y);
+            }
+            fitted[2 * i] = x;
+            fitted[2 * i + 1] = y;
+        }
+    }
+
+    /**
+     * @param out Receives the center x, center y and radius of the fitted circle
+     * @return false if there is no fit yet
+     */
+    public boolean getFitCircle(double[] out) {
+        if (valid) {
+            System.arraycopy(result, 0, out, 0, 3);
+        }
+        return valid;
+    }
+
+    @Override
+    public List<MeasureItem> computeMeasurements(MeasurableLayer layer, boolean releaseEvent, Unit displayUnit) {
+        if (layer == null || !layer.hasContent() || !valid) {
+            return null;
+        }
+        MeasurementsAdapter adapter = layer.getMeasurementAdapter(displayUnit);
+        double ratio = adapter.getCalibRatio();
+        String unit = adapter.getUnit();
+
+        List<MeasureItem> measVal = new ArrayList<>(4);
+        measVal.add(new MeasureItem(CENTER_X, adapter.getXCalibratedValue(result[0]), unit));
+        measVal.add(new MeasureItem(CENTER_Y, adapter.getYCalibratedValue(result[1]), unit));
+        measVal.add(new MeasureItem(RADIUS, ratio * result[2], unit));
+        measVal.add(new MeasureItem(RMS, ratio * result[3], unit));
+        return measVal;
+    }
+
+    @Override
+    public List<Measurement> getMeasurementList() {
+        return MEASUREMENT_LIST;
+    }
+
+    @Override
+    public String getUIName() {
+        return "Circle Fit";
+    }
+
+    @Override
+    public CircleFitToolGraphic copy() {
+        return new CircleFitToolGraphic(this);
+    }
+}
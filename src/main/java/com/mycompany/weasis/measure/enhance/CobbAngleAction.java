@@ -0,0 +1,280 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+
+/**
+ * Cobb angles of a spine from all the selected endplate lines at once.
+ *
+ * The lines are ordered along the spine axis (principal direction of their midpoints), and the
+ * tilt of each line relative to the axis is computed. The end vertebrae of the curves are the
+ * turning points of the tilt sequence, found in a single pass; the Cobb angle of a curve is the
+ * tilt difference of its two end vertebrae. Each curve is drawn with the classical construction:
+ * a perpendicular to each end plate and the angle label between them, all bound to the lines.
+ * Adjacent curves share an end vertebra, which gets a single perpendicular long enough for both.
+ */
+public class CobbAngleAction {
+
+    private static final String TITLE = "Cobb Angle";
+
+    // Tilt changes below this are measurement noise, not a new curve
+    private static final double MIN_CURVE_DEGREES = 5.0;
+    // Perpendiculars of nearly parallel end plates meet far away: at most this many times the
+    // distance between the end plates
+    private static final double MAX_PERPENDICULAR_RATIO = 3.0;
+
+    private CobbAngleAction() {
+    }
+
+    /**
+     * A curve between two end vertebrae, as indexes of the lines sorted along the spine.
+     */
+    public record Curve(int upper, int lower, double angle) {
+    }
+
+    public static void measure(ViewCanvas<?> view) {
+        if (view == null) {
+            return;
+        }
+        GraphicModel model = view.getGraphicManager();
+        if (model == null) {
+            return;
+        }
+        List<LineGraphic> lines = new ArrayList<>();
+        for (Graphic g : model.getSelectedGraphics()) {
+            if (g instanceof LineGraphic line && !ConstructionGraph.isConstructed(g)) {
+                List<Point2D> pts = line.getPts();
+                if (pts.size() >= 2 && pts.get(0) != null && pts.get(1) != null && pts.get(0).distance(pts.get(1))
+                    >= GeomKernel.MIN_LENGTH) {
+                    lines.add(line);
+                }
+            }
+        }
+        if (lines.size() < 2) {
+            Toast.show(view.getJComponent(), "Please select the endplate lines (at least 2).");
+            return;
+        }
+
+        int n = lines.size();
+        double[] coords = new double[n * 4];
+        for (int i = 0; i < n; i++) {
+            List<Point2D> pts = lines.get(i).getPts();
+            coords[4 * i] = pts.get(0).getX();
+            coords[4 * i + 1] = pts.get(0).getY();
+            coords[4 * i + 2] = pts.get(1).getX();
+            coords[4 * i + 3] = pts.get(1).getY();
+        }
+        int[] order = new int[n];
+        double[] tilt = new double[n];
+        computeSpineOrder(coords, order, tilt);
+        List<Curve> curves = findCurves(tilt, MIN_CURVE_DEGREES);
+        if (curves.isEmpty()) {
+            Toast.show(view.getJComponent(), String.format(Locale.ROOT,
+                "No curve above %.0f° between the %d selected lines.", MIN_CURVE_DEGREES, n));
+            return;
+        }
+
+        // Length of the perpendicular of each end vertebra (sorted index), the longest of its curves
+        double[] lengths = new double[n];
+        for (Curve curve : curves) {
+            double length = perpendicularLength(coords, order[curve.upper()], order[curve.lower()]);
+            lengths[curve.upper()] = Math.max(lengths[curve.upper()], length);
+            lengths[curve.lower()] = Math.max(lengths[curve.lower()], length);
+        }
+
+        ConstructionBatch batch = new ConstructionBatch(TITLE);
+        for (int k = 0; k < n; k++) {
+            if (lengths[k] > 0.0) {
+                batch.add(ConstructionType.PERPENDICULAR_AT_FRACTION, new Graphic[] {lines.get(order[k])}, 0.5,
+                    lengths[k]);
+            }
+        }
+        StringBuilder message = new StringBuilder();
+        for (int c = 0; c < curves.size(); c++) {
+            Curve curve = curves.get(c);
+            LineGraphic upper = lines.get(order[curve.upper()]);
+            LineGraphic lower = lines.get(order[curve.lower()]);
+            batch.add(ConstructionType.ANGLE_LABEL, new Graphic[] {upper, lower}, 0.0, 0.0);
+            message.append(c == 0 ? "" : ", ")
+                .append(String.format(Locale.ROOT, "%.1f° (L%d-L%d)", curve.angle(), curve.upper() + 1,
+                    curve.lower() + 1));
+        }
+        batch.execute(view);
+        Toast.show(view.getJComponent(), "Cobb: " + message);
+    }
+
+    /**
+     * Length of the perpendiculars centered on the middle of two end plates so that they reach
+     * the point where they meet, between the distance of the end plates and
+     * MAX_PERPENDICULAR_RATIO times that distance.
+     *
+     * @param coords The lines as (x1, y1, x2, y2) quadruples
+     */
+    static double perpendicularLength(double[] coords, int upper, int lower) {
+        int u = 4 * upper;
+        int l = 4 * lower;
+        double ux = (coords[u] + coords[u + 2]) / 2.0;
+        double uy = (coords[u + 1] + coords[u + 3]) / 2.0;
+        double lx = (coords[l] + coords[l + 2]) / 2.0;
+        double ly = (coords[l + 1] + coords[l + 3]) / 2.0;
+        double distance = Math.hypot(lx - ux, ly - uy);
+        double max = MAX_PERPENDICULAR_RATIO * distance;
+        // The perpendiculars through the middles, as the middles moved along the line normals
+        double[] meet = new double[2];
+        if (!GeomKernel.intersectLines(ux, uy, ux - (coords[u + 3] - coords[u + 1]), uy + (coords[u + 2] - coords[u]),
+            lx, ly, lx - (coords[l + 3] - coords[l + 1]), ly + (coords[l + 2] - coords[l]), meet, 0)) {
+            return max;
+        }
+        // A centered segment reaches the meeting point with half of its length
+        double reach = 2.0 * Math.max(Math.hypot(meet[0] - ux, meet[1] - uy), Math.hypot(meet[0] - lx, meet[1] - ly));
+        return Math.max(distance, Math.min(max, reach));
+    }
+
+    /**
+     * Sort the lines along the spine and compute their tilts.
+     *
+     * @param coords The lines as (x1, y1, x2, y2) quadruples
+     * @param order Receives the line indexes from top to bottom of the spine
+     * @param tilt Receives the tilt in degrees of the sorted lines, in (-90, 90], relative to the
+     *     normal of the spine axis
+     */
+    public static void computeSpineOrder(double[] coords, int[] order, double[] tilt) {
+        int n = order.length;
+        double[] mx = new double[n];
+        double[] my = new double[n];
+        double cx = 0.0;
+        double cy = 0.0;
+        for (int i = 0; i < n; i++) {
+            mx[i] = (coords[4 * i] + coords[4 * i + 2]) / 2.0;
+            my[i] = (coords[4 * i + 1] + coords[4 * i + 3]) / 2.0;
+            cx += mx[i];
+            cy += my[i];
+        }
+        cx /= n;
+        cy /= n;
+
+        // Principal direction of the midpoints, oriented downwards in the image
+        double sxx = 0.0;
+        double syy = 0.0;
+        double sxy = 0.0;
+        for (int i = 0; i < n; i++) {
+            double dx = mx[i] - cx;
+            double dy = my[i] - cy;
+            sxx += dx * dx;
+            syy += dy * dy;
+            sxy += dx * dy;
+        }
+        double axisAngle = sxx + syy < GeomKernel.MIN_LENGTH ? Math.PI / 2.0
+            : 0.5 * Math.atan2(2.0 * sxy, sxx - syy);
+        double ax = Math.cos(axisAngle);
+        double ay = Math.sin(axisAngle);
+        if (ay < 0.0 || (ay == 0.0 && ax < 0.0)) {
+            ax = -ax;
+            ay = -ay;
+        }
+
+        // Sort the indexes by position along the axis
+        double[] position = new double[n];
+        for (int i = 0; i < n; i++) {
+            position[i] = (mx[i] - cx) * ax + (my[i] - cy) * ay;
+        }
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> Double.compare(position[a], position[b]));
+
+        double normalAngle = Math.toDegrees(Math.atan2(ay, ax)) + 90.0;
+        for (int k = 0; k < n; k++) {
+            int i = boxed[k];
+            order[k] = i;
+            double lineAngle = Math.toDegrees(Math.atan2(coords[4 * i + 3] - coords[4 * i + 1],
+                coords[4 * i + 2] - coords[4 * i]));
+            tilt[k] = normalizeTilt(lineAngle - normalAngle);
+        }
+    }
+
+    /**
+     * @return the angle modulo 180, in (-90, 90]
+     */
+    static double normalizeTilt(double degrees) {
+        double t = degrees % 180.0;
+        if (t > 90.0) {
+            t -= 180.0;
+        } else if (t <= -90.0) {
+            t += 180.0;
+        }
+        return t;
+    }
+
+    /**
+     * Split the tilt sequence into curves at its turning points, in one pass. A turning point is
+     * confirmed once the tilt went back by at least the threshold, so small oscillations do not
+     * split a curve.
+     *
+     * @param tilt Tilts of the lines sorted along the spine, in degrees
+     * @return the curves from top to bottom, the largest first
+     */
+    public static List<Curve> findCurves(double[] tilt, double threshold) {
+        int n = tilt.length;
+        int[] turns = new int[n + 1];
+        int turnCount = 0;
+        int dir = 0;
+        int lo = 0;
+        int hi = 0;
+        int extreme = 0;
+        for (int i = 1; i < n; i++) {
+            double v = tilt[i];
+            if (dir == 0) {
+                if (v > tilt[hi]) {
+                    hi = i;
+                }
+                if (v < tilt[lo]) {
+                    lo = i;
+                }
+                if (tilt[hi] - tilt[lo] >= threshold) {
+                    // The first end vertebra is the extreme reached first
+                    turns[turnCount++] = Math.min(lo, hi);
+                    dir = lo < hi ? 1 : -1;
+                    extreme = Math.max(lo, hi);
+                }
+            } else if (dir > 0) {
+                if (v > tilt[extreme]) {
+                    extreme = i;
+                } else if (tilt[extreme] - v >= threshold) {
+                    turns[turnCount++] = extreme;
+                    dir = -1;
+                    extreme = i;
+                }
+            } else {
+                if (v < tilt[extreme]) {
+                    extreme = i;
+                } else if (v - tilt[extreme] >= threshold) {
+                    turns[turnCount++] = extreme;
+                    dir = 1;
+                    extreme = i;
+                }
+            }
+        }
+        if (dir != 0) {
+            turns[turnCount++] = extreme;
+        }
+
+        List<Curve> curves = new ArrayList<>(Math.max(0, turnCount - 1));
+        for (int k = 1; k < turnCount; k++) {
+            int upper = turns[k - 1];
+            int lower = turns[k];
+            curves.add(new Curve(upper, lower, Math.abs(tilt[lower] - tilt[upper])));
+        }
+        curves.sort((a, b) -> Double.compare(b.angle(), a.angle()));
+        return curves;
+    }
+}
@@ -0,0 +1,319 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+
+/**
+ * Undo and redo of the constructions, as a log of their parameters rather than of the graphics.
+ *
+ * Each construction is recorded as its type, the UUID of the constructed graphic and of its
+ * sources (as two longs each) and its arguments, in parallel primitive arrays of about 70
+ * bytes per construction. The constructions added by one action share a group and are undone
+ * and redone together. Undo removes the graphics by UUID; redo recomputes them from their
+ * sources with the arguments they had when undone, and gives them back their UUID so that
+ * the constructions built on them can be redone as well.
+ *
+ * There is one log per graphic model, so per image shown in a view. The log is a ring buffer
+ * of at most MAX_ENTRIES constructions: the oldest groups are dropped to make room. Only used
+ * from the EDT.
+ */
+public final class CommandLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandLog.class);
+
+    static final int MAX_ENTRIES = 2048;
+    private static final int MAX_SOURCES = 2;
+    private static final int MAX_ARGS = 2;
+    // Target then sources, as most and least significant bits
+    private static final int IDS = 2 * (1 + MAX_SOURCES);
+
+    private static final Map<GraphicModel, CommandLog> LOGS = new WeakHashMap<>();
+    private static final ConstructionType[] TYPES = ConstructionType.values();
+
+    // Entry i of the log is at index (head + i) % capacity
+    private int capacity = 64;
+    private byte[] types = new byte[capacity];
+    private byte[] sourceCounts = new byte[capacity];
+    private int[] groups = new int[capacity];
+    private long[] ids = new long[capacity * IDS];
+    private double[] args = new double[capacity * MAX_ARGS];
+    private int head = 0;
+    // Entries in the log, and how many of them are applied; the others can be redone
+    private int count = 0;
+    private int done = 0;
+    private int nextGroup = 0;
+
+    private CommandLog() {
+    }
+
+    private static CommandLog get(ViewCanvas<?> view, boolean create) {
+        GraphicModel model = view == null ? null : view.getGraphicManager();
+        if (model == null) {
+            return null;
+        }
+        return create ? LOGS.computeIfAbsent(model, m -> new CommandLog()) : LOGS.get(model);
+    }
+
+    /**
+     * Record the constructed graphics just added to the view by one action, as one undo group.
+     * Graphics that are not bound to their sources are ignored.
+     */
+    public static void record(ViewCanvas<?> view, List<Graphic> targets) {
+        CommandLog log = get(view, true);
+        if (log == null || targets.isEmpty()) {
+            return;
+        }
+        if (targets.size() > MAX_ENTRIES) {
+            LOGGER.info("{} constructions are too many to be undone, clearing the undo history", targets.size());
+            log.clear();
+            return;
+        }
+        log.push(targets);
+    }
+
+    public static boolean canUndo(ViewCanvas<?> view) {
+        CommandLog log = get(view, false);
+        return log != null && log.done > 0;
+    }
+
+    public static boolean canRedo(ViewCanvas<?> view) {
+        CommandLog log = get(view, false);
+        return log != null && log.done < log.count;
+    }
+
+    /**
+     * Remove the graphics of the last group of constructions of the image shown in the view.
+     *
+     * @return the number of graphics removed, or -1 if there was nothing to undo
+     */
+    public static int undo(ViewCanvas<?> view) {
+        CommandLog log = get(view, false);
+        if (log == null || log.done == 0) {
+            return -1;
+        }
+        return log.undoGroup(view);
+    }
+
+    /**
+     * Construct again the last undone group of constructions of the image shown in the view.
+     *
+     * @return the number of graphics constructed, or -1 if there was nothing to redo
+     */
+    public static int redo(ViewCanvas<?> view) throws InvalidShapeException {
+        CommandLog log = get(view, false);
+        if (log == null || log.done == log.count) {
+            return -1;
+        }
+        return log.redoGroup(view);
+    }
+
+    private int at(int i) {
+        return (head + i) % capacity;
+    }
+
+    private void clear() {
+        head = 0;
+        count = 0;
+        done = 0;
+    }
+
+    private void push(List<Graphic> targets) {
+        // A new action drops the undone groups
+        count = done;
+        int n = targets.size();
+        while (count + n > capacity && capacity < MAX_ENTRIES) {
+            grow();
+        }
+        while (count + n > capacity) {
+            dropOldestGroup();
+        }
+        int group = nextGroup++;
+        for (Graphic target : targets) {
+            ConstructionGraph.Construction construction = ConstructionGraph.getConstruction(target);
+            Graphic[] sources = ConstructionGraph.getSources(target);
+            if (construction == null || sources == null || sources.length > MAX_SOURCES
+                || !putId(count, 0, target)) {
+                continue;
+            }
+            int k = at(count);
+            boolean valid = true;
+            for (int s = 0; s < sources.length && valid; s++) {
+                valid = putId(count, s + 1, sources[s]);
+            }
+            if (!valid) {
+                continue;
+            }
+            types[k] = (byte) construction.type().ordinal();
+            sourceCounts[k] = (byte) sources.length;
+            groups[k] = group;
+            double[] a = construction.args();
+            for (int j = 0; j < MAX_ARGS; j++) {
+                args[k * MAX_ARGS + j] = j < a.length ? a[j] : 0.0;
+            }
+            count++;
+        }
+        done = count;
+    }
+
+    /**
+     * The ring only wraps once it has its maximum capacity, so it is still in order here.
+     */
+    private void grow() {
+        capacity = Math.min(MAX_ENTRIES, capacity * 2);
+        types = Arrays.copyOf(types, capacity);
+        sourceCounts = Arrays.copyOf(sourceCounts, capacity);
+        groups = Arrays.copyOf(groups, capacity);
+        ids = Arrays.copyOf(ids, capacity * IDS);
+        args = Arrays.copyOf(args, capacity * MAX_ARGS);
+    }
+
+    private void dropOldestGroup() {
+        int group = groups[head];
+        while (count > 0 && groups[head] == group) {
+            head = (head + 1) % capacity;
+            count--;
+            done = Math.max(0, done - 1);
+        }
+    }
+
+    private boolean putId(int entry, int slot, Graphic graphic) {
+        try {
+            UUID uuid = UUID.fromString(graphic.getUuid());
+            int k = at(entry) * IDS + 2 * slot;
+            ids[k] = uuid.getMostSignificantBits();
+            ids[k + 1] = uuid.getLeastSignificantBits();
+            return true;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    private String getId(int entry, int slot) {
+        int k = at(entry) * IDS + 2 * slot;
+        return new UUID(ids[k], ids[k + 1]).toString();
+    }
+
+    /**
+     * @return the first entry of the group that ends at the entry before end
+     */
+    private int groupStart(int end) {
+        int group = groups[at(end - 1)];
+        int start = end - 1;
+        while (start > 0 && groups[at(start - 1)] == group) {
+            start--;
+        }
+        return start;
+    }
+
+    private int groupEnd(int start) {
+        int group = groups[at(start)];
+        int end = start + 1;
+        while (end < count && groups[at(end)] == group) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Find the graphics of the model with the given UUIDs, in one pass over the model.
+     */
+    private static Map<String, Graphic> findGraphics(GraphicModel model, Map<String, Graphic> wanted) {
+        int remaining = wanted.size();
+        for (Graphic graphic : model.getModels()) {
+            String uuid = graphic.getUuid();
+            if (wanted.containsKey(uuid) && wanted.put(uuid, graphic) == null && --remaining == 0) {
+                break;
+            }
+        }
+        return wanted;
+    }
+
+    private int undoGroup(ViewCanvas<?> view) {
+        int start = groupStart(done);
+        Map<String, Graphic> wanted = new HashMap<>();
+        for (int i = start; i < done; i++) {
+            wanted.put(getId(i, 0), null);
+        }
+        findGraphics(view.getGraphicManager(), wanted);
+
+        int removed = 0;
+        for (int i = done - 1; i >= start; i--) {
+            Graphic target = wanted.get(getId(i, 0));
+            if (target == null) {
+                // Already deleted by the user
+                continue;
+            }
+            // Keep the edits made to the graphic since it was constructed
+            ConstructionGraph.Construction construction = ConstructionGraph.getConstruction(target);
+            if (construction != null) {
+                double[] a = construction.args();
+                int k = at(i) * MAX_ARGS;
+                for (int j = 0; j < MAX_ARGS && j < a.length; j++) {
+                    args[k + j] = a[j];
+                }
+            }
+            target.fireRemoveAction();
+            removed++;
+        }
+        done = start;
+        LOGGER.debug("Undo: {} graphics removed", removed);
+        return removed;
+    }
+
+    private int redoGroup(ViewCanvas<?> view) throws InvalidShapeException {
+        int end = groupEnd(done);
+        Map<String, Graphic> wanted = new HashMap<>();
+        for (int i = done; i < end; i++) {
+            for (int s = 1; s <= sourceCounts[at(i)]; s++) {
+                wanted.put(getId(i, s), null);
+            }
+        }
+        findGraphics(view.getGraphicManager(), wanted);
+
+        List<Graphic> graphics = new ArrayList<>(end - done);
+        List<ConstructionType> graphicTypes = new ArrayList<>(end - done);
+        List<Graphic[]> bindings = new ArrayList<>(end - done);
+        List<double[]> arguments = new ArrayList<>(end - done);
+        for (int i = done; i < end; i++) {
+            int k = at(i);
+            ConstructionType type = TYPES[types[k]];
+            Graphic[] sources = new Graphic[sourceCounts[k]];
+            for (int s = 0; s < sources.length; s++) {
+                sources[s] = wanted.get(getId(i, s + 1));
+            }
+            if (Arrays.asList(sources).contains(null)) {
+                // A source has been deleted since
+                continue;
+            }
+            double[] a = Arrays.copyOfRange(args, k * MAX_ARGS, k * MAX_ARGS + MAX_ARGS);
+            Graphic graphic = ConstructionGraph.create(type, sources, a);
+            if (graphic != null) {
+                graphic.setUuid(getId(i, 0));
+                graphics.add(graphic);
+                graphicTypes.add(type);
+                bindings.add(sources);
+                arguments.add(a);
+            }
+        }
+
+        ConstructionGraph.addAllToModel(view, graphics);
+        for (int g = 0; g < graphics.size(); g++) {
+            Graphic graphic = graphics.get(g);
+            ConstructionGraph.bind(view, graphic, graphicTypes.get(g), bindings.get(g), arguments.get(g));
+        }
+        done = end;
+        LOGGER.debug("Redo: {} graphics constructed", graphics.size());
+        return graphics.size();
+    }
+}
@@ -0,0 +1,207 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+
+/**
+ * Constructions to apply at once to many source lines.
+ *
+ * The source points are copied when a construction is added (on the EDT), then the points and
+ * the graphics are computed, in the background for large batches. Finally all the graphics are
+ * added to the model with a single change notification, bound to their sources, and the region
+ * covering them is repainted once.
+ *
+ * A background build is only committed to the graphic model that was shown when it started:
+ * if the user has scrolled to another image meanwhile, nothing is added. Constructions whose
+ * sources have been deleted are dropped, and the ones whose sources have moved are recomputed.
+ */
+public class ConstructionBatch {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConstructionBatch.class);
+
+    // Smaller batches are built directly on the EDT, a worker would only add latency
+    private static final int BACKGROUND_THRESHOLD = 32;
+
+    private final String title;
+    private final List<Item> items = new ArrayList<>();
+
+    private static final class Item {
+        final ConstructionType type;
+        final Graphic[] sources;
+        final double[] src;
+        final double[] args;
+        final Float lineThickness;
+        Graphic graphic;
+
+        Item(ConstructionType type, Graphic[] sources, double[] src, double[] args) {
+            this.type = type;
+            this.sources = sources;
+            this.src = src;
+            this.args = args;
+            this.lineThickness = sources[0].getLineThickness();
+        }
+    }
+
+    /**
+     * @param title Title of the error dialogs
+     */
+    public ConstructionBatch(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Add a construction; degenerate sources are ignored.
+     */
+    public void add(ConstructionType type, Graphic[] sources, double... args) {
+        double[] src = new double[sources.length * 4];
+        if (ConstructionType.readSources(sources, src)) {
+            items.add(new Item(type, sources, src, args.clone()));
+        }
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Build the graphics and add them to the view.
+     */
+    public void execute(ViewCanvas<?> view) {
+        GraphicModel model = view.getGraphicManager();
+        if (items.isEmpty() || model == null) {
+            return;
+        }
+        if (items.size() < BACKGROUND_THRESHOLD) {
+            try {
+                buildAll();
+            } catch (InvalidShapeException e) {
+                showError(view, e);
+                return;
+            }
+            commit(view);
+            return;
+        }
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                buildAll();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    showError(view, e.getCause());
+                    return;
+                }
+                if (view.getGraphicManager() != model) {
+                    LOGGER.info("{}: the image changed during the build, {} constructions dropped", title,
+                        items.size());
+                    Toast.show(view.getJComponent(), "The displayed image changed, nothing was added.");
+                    return;
+                }
+                try {
+                    revalidate(model);
+                } catch (InvalidShapeException e) {
+                    showError(view, e);
+                    return;
+                }
+                commit(view);
+            }
+        }.execute();
+    }
+
+    /**
+     * Compute the points and create the graphics. Touches only the copied source points and the
+     * new graphics, which are not attached to anything yet.
+     */
+    private void buildAll() throws InvalidShapeException {
+        double[] coords = new double[12];
+        for (Item item : items) {
+            if (item.type.computePoints(item.src, item.args, coords)) {
+                item.graphic = ConstructionGraph.build(item.type, item.lineThickness, coords);
+            }
+        }
+    }
+
+    /**
+     * After a background build, on the EDT: drop the constructions whose sources are no longer
+     * in the model, and recompute the ones whose sources have moved since they were copied.
+     */
+    private void revalidate(GraphicModel model) throws InvalidShapeException {
+        Set<Graphic> missing = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Item item : items) {
+            Collections.addAll(missing, item.sources);
+        }
+        for (Graphic graphic : model.getModels()) {
+            if (missing.remove(graphic) && missing.isEmpty()) {
+                break;
+            }
+        }
+
+        double[] coords = new double[12];
+        for (Item item : items) {
+            if (item.graphic == null) {
+                continue;
+            }
+            double[] current = new double[item.src.length];
+            boolean present = true;
+            for (Graphic source : item.sources) {
+                present &= !missing.contains(source);
+            }
+            if (!present || !ConstructionType.readSources(item.sources, current)) {
+                item.graphic = null;
+            } else if (!Arrays.equals(current, item.src)) {
+                System.arraycopy(current, 0, item.src, 0, current.length);
+                item.graphic = item.type.computePoints(item.src, item.args, coords)
+                    ? ConstructionGraph.build(item.type, item.lineThickness, coords) : null;
+            }
+        }
+    }
+
+    private void commit(ViewCanvas<?> view) {
+        List<Graphic> graphics = new ArrayList<>(items.size());
+        for (Item item : items) {
+            if (item.graphic != null) {
+                graphics.add(item.graphic);
+            }
+        }
+        ConstructionGraph.addAllToModel(view, graphics);
+        for (Item item : items) {
+            if (item.graphic != null) {
+                ConstructionGraph.bind(view, item.graphic, item.type, item.sources, item.args);
+            }
+        }
+        CommandLog.record(view, graphics);
+        LOGGER.debug("{}: {} graphics added", title, graphics.size());
+    }
+
+    private void showError(ViewCanvas<?> view, Throwable e) {
+        LOGGER.error("{}: cannot build graphics", title, e);
+        JOptionPane.showMessageDialog(
+            view.getJComponent(),
+            "Failed to create graphics: " + e.getMessage(),
+            title,
+            JOptionPane.ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,384 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.AbstractGraphicModel;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.DragGraphic;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.layer.LayerType;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+
+/**
+ * Dependency graph between source lines and the graphics constructed from them.
+ *
+ * A constructed graphic listens to the point changes of its sources. When a source moves,
+ * its dependents (and their own dependents) are marked dirty and recomputed once, in
+ * topological order, at the end of the current EDT cycle. When the user edits a constructed
+ * graphic directly, its arguments (offset, length, position) are captured from its new
+ * geometry so that the next source change keeps the edit. The labels and repaints go to the
+ * views showing the graphic model at the time of the update, not to the view where the
+ * construction was made.
+ *
+ * All methods must be called from the EDT. Graphics are only weakly referenced.
+ */
+public final class ConstructionGraph {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConstructionGraph.class);
+
+    private static final Map<Graphic, Node> NODES_BY_TARGET = new WeakHashMap<>();
+    private static final Map<Graphic, List<Node>> NODES_BY_SOURCE = new WeakHashMap<>();
+    private static final Set<Node> DIRTY = new LinkedHashSet<>();
+    private static final PropertyChangeListener LISTENER = ConstructionGraph::graphicChanged;
+
+    // Large enough for the 6 points of a ParallelLineGraphic, and for the source lines
+    private static final double[] SCRATCH = new double[12];
+    private static final double[] SOURCES = new double[8];
+
+    private static boolean flushScheduled = false;
+    private static boolean updating = false;
+
+    private ConstructionGraph() {
+    }
+
+    private static final class Node {
+        final WeakReference<Graphic> target;
+        final List<WeakReference<Graphic>> sources;
+        final ConstructionType type;
+        final double[] args;
+        final WeakReference<GraphicModel> model;
+        final int depth;
+
+        Node(Graphic target, Graphic[] sources, ConstructionType type, double[] args, GraphicModel model,
+            int depth) {
+            this.target = new WeakReference<>(target);
+            this.sources = new ArrayList<>(sources.length);
+            for (Graphic source : sources) {
+                this.sources.add(new WeakReference<>(source));
+            }
+            this.type = type;
+            this.args = args;
+            this.model = new WeakReference<>(model);
+            this.depth = depth;
+        }
+
+        /**
+         * @return the sources, or null if one of them has been collected
+         */
+        Graphic[] resolveSources() {
+            Graphic[] resolved = new Graphic[sources.size()];
+            for (int i = 0; i < resolved.length; i++) {
+                resolved[i] = sources.get(i).get();
+                if (resolved[i] == null) {
+                    return null;
+                }
+            }
+            return resolved;
+        }
+    }
+
+    /**
+     * Create a constructed graphic from its sources and arguments, without adding it to a model.
+     *
+     * @return The graphic, or null if the sources are degenerate
+     */
+    public static Graphic create(ConstructionType type, Graphic[] sources, double... args)
+        throws InvalidShapeException {
+        double[] src = new double[sources.length * 4];
+        double[] coords = new double[type.getPointCount() * 2];
+        if (!ConstructionType.readSources(sources, src) || !type.computePoints(src, args, coords)) {
+            return null;
+        }
+        return build(type, sources[0].getLineThickness(), coords);
+    }
+
+    /**
+     * Create the graphic of a construction from its computed points. It is not attached to
+     * any model or listener yet, so this can be called outside of the EDT.
+     */
+    static Graphic build(ConstructionType type, Float lineThickness, double[] coords) throws InvalidShapeException {
+        List<Point2D> points = new ArrayList<>(type.getPointCount());
+        for (int i = 0; i < type.getPointCount() * 2; i += 2) {
+            points.add(new Point2D.Double(coords[i], coords[i + 1]));
+        }
+
+        Graphic graphic = type.newGraphic();
+        graphic.setLayerType(LayerType.MEASURE);
+        graphic.setLineThickness(lineThickness);
+        graphic.buildGraphic(points);
+        return graphic;
+    }
+
+    /**
+     * Create a constructed graphic, add it to the model of the view and keep it bound to its
+     * sources. The construction can be undone with {@link CommandLog}.
+     *
+     * @return The graphic, or null if the sources are degenerate
+     */
+    public static Graphic construct(ViewCanvas<?> view, ConstructionType type, Graphic[] sources, double... args)
+        throws InvalidShapeException {
+        Graphic graphic = create(type, sources, args);
+        if (graphic != null) {
+            AbstractGraphicModel.addGraphicToModel(view, graphic);
+            bind(view, graphic, type, sources, args);
+            CommandLog.record(view, List.of(graphic));
+        }
+        return graphic;
+    }
+
+    /**
+     * Add many graphics to the model of the view at once: the model change notification is
+     * sent once for the whole list instead of once per graphic. The caller repaints the view.
+     */
+    public static void addAllToModel(ViewCanvas<?> view, List<Graphic> graphics) {
+        GraphicModel model = view.getGraphicManager();
+        if (model == null || graphics.isEmpty()) {
+            return;
+        }
+        List<PropertyChangeListener> listeners = model.getGraphicsListeners();
+        model.setChangeFireingSuspended(Boolean.TRUE);
+        try {
+            for (Graphic graphic : graphics) {
+                // Same steps as AbstractGraphicModel.addGraphicToModel, without the per graphic notification
+                graphic.updateLabel(Boolean.TRUE, view);
+                for (PropertyChangeListener listener : listeners) {
+                    graphic.addPropertyChangeListener(listener);
+                }
+                model.addGraphic(graphic);
+            }
+        } finally {
+            model.setChangeFireingSuspended(Boolean.FALSE);
+        }
+        model.fireChanged();
+    }
+
+    /**
+     * Bind an existing graphic to its sources so that it is recomputed when they move.
+     */
+    public static void bind(ViewCanvas<?> view, Graphic target, ConstructionType type, Graphic[] sources,
+        double... args) {
+        unbind(target);
+
+        int depth = 0;
+        for (Graphic source : sources) {
+            Node sourceNode = NODES_BY_TARGET.get(source);
+            if (sourceNode != null) {
+                depth = Math.max(depth, sourceNode.depth);
+            }
+        }
+
+        Node node = new Node(target, sources, type, args.clone(), view == null ? null : view.getGraphicManager(),
+            depth + 1);
+        NODES_BY_TARGET.put(target, node);
+        target.addPropertyChangeListener(LISTENER);
+        for (Graphic source : sources) {
+            NODES_BY_SOURCE.computeIfAbsent(source, k -> new ArrayList<>(2)).add(node);
+            source.addPropertyChangeListener(LISTENER);
+        }
+    }
+
+    /**
+     * Detach a constructed graphic from its sources; it becomes a plain graphic.
+     */
+    public static void unbind(Graphic target) {
+        Node node = NODES_BY_TARGET.remove(target);
+        if (node == null) {
+            return;
+        }
+        DIRTY.remove(node);
+        for (WeakReference<Graphic> ref : node.sources) {
+            Graphic source = ref.get();
+            if (source != null) {
+                List<Node> dependents = NODES_BY_SOURCE.get(source);
+                if (dependents != null) {
+                    dependents.remove(node);
+                    if (dependents.isEmpty()) {
+                        NODES_BY_SOURCE.remove(source);
+                        releaseListener(source);
+                    }
+                }
+            }
+        }
+        releaseListener(target);
+    }
+
+    /**
+     * A construction bound to a source graphic.
+     *
+     * @param args A copy of the current arguments
+     */
+    public record Construction(Graphic target, ConstructionType type, double[] args) {
+    }
+
+    /**
+     * @return the graphics constructed from this source only (not from several sources)
+     */
+    public static List<Construction> getConstructions(Graphic source) {
+        List<Node> dependents = NODES_BY_SOURCE.get(source);
+        if (dependents == null) {
+            return List.of();
+        }
+        List<Construction> constructions = new ArrayList<>(dependents.size());
+        for (Node node : dependents) {
+            Graphic target = node.target.get();
+            if (target != null && node.sources.size() == 1) {
+                constructions.add(new Construction(target, node.type, node.args.clone()));
+            }
+        }
+        return constructions;
+    }
+
+    /**
+     * @return the construction of a constructed graphic, or null if it is not bound
+     */
+    public static Construction getConstruction(Graphic target) {
+        Node node = NODES_BY_TARGET.get(target);
+        return node == null ? null : new Construction(target, node.type, node.args.clone());
+    }
+
+    /**
+     * @return the sources of a constructed graphic, or null if it is not bound
+     */
+    public static Graphic[] getSources(Graphic target) {
+        Node node = NODES_BY_TARGET.get(target);
+        return node == null ? null : node.resolveSources();
+    }
+
+    /**
+     * @return true if the graphic is recomputed from source graphics
+     */
+    public static boolean isConstructed(Graphic graphic) {
+        return NODES_BY_TARGET.containsKey(graphic);
+    }
+
+    private static void releaseListener(Graphic graphic) {
+        if (!NODES_BY_TARGET.containsKey(graphic) && !NODES_BY_SOURCE.containsKey(graphic)) {
+            graphic.removePropertyChangeListener(LISTENER);
+        }
+    }
+
+    private static void graphicChanged(PropertyChangeEvent evt) {
+        if (updating || !(evt.getSource() instanceof Graphic graphic)) {
+            return;
+        }
+        String name = evt.getPropertyName();
+        if ("bounds".equals(name)) {
+            Node own = NODES_BY_TARGET.get(graphic);
+            if (own != null) {
+                // Edited by the user: keep the new offset, length or position
+                Graphic[] sources = own.resolveSources();
+                if (sources != null && ConstructionType.readSources(sources, SOURCES)) {
+                    own.type.captureArgs(SOURCES, graphic, own.args, SCRATCH);
+                }
+            }
+            List<Node> dependents = NODES_BY_SOURCE.get(graphic);
+            if (dependents != null && !dependents.isEmpty()) {
+                DIRTY.addAll(dependents);
+                scheduleFlush();
+            }
+        } else if ("remove".equals(name) || "remove.repaint".equals(name)) {
+            unbind(graphic);
+            List<Node> dependents = NODES_BY_SOURCE.get(graphic);
+            if (dependents != null) {
+                // The dependents stay in the model as plain graphics
+                for (Node node : new ArrayList<>(dependents)) {
+                    Graphic target = node.target.get();
+                    if (target != null) {
+                        unbind(target);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            SwingUtilities.invokeLater(ConstructionGraph::flush);
+        }
+    }
+
+    /**
+     * Recompute the dirty nodes and everything that depends on them, each exactly once.
+     */
+    private static void flush() {
+        flushScheduled = false;
+        if (DIRTY.isEmpty()) {
+            return;
+        }
+
+        // Transitive closure of the dirty nodes, then sources before dependents
+        Set<Node> closure = new LinkedHashSet<>(DIRTY);
+        DIRTY.clear();
+        List<Node> order = new ArrayList<>(closure);
+        for (int i = 0; i < order.size(); i++) {
+            Graphic target = order.get(i).target.get();
+            List<Node> dependents = target == null ? null : NODES_BY_SOURCE.get(target);
+            if (dependents != null) {
+                for (Node dependent : dependents) {
+                    if (closure.add(dependent)) {
+                        order.add(dependent);
+                    }
+                }
+            }
+        }
+        order.sort(Comparator.comparingInt(node -> node.depth));
+
+        // Views showing each model, looked up once per flush
+        Map<GraphicModel, List<ViewCanvas<?>>> views = new IdentityHashMap<>();
+        updating = true;
+        try {
+            for (Node node : order) {
+                GraphicModel model = node.model.get();
+                recompute(node, model == null ? List.of() : views.computeIfAbsent(model, OpenViews::showing));
+            }
+        } finally {
+            updating = false;
+        }
+    }
+
+    private static void recompute(Node node, List<ViewCanvas<?>> views) {
+        Graphic target = node.target.get();
+        Graphic[] sources = node.resolveSources();
+        if (target == null || sources == null) {
+            return;
+        }
+        if (!ConstructionType.readSources(sources, SOURCES)
+            || !node.type.computePoints(SOURCES, node.args, SCRATCH)) {
+            return;
+        }
+
+        List<Point2D> pts = target.getPts();
+        int count = Math.min(pts.size(), node.type.getPointCount());
+        for (int i = 0; i < count; i++) {
+            pts.get(i).setLocation(SCRATCH[2 * i], SCRATCH[2 * i + 1]);
+        }
+
+        try {
+            if (target instanceof DragGraphic dragGraphic) {
+                dragGraphic.buildShape(null);
+            }
+            if (!views.isEmpty()) {
+                // The views show the same image, so the measurements of the label are the same
+                target.updateLabel(Boolean.TRUE, views.get(0));
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Cannot update constructed graphic: {}", e.getMessage());
+        }
+    }
+}
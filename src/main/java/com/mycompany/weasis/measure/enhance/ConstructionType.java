@@ -0,0 +1,188 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.graphic.imp.line.ParallelLineGraphic;
+
+/**
+ * The constructions that can be derived from a source line, with the numeric arguments
+ * that fully describe them. The points of a constructed graphic are always recomputed
+ * from its sources and arguments, see {@link ConstructionGraph}.
+ */
+public enum ConstructionType {
+
+    /**
+     * Perpendicular centered at a fraction of the source line (0.5 for the bisector,
+     * 1/3 and 2/3 for the trisection perpendiculars).
+     * Arguments: fraction, length.
+     */
+    PERPENDICULAR_AT_FRACTION(2) {
+        @Override
+        Graphic newGraphic() {
+            return new LineGraphic();
+        }
+
+        @Override
+        public boolean computePoints(double[] src, double[] args, double[] out) {
+            GeomKernel.pointAt(src[0], src[1], src[2], src[3], args[0], out, 0);
+            return GeomKernel.perpendicularSegment(out[0], out[1], src[2] - src[0], src[3] - src[1], args[1], out,
+                0);
+        }
+
+        @Override
+        void captureArgs(double[] src, Graphic target, double[] args, double[] scratch) {
+            List<Point2D> pts = target.getPts();
+            Point2D a = pts.get(0);
+            Point2D b = pts.get(1);
+            args[0] = GeomKernel.foot(src[0], src[1], src[2], src[3], (a.getX() + b.getX()) / 2.0,
+                (a.getY() + b.getY()) / 2.0, scratch, 0);
+            args[1] = a.distance(b);
+        }
+    },
+
+    /**
+     * ParallelLineGraphic whose first line follows the source line.
+     * Arguments: signed offset of the parallel line along the left normal of the source.
+     */
+    PARALLEL_LINE(6) {
+        @Override
+        Graphic newGraphic() {
+            return new ParallelLineGraphic();
+        }
+
+        @Override
+        public boolean computePoints(double[] src, double[] args, double[] out) {
+            double ax = src[0];
+            double ay = src[1];
+            double bx = src[2];
+            double by = src[3];
+            // A, B, C, D, E (midpoint AB), F (midpoint CD)
+            if (!GeomKernel.offsetSegment(ax, ay, bx, by, args[0], out, 4)) {
+                return false;
+            }
+            out[0] = ax;
+            out[1] = ay;
+            out[2] = bx;
+            out[3] = by;
+            out[8] = (ax + bx) / 2.0;
+            out[9] = (ay + by) / 2.0;
+            out[10] = (out[4] + out[6]) / 2.0;
+            out[11] = (out[5] + out[7]) / 2.0;
+            return true;
+        }
+
+        @Override
+        void captureArgs(double[] src, Graphic target, double[] args, double[] scratch) {
+            Point2D c = target.getPts().get(2);
+            double offset = GeomKernel.signedDistance(src[0], src[1], src[2], src[3], c.getX(), c.getY());
+            if (!Double.isNaN(offset)) {
+                args[0] = offset;
+            }
+        }
+    },
+
+    /**
+     * Segment from a point to its perpendicular foot on the source line, measured by
+     * {@link PerpendicularDistanceGraphic}.
+     * Arguments: x, y of the point.
+     */
+    PERPENDICULAR_DISTANCE(2) {
+        @Override
+        Graphic newGraphic() {
+            return new PerpendicularDistanceGraphic();
+        }
+
+        @Override
+        public boolean computePoints(double[] src, double[] args, double[] out) {
+            out[0] = args[0];
+            out[1] = args[1];
+            GeomKernel.foot(src[0], src[1], src[2], src[3], args[0], args[1], out, 2);
+            return true;
+        }
+
+        @Override
+        void captureArgs(double[] src, Graphic target, double[] args, double[] scratch) {
+            Point2D p = target.getPts().get(0);
+            args[0] = p.getX();
+            args[1] = p.getY();
+        }
+    },
+
+    /**
+     * Label point of the angle between two source lines, placed between their midpoints.
+     * Arguments: x, y offset of the label from that position.
+     */
+    ANGLE_LABEL(1) {
+        @Override
+        Graphic newGraphic() {
+            return new AngleResultGraphic();
+        }
+
+        @Override
+        public boolean computePoints(double[] src, double[] args, double[] out) {
+            out[0] = (src[0] + src[2] + src[4] + src[6]) / 4.0 + args[0];
+            out[1] = (src[1] + src[3] + src[5] + src[7]) / 4.0 + args[1];
+            return true;
+        }
+
+        @Override
+        void captureArgs(double[] src, Graphic target, double[] args, double[] scratch) {
+            Point2D p = target.getPts().get(0);
+            args[0] = p.getX() - (src[0] + src[2] + src[4] + src[6]) / 4.0;
+            args[1] = p.getY() - (src[1] + src[3] + src[5] + src[7]) / 4.0;
+        }
+    };
+
+    private final int pointCount;
+
+    ConstructionType(int pointCount) {
+        this.pointCount = pointCount;
+    }
+
+    /**
+     * Number of points of the constructed graphic; computePoints writes twice as many doubles.
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    abstract Graphic newGraphic();
+
+    /**
+     * Compute the points of the constructed graphic as x, y pairs.
+     *
+     * @param src The source lines as x1, y1, x2, y2 for each source
+     * @return false if the sources are degenerate
+     */
+    public abstract boolean computePoints(double[] src, double[] args, double[] out);
+
+    /**
+     * Update the arguments from the current points of the constructed graphic, after the
+     * user has edited it directly.
+     *
+     * @param src The source lines as x1, y1, x2, y2 for each source
+     */
+    abstract void captureArgs(double[] src, Graphic target, double[] args, double[] scratch);
+
+    /**
+     * Copy the two first points of each source graphic into src as x1, y1, x2, y2.
+     *
+     * @return false if a source has less than two points
+     */
+    public static boolean readSources(Graphic[] sources, double[] src) {
+        for (int i = 0; i < sources.length; i++) {
+            List<Point2D> pts = sources[i].getPts();
+            if (pts == null || pts.size() < 2 || pts.get(0) == null || pts.get(1) == null) {
+                return false;
+            }
+            src[4 * i] = pts.get(0).getX();
+            src[4 * i + 1] = pts.get(0).getY();
+            src[4 * i + 2] = pts.get(1).getX();
+            src[4 * i + 3] = pts.get(1).getY();
+        }
+        return true;
+    }
+}
@@ -1,7 +1,6 @@
 package com.mycompany.weasis.measure.enhance;
 
 import java.awt.Shape;
-import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.util.List;
@@ -11,7 +10,10 @@ import org.weasis.core.ui.util.MouseEventDouble;
 
 public class ContinueLineToolGraphic extends LineGraphic {
 
-    private boolean startPointSnapped = false;
+    // Reused while drawing, so that dragging does not allocate a path per mouse event
+    private final ShapeBuffers buffers = new ShapeBuffers();
+    private final double[] end = new double[2];
+    private final PointSnapper snapper = new PointSnapper();
 
     public ContinueLineToolGraphic() {
         super();
@@ -19,46 +21,44 @@ public class ContinueLineToolGraphic extends LineGraphic {
 
     @Override
     public void buildShape(MouseEventDouble mouseEvent) {
-        if (mouseEvent != null) {
-            List<Point2D> points = getPts();
-            if (points != null && !points.isEmpty()) {
-                int lastIndex = points.size() - 1;
-                Point2D currentPt = points.get(lastIndex);
-                
-                Point2D snapped = SnappingUtil.getSnapPoint(mouseEvent, currentPt, this);
-                if (snapped != null) {
-                    points.set(lastIndex, snapped);
-                }
-            }
+        PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.CONTINUE_LINE_SHAPE);
+        try {
+            rebuildShape(mouseEvent);
+        } finally {
+            span.end();
         }
+    }
 
+    private void rebuildShape(MouseEventDouble mouseEvent) {
+        List<Point2D> points = getPts();
+        snapper.snapMovedPoint(mouseEvent, points, buffers, this);
+        if (getShape() != null && buffers.isUnchanged(points) && !ShapeBuffers.isRelease(mouseEvent)) {
+            return;
+        }
         super.buildShape(mouseEvent);
         
-        List<Point2D> points = getPts();
         if (points.size() == 2) {
             Point2D A = points.get(0);
             Point2D B = points.get(1);
             
             if (A != null && B != null) {
-                // Extend line from B
-                double dx = B.getX() - A.getX();
-                double dy = B.getY() - A.getY();
-                
-                // Extend by same length
-                double endX = B.getX() + dx;
-                double endY = B.getY() + dy;
+                // Extend line from B by the same length (point at t = 2 on AB)
+                GeomKernel.pointAt(A.getX(), A.getY(), B.getX(), B.getY(), 2.0, end, 0);
                 
                 Shape currentShape = getShape();
                 if (currentShape != null) {
-                    Path2D path = new Path2D.Double(currentShape);
+                    Path2D path = buffers.nextPath();
+                    path.append(currentShape, false);
                     // Draw extension as dashed line? For now just solid.
-                    path.append(new Line2D.Double(B.getX(), B.getY(), endX, endY), false);
+                    path.moveTo(B.getX(), B.getY());
+                    path.lineTo(end[0], end[1]);
                     setShape(path, mouseEvent);
                 }
             }
         }
+        buffers.remember(points);
     }
-    
+
     @Override
     public String getUIName() {
         return "Continue Line";
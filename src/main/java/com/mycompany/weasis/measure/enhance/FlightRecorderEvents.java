@@ -0,0 +1,103 @@
+package com.mycompany.weasis.measure.enhance;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import com.mycompany.weasis.measure.enhance.PluginMetrics.Probe;
+
+/**
+ * Flight Recorder events of the plugin. Only loaded by {@link PluginMetrics} once it has checked
+ * that jdk.jfr is visible to the bundle.
+ */
+final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    @Name("com.mycompany.weasis.measure.enhance.SnapQuery")
+    @Label("Snap Query")
+    @Category({"Weasis", "Measure Enhance"})
+    @Description("Search of the snap target under the cursor")
+    static final class SnapQueryEvent extends Event {
+        @Label("Result")
+        String result;
+    }
+
+    @Name("com.mycompany.weasis.measure.enhance.ConstructionAction")
+    @Label("Construction Action")
+    @Category({"Weasis", "Measure Enhance"})
+    @Description("Toolbar action of the plugin, on the EDT")
+    static final class ConstructionActionEvent extends Event {
+        @Label("Action")
+        String action;
+    }
+
+    @Name("com.mycompany.weasis.measure.enhance.BuildShape")
+    @Label("Build Shape")
+    @Category({"Weasis", "Measure Enhance"})
+    @Description("Shape rebuild of a plugin tool while it is drawn or edited")
+    static final class BuildShapeEvent extends Event {
+        @Label("Graphic")
+        String graphic;
+    }
+
+    @Name("com.mycompany.weasis.measure.enhance.ViewerMonitor")
+    @Label("Viewer Monitor Cycle")
+    @Category({"Weasis", "Measure Enhance"})
+    @Description("Installation of the tools and buttons in the viewers that became showing")
+    static final class ViewerMonitorEvent extends Event {
+        @Label("Trigger")
+        String trigger;
+    }
+
+    private static final EventType SNAP_QUERY = EventType.getEventType(SnapQueryEvent.class);
+    private static final EventType CONSTRUCTION_ACTION = EventType.getEventType(ConstructionActionEvent.class);
+    private static final EventType BUILD_SHAPE = EventType.getEventType(BuildShapeEvent.class);
+    private static final EventType VIEWER_MONITOR = EventType.getEventType(ViewerMonitorEvent.class);
+
+    /**
+     * @return the started event, or null when no recording enables it
+     */
+    static Object begin(Probe probe) {
+        // The event types follow the running recordings: nothing is allocated when disabled
+        EventType type = switch (probe.kind) {
+            case SNAP -> SNAP_QUERY;
+            case ACTION -> CONSTRUCTION_ACTION;
+            case SHAPE -> BUILD_SHAPE;
+            case MONITOR -> VIEWER_MONITOR;
+        };
+        if (!type.isEnabled()) {
+            return null;
+        }
+        Event event = switch (probe.kind) {
+            case SNAP -> new SnapQueryEvent();
+            case ACTION -> new ConstructionActionEvent();
+            case SHAPE -> new BuildShapeEvent();
+            case MONITOR -> new ViewerMonitorEvent();
+        };
+        event.begin();
+        return event;
+    }
+
+    static void commit(Object started, Probe probe, String detail) {
+        Event event = (Event) started;
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        if (event instanceof SnapQueryEvent e) {
+            e.result = detail;
+        } else if (event instanceof ConstructionActionEvent e) {
+            e.action = probe.getKey();
+        } else if (event instanceof BuildShapeEvent e) {
+            e.graphic = probe.getKey();
+        } else if (event instanceof ViewerMonitorEvent e) {
+            e.trigger = detail;
+        }
+        event.commit();
+    }
+}
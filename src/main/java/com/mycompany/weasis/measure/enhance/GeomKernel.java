@@ -0,0 +1,241 @@
+package com.mycompany.weasis.measure.enhance;
+
+/**
+ * Geometry primitives shared by the construction actions and tool graphics.
+ *
+ * All methods work on primitive doubles and write their results into a caller supplied
+ * double array at a given offset, so they allocate nothing and are small enough to be
+ * inlined by the JIT. Points are passed as (x, y) pairs and segments as (x1, y1, x2, y2).
+ */
+public final class GeomKernel {
+
+    /** Lines shorter than this (in image pixels) are considered degenerate. */
+    public static final double MIN_LENGTH = 0.001;
+
+    private static final double MIN_LENGTH_SQ = 1e-10;
+
+    private GeomKernel() {
+    }
+
+    public static double length(double dx, double dy) {
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public static double dot(double dx1, double dy1, double dx2, double dy2) {
+        return dx1 * dx2 + dy1 * dy2;
+    }
+
+    public static double cross(double dx1, double dy1, double dx2, double dy2) {
+        return dx1 * dy2 - dy1 * dx2;
+    }
+
+    /**
+     * Point A + t * (B - A) on the line AB.
+     *
+     * @param out Receives x at out[off] and y at out[off + 1]
+     */
+    public static void pointAt(double ax, double ay, double bx, double by, double t, double[] out, int off) {
+        out[off] = ax + t * (bx - ax);
+        out[off + 1] = ay + t * (by - ay);
+    }
+
+    /**
+     * Foot of the perpendicular from P to the infinite line AB (closest point of the line to P).
+     * When AB is degenerate, the foot is A.
+     *
+     * @param out Receives x at out[off] and y at out[off + 1]
+     * @return The parameter t of the foot, F = A + t * (B - A)
+     */
+    public static double foot(double ax, double ay, double bx, double by, double px, double py, double[] out,
+        int off) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lenSq = dx * dx + dy * dy;
+        if (lenSq < MIN_LENGTH_SQ) {
+            out[off] = ax;
+            out[off + 1] = ay;
+            return 0.0;
+        }
+        // t = dot(AP, AB) / |AB|^2, not clamped so that the foot can be on the extended line
+        double t = ((px - ax) * dx + (py - ay) * dy) / lenSq;
+        out[off] = ax + t * dx;
+        out[off + 1] = ay + t * dy;
+        return t;
+    }
+
+    /**
+     * Signed distance from P to the infinite line AB, positive on the side of the left
+     * normal (-dy, dx) of AB.
+     *
+     * @return The distance, or NaN if AB is degenerate
+     */
+    public static double signedDistance(double ax, double ay, double bx, double by, double px, double py) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len = length(dx, dy);
+        if (len < MIN_LENGTH) {
+            return Double.NaN;
+        }
+        return cross(dx, dy, px - ax, py - ay) / len;
+    }
+
+    /**
+     * Segment of the given length centered on C and perpendicular to the direction (dx, dy).
+     *
+     * @param out Receives x1, y1, x2, y2 from out[off]
+     * @return false if the direction is degenerate (out is left unchanged)
+     */
+    public static boolean perpendicularSegment(double cx, double cy, double dx, double dy, double length,
+        double[] out, int off) {
+        double dirLength = length(dx, dy);
+        if (dirLength < MIN_LENGTH) {
+            return false;
+        }
+        double scale = length / (2.0 * dirLength);
+        double perpDx = -dy * scale;
+        double perpDy = dx * scale;
+        out[off] = cx - perpDx;
+        out[off + 1] = cy - perpDy;
+        out[off + 2] = cx + perpDx;
+        out[off + 3] = cy + perpDy;
+        return true;
+    }
+
+    /**
+     * Segment AB translated by a distance along its left normal (-dy, dx).
+     *
+     * @param out Receives x1, y1, x2, y2 from out[off]
+     * @return false if AB is degenerate (out is left unchanged)
+     */
+    public static boolean offsetSegment(double ax, double ay, double bx, double by, double distance, double[] out,
+        int off) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len = length(dx, dy);
+        if (len < MIN_LENGTH) {
+            return false;
+        }
+        double offX = -dy / len * distance;
+        double offY = dx / len * distance;
+        out[off] = ax + offX;
+        out[off + 1] = ay + offY;
+        out[off + 2] = bx + offX;
+        out[off + 3] = by + offY;
+        return true;
+    }
+
+    /**
+     * Intersection of the infinite lines AB and CD.
+     *
+     * @param out Receives x at out[off] and y at out[off + 1]
+     * @return false if the lines are parallel or degenerate (out is left unchanged)
+     */
+    public static boolean intersectLines(double ax, double ay, double bx, double by, double cx, double cy,
+        double dx, double dy, double[] out, int off) {
+        double d1x = bx - ax;
+        double d1y = by - ay;
+        double d2x = dx - cx;
+        double d2y = dy - cy;
+        double denom = cross(d1x, d1y, d2x, d2y);
+        if (Math.abs(denom) < MIN_LENGTH_SQ) {
+            return false;
+        }
+        double t = cross(cx - ax, cy - ay, d2x, d2y) / denom;
+        out[off] = ax + t * d1x;
+        out[off + 1] = ay + t * d1y;
+        return true;
+    }
+
+    /**
+     * Intersection of the segments AB and CD, ends included.
+     *
+     * @param out Receives x at out[off] and y at out[off + 1]
+     * @return false if the segments do not cross or are parallel (out is left unchanged)
+     */
+    public static boolean intersectSegments(double ax, double ay, double bx, double by, double cx, double cy,
+        double dx, double dy, double[] out, int off) {
+        double d1x = bx - ax;
+        double d1y = by - ay;
+        double d2x = dx - cx;
+        double d2y = dy - cy;
+        double denom = cross(d1x, d1y, d2x, d2y);
+        if (Math.abs(denom) < MIN_LENGTH_SQ) {
+            return false;
+        }
+        double t = cross(cx - ax, cy - ay, d2x, d2y) / denom;
+        double u = cross(cx - ax, cy - ay, d1x, d1y) / denom;
+        if (t < 0.0 || t > 1.0 || u < 0.0 || u > 1.0) {
+            return false;
+        }
+        out[off] = ax + t * d1x;
+        out[off + 1] = ay + t * d1y;
+        return true;
+    }
+
+    /**
+     * Point of contact of a tangent from P to the circle of center C and radius r.
+     *
+     * @param side 1 or -1, selects one of the two tangents
+     * @param out Receives x at out[off] and y at out[off + 1]
+     * @return false if P is inside the circle (out is left unchanged)
+     */
+    public static boolean tangentPoint(double px, double py, double cx, double cy, double r, int side,
+        double[] out, int off) {
+        double ux = px - cx;
+        double uy = py - cy;
+        double d = length(ux, uy);
+        if (d <= r || d < MIN_LENGTH) {
+            return false;
+        }
+        // The radius to the contact point makes an angle acos(r / d) with CP
+        double cos = r / d;
+        double sin = side * Math.sqrt(1.0 - cos * cos);
+        ux /= d;
+        uy /= d;
+        out[off] = cx + r * (ux * cos - uy * sin);
+        out[off + 1] = cy + r * (ux * sin + uy * cos);
+        return true;
+    }
+
+    /**
+     * Angle between two direction vectors.
+     *
+     * @return The angle in degrees in [0, 180], or NaN if one vector has no length
+     */
+    public static double angleBetween(double dx1, double dy1, double dx2, double dy2) {
+        double len1 = length(dx1, dy1);
+        double len2 = length(dx2, dy2);
+        if (len1 > 0 && len2 > 0) {
+            double cosAngle = dot(dx1, dy1, dx2, dy2) / (len1 * len2);
+            // Clamp to [-1, 1] to avoid NaN from acos
+            cosAngle = Math.max(-1.0, Math.min(1.0, cosAngle));
+            return Math.toDegrees(Math.acos(cosAngle));
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Circle through three points.
+     *
+     * @param out Receives the center x at out[off] and y at out[off + 1]
+     * @return The radius, or NaN if the points are collinear (out is left unchanged)
+     */
+    public static double circumcircle(double x1, double y1, double x2, double y2, double x3, double y3,
+        double[] out, int off) {
+        double bx = x2 - x1;
+        double by = y2 - y1;
+        double cx = x3 - x1;
+        double cy = y3 - y1;
+        double d = 2.0 * cross(bx, by, cx, cy);
+        if (Math.abs(d) < MIN_LENGTH_SQ) {
+            return Double.NaN;
+        }
+        double b2 = bx * bx + by * by;
+        double c2 = cx * cx + cy * cy;
+        double ux = (cy * b2 - by * c2) / d;
+        double uy = (bx * c2 - cx * b2) / d;
+        out[off] = x1 + ux;
+        out[off + 1] = y1 + uy;
+        return length(ux, uy);
+    }
+}
@@ -0,0 +1,258 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.area.PolygonGraphic;
+import org.weasis.core.ui.model.graphic.imp.area.ThreePointsCircleGraphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.graphic.imp.line.PolylineGraphic;
+
+/**
+ * Uniform grid of the segments and circles of the graphics of one GraphicModel, in image space.
+ *
+ * A segment is registered in every cell it crosses and a circle in the cells of its outline and
+ * of its center, so a query only visits the cells around the cursor. Kept up to date by
+ * {@link GraphicGridIndex}. Must only be used from the EDT.
+ */
+class GeometrySpatialIndex extends GraphicGridIndex<GeometrySpatialIndex.Entry> {
+
+    // Primitives covering more cells are kept in a list visited by every query
+    private static final int MAX_CELLS = 1024;
+
+    private final List<Entry> large = new ArrayList<>();
+    private int queryStamp = 0;
+
+    static final class Entry {
+        final SnapPrimitive primitive;
+        long[] cellKeys;
+        int stamp;
+
+        Entry(SnapPrimitive primitive) {
+            this.primitive = primitive;
+        }
+    }
+
+    GeometrySpatialIndex(GraphicModel model) {
+        super(model);
+    }
+
+    /**
+     * Add to the list the primitives registered in the cells within the radius of (x, y), each
+     * once, until the list holds the given maximum. The cells are visited in rings around the
+     * cell of (x, y), so that the maximum drops the farthest primitives rather than the ones of
+     * the last rows of the search window.
+     */
+    void collect(double x, double y, double radius, Graphic excludeGraphic, int max, List<SnapPrimitive> out) {
+        ensureConsistent();
+        int stamp = ++queryStamp;
+        int centerX = cellOf(x);
+        int centerY = cellOf(y);
+        int minCx = cellOf(x - radius);
+        int maxCx = cellOf(x + radius);
+        int minCy = cellOf(y - radius);
+        int maxCy = cellOf(y + radius);
+        int rings = Math.max(Math.max(centerX - minCx, maxCx - centerX), Math.max(centerY - minCy, maxCy - centerY));
+        for (int r = 0; r <= rings; r++) {
+            for (int cx = Math.max(minCx, centerX - r), lastCx = Math.min(maxCx, centerX + r); cx <= lastCx; cx++) {
+                boolean edgeColumn = cx == centerX - r || cx == centerX + r;
+                // Inside columns only have their top and bottom cells on the ring
+                int step = edgeColumn ? 1 : Math.max(1, 2 * r);
+                for (int cy = centerY - r; cy <= centerY + r; cy += step) {
+                    if (cy >= minCy && cy <= maxCy && collectCell(cx, cy, stamp, excludeGraphic, max, out)) {
+                        return;
+                    }
+                }
+            }
+        }
+        for (int i = 0, n = large.size(); i < n && out.size() < max; i++) {
+            accept(large.get(i), stamp, excludeGraphic, out);
+        }
+    }
+
+    /**
+     * @return true once the list holds the maximum
+     */
+    private boolean collectCell(int cx, int cy, int stamp, Graphic excludeGraphic, int max, List<SnapPrimitive> out) {
+        List<Entry> cell = getCell(cx, cy);
+        if (cell != null) {
+            for (int i = 0, n = cell.size(); i < n; i++) {
+                accept(cell.get(i), stamp, excludeGraphic, out);
+                if (out.size() >= max) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void accept(Entry entry, int stamp, Graphic excludeGraphic, List<SnapPrimitive> out) {
+        if (entry.stamp != stamp && entry.primitive.owner() != excludeGraphic) {
+            entry.stamp = stamp;
+            out.add(entry.primitive);
+        }
+    }
+
+    @Override
+    Entry[] addEntries(Graphic graphic) {
+        List<SnapPrimitive> primitives = new ArrayList<>(2);
+        extract(graphic, primitives);
+        Entry[] entries = new Entry[primitives.size()];
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = new Entry(primitives.get(i));
+            entry.cellKeys = coveredCells(entry.primitive);
+            if (entry.cellKeys == null) {
+                large.add(entry);
+            } else {
+                for (long cellKey : entry.cellKeys) {
+                    addToCell(cellKey, entry);
+                }
+            }
+            entries[i] = entry;
+        }
+        return entries;
+    }
+
+    @Override
+    void removeEntries(Entry[] entries) {
+        for (Entry entry : entries) {
+            if (entry.cellKeys == null) {
+                large.remove(entry);
+                continue;
+            }
+            for (long cellKey : entry.cellKeys) {
+                removeFromCell(cellKey, entry);
+            }
+        }
+    }
+
+    @Override
+    void clearEntries() {
+        large.clear();
+    }
+
+    /**
+     * Segments and circles of the graphic types the plugin knows; other graphics only have
+     * their handles.
+     */
+    static void extract(Graphic graphic, List<SnapPrimitive> out) {
+        if (graphic instanceof CircleFitToolGraphic fitGraphic) {
+            double[] circle = new double[3];
+            if (fitGraphic.getFitCircle(circle)) {
+                out.add(SnapPrimitive.circle(graphic, circle[0], circle[1], circle[2]));
+            }
+        } else if (graphic instanceof ThreePointsCircleGraphic) {
+            List<Point2D> pts = graphic.getPts();
+            if (pts.size() >= 3 && pts.get(0) != null && pts.get(1) != null && pts.get(2) != null) {
+                double[] center = new double[2];
+                double r = GeomKernel.circumcircle(pts.get(0).getX(), pts.get(0).getY(), pts.get(1).getX(),
+                    pts.get(1).getY(), pts.get(2).getX(), pts.get(2).getY(), center, 0);
+                if (!Double.isNaN(r)) {
+                    out.add(SnapPrimitive.circle(graphic, center[0], center[1], r));
+                }
+            }
+        } else if (graphic instanceof LineGraphic || graphic instanceof PolylineGraphic
+            || graphic instanceof PolygonGraphic) {
+            List<Point2D> pts = graphic.getPts();
+            Point2D previous = null;
+            for (Point2D p : pts) {
+                if (p != null && previous != null) {
+                    out.add(SnapPrimitive.segment(graphic, previous.getX(), previous.getY(), p.getX(), p.getY()));
+                }
+                previous = p;
+            }
+            if (graphic instanceof PolygonGraphic && pts.size() > 2 && previous != null && pts.get(0) != null) {
+                out.add(SnapPrimitive.segment(graphic, previous.getX(), previous.getY(), pts.get(0).getX(),
+                    pts.get(0).getY()));
+            }
+        }
+    }
+
+    /**
+     * @return the keys of the cells covered by the primitive, or null if there are too many
+     */
+    private static long[] coveredCells(SnapPrimitive primitive) {
+        return primitive.circle() ? circleCells(primitive) : segmentCells(primitive);
+    }
+
+    /**
+     * Cells crossed by the segment, walked one cell boundary at a time.
+     */
+    private static long[] segmentCells(SnapPrimitive s) {
+        int cx = cellOf(s.x1());
+        int cy = cellOf(s.y1());
+        int ex = cellOf(s.x2());
+        int ey = cellOf(s.y2());
+        int count = Math.abs(ex - cx) + Math.abs(ey - cy) + 1;
+        if (count > MAX_CELLS) {
+            return null;
+        }
+        double dx = s.x2() - s.x1();
+        double dy = s.y2() - s.y1();
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double tDeltaX = dx == 0 ? Double.POSITIVE_INFINITY : CELL_SIZE / Math.abs(dx);
+        double tDeltaY = dy == 0 ? Double.POSITIVE_INFINITY : CELL_SIZE / Math.abs(dy);
+        double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY : ((cx + (stepX > 0 ? 1 : 0)) * CELL_SIZE - s.x1()) / dx;
+        double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY : ((cy + (stepY > 0 ? 1 : 0)) * CELL_SIZE - s.y1()) / dy;
+
+        long[] keys = new long[count];
+        keys[0] = key(cx, cy);
+        for (int i = 1; i < count; i++) {
+            if (tMaxX < tMaxY) {
+                tMaxX += tDeltaX;
+                cx += stepX;
+            } else {
+                tMaxY += tDeltaY;
+                cy += stepY;
+            }
+            keys[i] = key(cx, cy);
+        }
+        return keys;
+    }
+
+    /**
+     * Cells crossed by the outline of the circle, plus the cell of its center.
+     */
+    private static long[] circleCells(SnapPrimitive c) {
+        int minCx = cellOf(c.x1() - c.radius());
+        int maxCx = cellOf(c.x1() + c.radius());
+        int minCy = cellOf(c.y1() - c.radius());
+        int maxCy = cellOf(c.y1() + c.radius());
+        if ((long) (maxCx - minCx + 1) * (maxCy - minCy + 1) > (long) MAX_CELLS * 8) {
+            return null;
+        }
+        long centerKey = key(cellOf(c.x1()), cellOf(c.y1()));
+        List<Long> keys = new ArrayList<>();
+        keys.add(centerKey);
+        double rSq = c.radius() * c.radius();
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            double left = cx * CELL_SIZE;
+            double right = left + CELL_SIZE;
+            for (int cy = minCy; cy <= maxCy; cy++) {
+                double top = cy * CELL_SIZE;
+                double bottom = top + CELL_SIZE;
+                // The outline crosses the cell if the nearest corner is inside and the farthest outside
+                double nx = Math.max(left, Math.min(c.x1(), right)) - c.x1();
+                double ny = Math.max(top, Math.min(c.y1(), bottom)) - c.y1();
+                double fx = Math.max(Math.abs(left - c.x1()), Math.abs(right - c.x1()));
+                double fy = Math.max(Math.abs(top - c.y1()), Math.abs(bottom - c.y1()));
+                long key = key(cx, cy);
+                if (nx * nx + ny * ny <= rSq && fx * fx + fy * fy >= rSq && key != centerKey) {
+                    keys.add(key);
+                }
+            }
+        }
+        if (keys.size() > MAX_CELLS) {
+            return null;
+        }
+        long[] result = new long[keys.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = keys.get(i);
+        }
+        return result;
+    }
+}
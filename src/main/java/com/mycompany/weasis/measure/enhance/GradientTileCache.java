@@ -0,0 +1,216 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.opencv.data.PlanarImage;
+
+/**
+ * Gradient magnitude of the image pixel data, computed lazily by 64x64 tiles (Sobel operator
+ * on the raw values) and kept in a least recently used cache under a memory budget.
+ *
+ * Placing a point only reads the tiles under the search window, so after the first pass over
+ * a region the edge search costs a few hundred float comparisons per mouse event. Only used
+ * from the EDT.
+ */
+public final class GradientTileCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GradientTileCache.class);
+
+    public static final int TILE_SIZE = 64;
+    private static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+    private static final long TILE_BYTES = (long) TILE_SIZE * TILE_SIZE * Float.BYTES;
+
+    // An edge must be clearly stronger than its neighborhood to attract the cursor
+    private static final double MIN_CONTRAST = 2.0;
+
+    private static final Map<ImageElement, ImageTiles> IMAGES = new WeakHashMap<>();
+    private static final LinkedHashMap<TileRef, float[]> LRU = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TileRef, float[]> eldest) {
+            if (size() * TILE_BYTES > budgetBytes) {
+                eldest.getKey().owner.tiles.remove(eldest.getKey().key);
+                return true;
+            }
+            return false;
+        }
+    };
+    private static long budgetBytes = DEFAULT_BUDGET_BYTES;
+
+    /**
+     * Tiles of one image. Does not reference the image, which is the weak key of IMAGES.
+     */
+    private static final class ImageTiles {
+        final Map<Long, float[]> tiles = new HashMap<>();
+    }
+
+    private record TileRef(ImageTiles owner, long key) {
+    }
+
+    private GradientTileCache() {
+    }
+
+    public static void setBudgetBytes(long bytes) {
+        budgetBytes = Math.max(TILE_BYTES, bytes);
+    }
+
+    public static long getUsedBytes() {
+        return LRU.size() * TILE_BYTES;
+    }
+
+    public static void clear() {
+        LRU.clear();
+        IMAGES.clear();
+    }
+
+    /**
+     * Find the strongest edge within a radius of (x, y), in image space.
+     *
+     * @return the pixel center of the strongest gradient, or null if there is no distinct edge
+     */
+    public static Point2D findEdge(ImageElement image, double x, double y, double radius) {
+        if (image == null) {
+            return null;
+        }
+        PlanarImage planar = image.getImage();
+        if (planar == null) {
+            return null;
+        }
+        int width = planar.width();
+        int height = planar.height();
+        int minX = Math.max(0, (int) Math.floor(x - radius));
+        int maxX = Math.min(width - 1, (int) Math.ceil(x + radius));
+        int minY = Math.max(0, (int) Math.floor(y - radius));
+        int maxY = Math.min(height - 1, (int) Math.ceil(y + radius));
+        if (minX > maxX || minY > maxY) {
+            return null;
+        }
+
+        ImageTiles imageTiles = IMAGES.computeIfAbsent(image, k -> new ImageTiles());
+        double radiusSq = radius * radius;
+        float best = 0f;
+        int bestX = -1;
+        int bestY = -1;
+        double sum = 0.0;
+        int count = 0;
+        for (int ty = minY / TILE_SIZE; ty <= maxY / TILE_SIZE; ty++) {
+            for (int tx = minX / TILE_SIZE; tx <= maxX / TILE_SIZE; tx++) {
+                float[] tile = getTile(imageTiles, planar, tx, ty);
+                if (tile == null) {
+                    return null;
+                }
+                int x0 = Math.max(minX, tx * TILE_SIZE);
+                int x1 = Math.min(maxX, tx * TILE_SIZE + TILE_SIZE - 1);
+                int y0 = Math.max(minY, ty * TILE_SIZE);
+                int y1 = Math.min(maxY, ty * TILE_SIZE + TILE_SIZE - 1);
+                for (int py = y0; py <= y1; py++) {
+                    double dy = py + 0.5 - y;
+                    int row = (py - ty * TILE_SIZE) * TILE_SIZE - tx * TILE_SIZE;
+                    for (int px = x0; px <= x1; px++) {
+                        double dx = px + 0.5 - x;
+                        if (dx * dx + dy * dy > radiusSq) {
+                            continue;
+                        }
+                        float magnitude = tile[row + px];
+                        sum += magnitude;
+                        count++;
+                        if (magnitude > best) {
+                            best = magnitude;
+                            bestX = px;
+                            bestY = py;
+                        }
+                    }
+                }
+            }
+        }
+        if (bestX < 0 || best < MIN_CONTRAST * sum / count) {
+            return null;
+        }
+        return new Point2D.Double(bestX + 0.5, bestY + 0.5);
+    }
+
+    private static float[] getTile(ImageTiles imageTiles, PlanarImage planar, int tx, int ty) {
+        long key = ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+        float[] tile = imageTiles.tiles.get(key);
+        if (tile != null) {
+            LRU.get(new TileRef(imageTiles, key));
+            return tile;
+        }
+        try {
+            tile = computeTile(planar, tx, ty);
+        } catch (Exception e) {
+            LOGGER.debug("Cannot compute gradient tile: {}", e.getMessage());
+            return null;
+        }
+        imageTiles.tiles.put(key, tile);
+        LRU.put(new TileRef(imageTiles, key), tile);
+        return tile;
+    }
+
+    /**
+     * Sobel gradient magnitude of one tile, from the tile pixels and a one pixel border.
+     */
+    private static float[] computeTile(PlanarImage planar, int tx, int ty) {
+        int width = planar.width();
+        int height = planar.height();
+        int tileX = tx * TILE_SIZE;
+        int tileY = ty * TILE_SIZE;
+        int x0 = Math.max(0, tileX - 1);
+        int y0 = Math.max(0, tileY - 1);
+        int x1 = Math.min(width, tileX + TILE_SIZE + 1);
+        int y1 = Math.min(height, tileY + TILE_SIZE + 1);
+        int w = x1 - x0;
+        int h = y1 - y0;
+        int channels = planar.channels();
+
+        float[] raw = new float[w * h * channels];
+        Mat region = planar.toMat().submat(new Rect(x0, y0, w, h));
+        Mat values = new Mat();
+        try {
+            region.convertTo(values, CvType.CV_32FC(channels));
+            values.get(0, 0, raw);
+        } finally {
+            values.release();
+            region.release();
+        }
+        float[] gray = raw;
+        if (channels > 1) {
+            gray = new float[w * h];
+            for (int i = 0; i < gray.length; i++) {
+                float s = 0f;
+                for (int c = 0; c < channels; c++) {
+                    s += raw[i * channels + c];
+                }
+                gray[i] = s / channels;
+            }
+        }
+
+        float[] tile = new float[TILE_SIZE * TILE_SIZE];
+        int maxX = Math.min(width, tileX + TILE_SIZE);
+        int maxY = Math.min(height, tileY + TILE_SIZE);
+        for (int py = tileY; py < maxY; py++) {
+            int ym = Math.max(py - 1, y0) - y0;
+            int yc = py - y0;
+            int yp = Math.min(py + 1, y1 - 1) - y0;
+            for (int px = tileX; px < maxX; px++) {
+                int xm = Math.max(px - 1, x0) - x0;
+                int xc = px - x0;
+                int xp = Math.min(px + 1, x1 - 1) - x0;
+                float gx = (gray[ym * w + xp] + 2f * gray[yc * w + xp] + gray[yp * w + xp])
+                    - (gray[ym * w + xm] + 2f * gray[yc * w + xm] + gray[yp * w + xm]);
+                float gy = (gray[yp * w + xm] + 2f * gray[yp * w + xc] + gray[yp * w + xp])
+                    - (gray[ym * w + xm] + 2f * gray[ym * w + xc] + gray[ym * w + xp]);
+                tile[(py - tileY) * TILE_SIZE + (px - tileX)] = (float) Math.sqrt(gx * gx + gy * gy);
+            }
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,178 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+
+/**
+ * Uniform grid in image space of entries computed from the graphics of one GraphicModel, the
+ * common part of {@link HandleSpatialIndex} and {@link GeometrySpatialIndex}.
+ *
+ * The index registers itself as a graphic change handler of the model, so every graphic
+ * reports "bounds" and "remove" events to it and only the graphic that changed is re-indexed.
+ * It is built lazily on the first query; afterwards the graphics added or removed without an
+ * event are found by {@link #ensureConsistent()}. Must only be used from the EDT, like the
+ * graphic model itself.
+ *
+ * @param <E> Entry of one graphic, registered in one or more cells
+ */
+abstract class GraphicGridIndex<E> implements PropertyChangeListener {
+
+    static final double CELL_SIZE = 64.0; // Image pixels
+
+    // Weak so that the per-model cache in SnappingUtil does not keep the model alive
+    private final WeakReference<GraphicModel> modelRef;
+    private final Map<Long, List<E>> cells = new HashMap<>();
+    private final Map<Graphic, E[]> entriesByGraphic = new IdentityHashMap<>();
+    private boolean built = false;
+
+    GraphicGridIndex(GraphicModel model) {
+        this.modelRef = new WeakReference<>(model);
+        model.addGraphicChangeHandler(this);
+    }
+
+    /**
+     * Compute the entries of a graphic and register them in their cells.
+     */
+    abstract E[] addEntries(Graphic graphic);
+
+    /**
+     * Unregister the entries of a graphic from their cells.
+     */
+    abstract void removeEntries(E[] entries);
+
+    /**
+     * Forget the entries kept outside of the cells, if any.
+     */
+    void clearEntries() {
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        if (!built || !(evt.getSource() instanceof Graphic graphic)) {
+            return;
+        }
+        String name = evt.getPropertyName();
+        if ("bounds".equals(name)) {
+            remove(graphic);
+            insert(graphic);
+        } else if ("remove".equals(name) || "remove.repaint".equals(name)) {
+            remove(graphic);
+        }
+    }
+
+    /**
+     * Detach the index from its model.
+     */
+    void dispose() {
+        GraphicModel model = modelRef.get();
+        if (model != null) {
+            model.removeGraphicChangeHandler(this);
+        }
+        clear();
+    }
+
+    /**
+     * Build on first use. Afterwards only the graphics added or removed without going through
+     * the change handler are indexed or dropped, never the whole model again.
+     *
+     * The model appends the new graphics, so the index is up to date when it has as many
+     * graphics as the model and holds its last one. Otherwise the missing graphics at the end of
+     * the list are indexed, and only when the counts still differ (graphics removed without a
+     * "remove" event, e.g. a whole layer deleted at once, possibly replaced by as many new ones)
+     * the graphics no longer in the model are dropped.
+     */
+    final void ensureConsistent() {
+        GraphicModel model = modelRef.get();
+        if (model == null) {
+            clear();
+            return;
+        }
+        List<Graphic> graphics = model.getModels();
+        int size = graphics.size();
+        if (!built) {
+            for (Graphic graphic : graphics) {
+                insert(graphic);
+            }
+            built = true;
+            return;
+        }
+        if (entriesByGraphic.size() == size && (size == 0 || entriesByGraphic.containsKey(graphics.get(size - 1)))) {
+            return;
+        }
+        for (int i = size - 1; i >= 0 && !entriesByGraphic.containsKey(graphics.get(i)); i--) {
+            insert(graphics.get(i));
+        }
+        if (entriesByGraphic.size() != size) {
+            Set<Graphic> present = Collections.newSetFromMap(new IdentityHashMap<>(size * 2));
+            present.addAll(graphics);
+            for (Graphic graphic : List.copyOf(entriesByGraphic.keySet())) {
+                if (!present.contains(graphic)) {
+                    remove(graphic);
+                }
+            }
+            for (Graphic graphic : graphics) {
+                if (!entriesByGraphic.containsKey(graphic)) {
+                    insert(graphic);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the entries registered in the cell, or null if it is empty
+     */
+    final List<E> getCell(int cx, int cy) {
+        return cells.get(key(cx, cy));
+    }
+
+    final void addToCell(long cellKey, E entry) {
+        cells.computeIfAbsent(cellKey, k -> new ArrayList<>(4)).add(entry);
+    }
+
+    final void removeFromCell(long cellKey, E entry) {
+        List<E> cell = cells.get(cellKey);
+        if (cell != null) {
+            cell.remove(entry);
+            if (cell.isEmpty()) {
+                cells.remove(cellKey);
+            }
+        }
+    }
+
+    private void insert(Graphic graphic) {
+        entriesByGraphic.put(graphic, addEntries(graphic));
+    }
+
+    private void remove(Graphic graphic) {
+        E[] entries = entriesByGraphic.remove(graphic);
+        if (entries != null) {
+            removeEntries(entries);
+        }
+    }
+
+    private void clear() {
+        cells.clear();
+        entriesByGraphic.clear();
+        clearEntries();
+        built = false;
+    }
+
+    static int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
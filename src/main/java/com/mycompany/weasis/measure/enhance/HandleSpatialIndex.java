@@ -0,0 +1,104 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.AbstractGraphic;
+import org.weasis.core.ui.model.graphic.Graphic;
+
+/**
+ * Uniform grid of graphic handle points in image space for one GraphicModel.
+ *
+ * A snap query only visits the few cells around the cursor instead of every handle of every
+ * graphic. Kept up to date by {@link GraphicGridIndex}. Must only be used from the EDT.
+ */
+class HandleSpatialIndex extends GraphicGridIndex<HandleSpatialIndex.Entry> {
+
+    static final class Entry {
+        final Graphic owner;
+        final Point2D point;
+        long cellKey;
+
+        Entry(Graphic owner, Point2D point) {
+            this.owner = owner;
+            this.point = point;
+        }
+    }
+
+    HandleSpatialIndex(GraphicModel model) {
+        super(model);
+    }
+
+    /**
+     * Find the handle closest to (x, y) within the given radius, all in image space.
+     *
+     * @return the live handle point of the graphic, or null if none is close enough
+     */
+    Point2D findNearest(double x, double y, double radius, Graphic excludeGraphic) {
+        ensureConsistent();
+
+        int minCx = cellOf(x - radius);
+        int maxCx = cellOf(x + radius);
+        int minCy = cellOf(y - radius);
+        int maxCy = cellOf(y + radius);
+
+        Point2D bestMatch = null;
+        double minDistSq = radius * radius;
+
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cy = minCy; cy <= maxCy; cy++) {
+                List<Entry> cell = getCell(cx, cy);
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0, n = cell.size(); i < n; i++) {
+                    Entry entry = cell.get(i);
+                    if (entry.owner == excludeGraphic) {
+                        continue;
+                    }
+                    double dx = entry.point.getX() - x;
+                    double dy = entry.point.getY() - y;
+                    double distSq = dx * dx + dy * dy;
+                    if (distSq < minDistSq) {
+                        minDistSq = distSq;
+                        bestMatch = entry.point;
+                    }
+                }
+            }
+        }
+        return bestMatch;
+    }
+
+    @Override
+    Entry[] addEntries(Graphic graphic) {
+        List<Point2D> handles = null;
+        if (graphic instanceof AbstractGraphic abstractGraphic) {
+            handles = abstractGraphic.getHandlePointList();
+        }
+        if (handles == null || handles.isEmpty()) {
+            return new Entry[0];
+        }
+
+        Entry[] entries = new Entry[handles.size()];
+        int count = 0;
+        for (Point2D handle : handles) {
+            if (handle == null) {
+                continue;
+            }
+            Entry entry = new Entry(graphic, handle);
+            entry.cellKey = key(cellOf(handle.getX()), cellOf(handle.getY()));
+            addToCell(entry.cellKey, entry);
+            entries[count++] = entry;
+        }
+        return count == entries.length ? entries : Arrays.copyOf(entries, count);
+    }
+
+    @Override
+    void removeEntries(Entry[] entries) {
+        for (Entry entry : entries) {
+            removeFromCell(entry.cellKey, entry);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.weasis.core.api.image.measure.MeasurementsAdapter;
+import org.weasis.core.api.image.util.MeasurableLayer;
+import org.weasis.core.api.image.util.Unit;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.media.data.TagW;
+
+/**
+ * MeasurableLayer of an image that is not displayed, to compute the measurements of its graphics
+ * outside of a view.
+ *
+ * MeasurableLayer is implemented with a dynamic proxy: only the content, the calibration (in
+ * the pixel spacing unit of the image) and the tag values are answered, everything else returns
+ * null, false or zero, so measurements needing the rendered pixels are left out.
+ */
+final class ImageMeasurableLayer implements InvocationHandler {
+
+    private final ImageElement image;
+    private final MeasurementsAdapter adapter;
+
+    private ImageMeasurableLayer(ImageElement image) {
+        this.image = image;
+        Unit unit = image.getPixelSpacingUnit();
+        if (unit == null || unit == Unit.PIXEL) {
+            this.adapter = new MeasurementsAdapter(1.0, 0.0, 0.0, false, 0, Unit.PIXEL.getAbbreviation());
+        } else {
+            this.adapter = new MeasurementsAdapter(image.getPixelSize(), 0.0, 0.0, false, 0, unit.getAbbreviation());
+        }
+    }
+
+    static MeasurableLayer create(ImageElement image) {
+        return (MeasurableLayer) Proxy.newProxyInstance(
+            ImageMeasurableLayer.class.getClassLoader(),
+            new Class<?>[] {MeasurableLayer.class},
+            new ImageMeasurableLayer(image));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hasContent":
+                return Boolean.TRUE;
+            case "getMeasurementAdapter":
+                return adapter;
+            case "getSourceTagValue":
+                return args != null && args.length == 1 && args[0] instanceof TagW tag ? image.getTagValue(tag) : null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "ImageMeasurableLayer@" + Integer.toHexString(System.identityHashCode(proxy));
+            default:
+                return ProxyDefaults.defaultValue(method.getReturnType());
+        }
+    }
+}
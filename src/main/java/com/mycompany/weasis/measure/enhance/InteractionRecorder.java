@@ -0,0 +1,255 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Point2D;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.ActionW;
+import org.weasis.core.api.gui.util.ComboItemListener;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+
+/**
+ * Records the mouse and keyboard events of a view during a measurement session, with the
+ * drawing tool and the toolbar actions used, to replay them with the test kit against a
+ * synthetic study and measure the end-to-end latency of the EDT.
+ *
+ * Each view has its own recording, attached to the view component like the perpendicular
+ * distance mode. Recording copies a few numbers per event. Only used from the EDT.
+ */
+public final class InteractionRecorder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InteractionRecorder.class);
+
+    private static final String TITLE = "Record Interactions";
+    private static final String SESSION_KEY = "measure.enhance.interactionRecorder";
+
+    private InteractionRecorder() {
+    }
+
+    private static final class Session extends MouseAdapter implements KeyListener {
+        private final ViewCanvas<?> view;
+        private final JComponent component;
+        private final InteractionRecording recording = new InteractionRecording();
+        private Graphic lastTool;
+
+        Session(ViewCanvas<?> view) {
+            this.view = view;
+            this.component = view.getJComponent();
+            recording.setView(component.getWidth(), component.getHeight(), view.getAffineTransform());
+        }
+
+        void start() {
+            component.putClientProperty(SESSION_KEY, this);
+            component.addMouseListener(this);
+            component.addMouseMotionListener(this);
+            component.addKeyListener(this);
+        }
+
+        void stop() {
+            component.removeMouseListener(this);
+            component.removeMouseMotionListener(this);
+            component.removeKeyListener(this);
+            if (component.getClientProperty(SESSION_KEY) == this) {
+                component.putClientProperty(SESSION_KEY, null);
+            }
+        }
+
+        private void record(MouseEvent e) {
+            if (e.getID() == MouseEvent.MOUSE_PRESSED) {
+                recordTool(e.getWhen());
+            }
+            Point2D p = view.getImageCoordinatesFromMouse(e.getX(), e.getY());
+            recording.addInput(e.getWhen(), e.getID(), e.getX(), e.getY(), p.getX(), p.getY(), e.getModifiersEx(),
+                e.getButton(), e.getClickCount(), 0, KeyEvent.CHAR_UNDEFINED);
+        }
+
+        private void record(KeyEvent e) {
+            recording.addInput(e.getWhen(), e.getID(), 0, 0, 0.0, 0.0, e.getModifiersEx(), 0, 0, e.getKeyCode(),
+                e.getKeyChar());
+        }
+
+        /**
+         * Record the drawing tool when it changed since the last press.
+         */
+        private void recordTool(long when) {
+            Graphic tool = getSelectedTool(view);
+            if (tool != lastTool) {
+                lastTool = tool;
+                recording.addTool(when, tool == null ? "none" : tool.getClass().getName());
+            }
+        }
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void mouseMoved(MouseEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void keyPressed(KeyEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            record(e);
+        }
+
+        @Override
+        public void keyTyped(KeyEvent e) {
+            record(e);
+        }
+    }
+
+    /**
+     * @return the measurement tool of the view when the left mouse button draws, or null
+     */
+    private static Graphic getSelectedTool(ViewCanvas<?> view) {
+        try {
+            var eventManager = view.getEventManager();
+            if (eventManager == null
+                || !ActionW.MEASURE.cmd().equals(eventManager.getMouseActions().getLeft())) {
+                return null;
+            }
+            Optional<ComboItemListener<Graphic>> action = eventManager.getAction(ActionW.DRAW_MEASURE);
+            if (action.isPresent() && action.get().getSelectedItem() instanceof Graphic graphic) {
+                return graphic;
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Cannot read the measurement tool: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the listener is the recording of a view, which must stay on the view
+     */
+    static boolean isRecorderListener(Object listener) {
+        return listener instanceof Session;
+    }
+
+    public static boolean isRecording(ViewCanvas<?> view) {
+        return view != null && view.getJComponent().getClientProperty(SESSION_KEY) instanceof Session;
+    }
+
+    /**
+     * Start recording the events of the view, replacing a previous recording of this view.
+     */
+    public static void start(ViewCanvas<?> view) {
+        if (view == null) {
+            return;
+        }
+        if (view.getJComponent().getClientProperty(SESSION_KEY) instanceof Session session) {
+            session.stop();
+        }
+        new Session(view).start();
+        Toast.show(view.getJComponent(), "Recording the interactions of this view.");
+    }
+
+    /**
+     * Stop recording the view and return what was recorded.
+     *
+     * @return the recording, or null if the view was not recording
+     */
+    public static InteractionRecording stop(ViewCanvas<?> view) {
+        if (view != null && view.getJComponent().getClientProperty(SESSION_KEY) instanceof Session session) {
+            session.stop();
+            return session.recording;
+        }
+        return null;
+    }
+
+    /**
+     * Record a toolbar action applied to the view, if it is recording.
+     */
+    public static void recordAction(ViewCanvas<?> view, String actionName) {
+        if (view != null && view.getJComponent().getClientProperty(SESSION_KEY) instanceof Session session) {
+            GraphicModel model = view.getGraphicManager();
+            int selected = model == null ? 0 : model.getSelectedGraphics().size();
+            session.recording.addAction(System.currentTimeMillis(), actionName, selected);
+        }
+    }
+
+    /**
+     * Stop recording the view and ask where to save the recording.
+     */
+    public static void stopAndSave(ViewCanvas<?> view) {
+        InteractionRecording recording = stop(view);
+        if (recording == null) {
+            return;
+        }
+        JComponent parent = view.getJComponent();
+        if (recording.size() == 0) {
+            Toast.show(parent, "No interaction recorded.");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Interaction recording (*.rec)", "rec"));
+        chooser.setSelectedFile(new File("interactions.rec"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                    recording.write(out);
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    LOGGER.info("Saved {} recorded events to {}", recording.size(), file);
+                    Toast.show(parent, String.format("%d events saved to %s", recording.size(), file.getName()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    LOGGER.error("Cannot save the recording to {}", file, e.getCause());
+                    JOptionPane.showMessageDialog(parent, "Cannot write " + file.getName() + ": "
+                        + e.getCause().getMessage(), TITLE, JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+}
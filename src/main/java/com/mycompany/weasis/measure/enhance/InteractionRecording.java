@@ -0,0 +1,243 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.AffineTransform;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Mouse and keyboard events of one view during a measurement session, with the drawing tool
+ * and the toolbar actions used, as written by {@link InteractionRecorder} and replayed by the
+ * test kit.
+ *
+ * Events are kept in parallel primitive arrays so that recording a long session allocates
+ * only when the arrays grow. The text format has one event per line:
+ * <pre>
+ * V width height m00 m10 m01 m11 m02 m12      view size and image to screen transform
+ * E when id x y imageX imageY modifiersEx button clickCount keyCode keyChar
+ * T when toolClassName                         drawing tool selected at that time
+ * A when actionName selectedCount              toolbar action
+ * </pre>
+ * Times are in milliseconds from the first event, ids are the AWT event ids.
+ */
+public final class InteractionRecording {
+
+    public static final String HEADER = "# Weasis measure enhance interaction recording v1";
+
+    // Pseudo event ids of the tool and action entries, below the AWT ids
+    public static final int TOOL = -1;
+    public static final int ACTION = -2;
+
+    private int width;
+    private int height;
+    private final double[] transform = {1.0, 0.0, 0.0, 1.0, 0.0, 0.0};
+
+    private int size = 0;
+    private long startWhen = Long.MIN_VALUE;
+    private long[] when = new long[256];
+    private int[] id = new int[256];
+    // x, y, modifiersEx, button, clickCount, keyCode, keyChar for each event
+    private int[] ints = new int[256 * 7];
+    private double[] image = new double[256 * 2];
+    // Tool class or action name, null for input events
+    private String[] labels = new String[256];
+
+    public void setView(int width, int height, AffineTransform imageToScreen) {
+        this.width = width;
+        this.height = height;
+        if (imageToScreen != null) {
+            imageToScreen.getMatrix(transform);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param when Time of the event in milliseconds, as {@link java.awt.event.InputEvent#getWhen()}
+     */
+    public void addInput(long when, int id, int x, int y, double imageX, double imageY, int modifiersEx,
+        int button, int clickCount, int keyCode, char keyChar) {
+        int i = next(when, id, null);
+        int k = i * 7;
+        ints[k] = x;
+        ints[k + 1] = y;
+        ints[k + 2] = modifiersEx;
+        ints[k + 3] = button;
+        ints[k + 4] = clickCount;
+        ints[k + 5] = keyCode;
+        ints[k + 6] = keyChar;
+        image[2 * i] = imageX;
+        image[2 * i + 1] = imageY;
+    }
+
+    public void addTool(long when, String toolClassName) {
+        next(when, TOOL, toolClassName);
+    }
+
+    public void addAction(long when, String actionName, int selectedCount) {
+        int i = next(when, ACTION, actionName);
+        ints[i * 7 + 4] = selectedCount;
+    }
+
+    private int next(long eventWhen, int eventId, String label) {
+        if (size == when.length) {
+            int capacity = size * 2;
+            when = Arrays.copyOf(when, capacity);
+            id = Arrays.copyOf(id, capacity);
+            ints = Arrays.copyOf(ints, capacity * 7);
+            image = Arrays.copyOf(image, capacity * 2);
+            labels = Arrays.copyOf(labels, capacity);
+        }
+        if (startWhen == Long.MIN_VALUE) {
+            startWhen = eventWhen;
+        }
+        int i = size++;
+        // Never backwards, so that the replay schedule is monotonic
+        when[i] = Math.max(eventWhen - startWhen, i == 0 ? 0L : when[i - 1]);
+        id[i] = eventId;
+        labels[i] = label;
+        Arrays.fill(ints, i * 7, i * 7 + 7, 0);
+        return i;
+    }
+
+    /**
+     * @return the time of the event in milliseconds from the first one
+     */
+    public long getWhen(int i) {
+        return when[i];
+    }
+
+    public int getId(int i) {
+        return id[i];
+    }
+
+    public int getX(int i) {
+        return ints[i * 7];
+    }
+
+    public int getY(int i) {
+        return ints[i * 7 + 1];
+    }
+
+    public int getModifiersEx(int i) {
+        return ints[i * 7 + 2];
+    }
+
+    public int getButton(int i) {
+        return ints[i * 7 + 3];
+    }
+
+    /**
+     * @return the click count of a mouse event, or the number of selected graphics of an action
+     */
+    public int getClickCount(int i) {
+        return ints[i * 7 + 4];
+    }
+
+    public int getKeyCode(int i) {
+        return ints[i * 7 + 5];
+    }
+
+    public char getKeyChar(int i) {
+        return (char) ints[i * 7 + 6];
+    }
+
+    public double getImageX(int i) {
+        return image[2 * i];
+    }
+
+    public double getImageY(int i) {
+        return image[2 * i + 1];
+    }
+
+    /**
+     * @return the tool class or the action name, null for input events
+     */
+    public String getLabel(int i) {
+        return labels[i];
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+        out.write(String.format(Locale.ROOT, "V %d %d %s %s %s %s %s %s", width, height, transform[0],
+            transform[1], transform[2], transform[3], transform[4], transform[5]));
+        out.write('\n');
+        StringBuilder line = new StringBuilder(96);
+        for (int i = 0; i < size; i++) {
+            line.setLength(0);
+            if (id[i] == TOOL) {
+                line.append("T ").append(when[i]).append(' ').append(labels[i]);
+            } else if (id[i] == ACTION) {
+                line.append("A ").append(when[i]).append(' ').append(labels[i]).append(' ').append(getClickCount(i));
+            } else {
+                line.append("E ").append(when[i]).append(' ').append(id[i]);
+                for (int k = 0; k < 2; k++) {
+                    line.append(' ').append(ints[i * 7 + k]);
+                }
+                line.append(' ').append(image[2 * i]).append(' ').append(image[2 * i + 1]);
+                for (int k = 2; k < 7; k++) {
+                    line.append(' ').append(ints[i * 7 + k]);
+                }
+            }
+            out.write(line.append('\n').toString());
+        }
+    }
+
+    /**
+     * @throws IOException if the content is not a recording
+     */
+    public static InteractionRecording read(BufferedReader in) throws IOException {
+        String header = in.readLine();
+        if (!HEADER.equals(header)) {
+            throw new IOException("Not an interaction recording");
+        }
+        InteractionRecording recording = new InteractionRecording();
+        String line;
+        int lineNumber = 1;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] f = line.trim().split(" ");
+            try {
+                switch (f[0]) {
+                    case "V" -> {
+                        double[] m = new double[6];
+                        for (int k = 0; k < 6; k++) {
+                            m[k] = Double.parseDouble(f[3 + k]);
+                        }
+                        recording.setView(Integer.parseInt(f[1]), Integer.parseInt(f[2]), new AffineTransform(m));
+                    }
+                    case "T" -> recording.addTool(Long.parseLong(f[1]), f[2]);
+                    case "A" -> recording.addAction(Long.parseLong(f[1]), f[2], Integer.parseInt(f[3]));
+                    case "E" -> recording.addInput(Long.parseLong(f[1]), Integer.parseInt(f[2]),
+                        Integer.parseInt(f[3]), Integer.parseInt(f[4]), Double.parseDouble(f[5]),
+                        Double.parseDouble(f[6]), Integer.parseInt(f[7]), Integer.parseInt(f[8]),
+                        Integer.parseInt(f[9]), Integer.parseInt(f[10]), (char) Integer.parseInt(f[11]));
+                    default -> throw new IOException("Unknown entry at line " + lineNumber);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Invalid entry at line " + lineNumber, e);
+            }
+        }
+        return recording;
+    }
+}
@@ -0,0 +1,86 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram in power of two buckets of microseconds, shared by the snap profiler and
+ * the plugin metrics.
+ *
+ * Adding a latency is a few atomic increments, so it can stay always on and be read from the
+ * JMX threads while the EDT records. Percentiles are reported as the upper bound of their
+ * bucket.
+ */
+final class LatencyHistogram {
+
+    // Bucket i counts the latencies in [2^(i-1), 2^i) microseconds, the last one everything above
+    static final int BUCKETS = 24;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void add(long nanos) {
+        long micros = nanos / 1000L;
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    double getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0.0 : totalNanos.get() / (double) n / 1000.0;
+    }
+
+    double getMaxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    /**
+     * @return the upper bound of the bucket of the percentile, 0 when nothing was recorded
+     */
+    long percentileMicros(double p) {
+        long n = count.get();
+        if (n == 0) {
+            return 0L;
+        }
+        long target = (long) Math.ceil(p * n);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += buckets.get(i);
+            if (cumulative >= target) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    /**
+     * @return the non-empty buckets as " <upper bound>us=count" items
+     */
+    String formatBuckets() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = buckets.get(i);
+            if (n > 0) {
+                text.append(" <").append(1L << i).append("us=").append(n);
+            }
+        }
+        return text.toString();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+}
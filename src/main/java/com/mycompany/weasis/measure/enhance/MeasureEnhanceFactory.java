@@ -1,13 +1,22 @@
 package com.mycompany.weasis.measure.enhance;
 
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.HierarchyEvent;
+import java.lang.ref.WeakReference;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
 
+import javax.swing.AbstractButton;
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
+import javax.swing.JToggleButton;
 import javax.swing.SwingUtilities;
 
 import org.osgi.framework.BundleActivator;
@@ -31,60 +40,125 @@ import org.weasis.dicom.viewer2d.EventManager;
 public class MeasureEnhanceFactory implements BundleActivator {
     private static final Logger LOGGER = LoggerFactory.getLogger(MeasureEnhanceFactory.class);
     
-    private Timer monitorTimer;
+    private final Set<ImageViewerPlugin<?>> installedPlugins = Collections.newSetFromMap(new WeakHashMap<>());
+    private final Set<MeasureToolBar> installedToolBars = Collections.newSetFromMap(new WeakHashMap<>());
+    private final Set<ImageViewerEventManager<?>> installedEventManagers = Collections.newSetFromMap(new WeakHashMap<>());
     private boolean toolsRegisteredToStaticList = false;
+    // View recorded with the record button, if any
+    private WeakReference<ViewCanvas<?>> recordedView;
+
+    // Called when any component becomes showing: viewers and toolbars are handled once, on the EDT
+    private final AWTEventListener viewerListener = event -> {
+        if (event instanceof HierarchyEvent hierarchyEvent
+            && (hierarchyEvent.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+            Component component = hierarchyEvent.getComponent();
+            if (component.isShowing()) {
+                if (component instanceof ImageViewerPlugin<?> imagePlugin) {
+                    PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.VIEWER_MONITOR);
+                    try {
+                        installToViewer(imagePlugin);
+                    } finally {
+                        span.end("viewerShown");
+                    }
+                } else if (component instanceof MeasureToolBar measureToolBar) {
+                    PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.VIEWER_MONITOR);
+                    try {
+                        installToToolbar(measureToolBar);
+                    } finally {
+                        span.end("toolbarShown");
+                    }
+                }
+            }
+        }
+    };
 
     @Override
     public void start(BundleContext bundleContext) throws Exception {
         LOGGER.info("Starting Weasis Measure Enhance Plugin");
+        SnapSettings.load();
+        PluginMetrics.register();
         
-        // Start a continuous monitor timer to handle late-loading viewers and multiple windows
-        monitorTimer = new Timer("MeasureEnhance-Monitor", true);
-        monitorTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> updatePluginState());
-            }
-        }, 2000, 3000); // Check every 3 seconds after 2s delay
+        // Viewers opened later are discovered when they become showing; the ones already
+        // open are handled once here.
+        Toolkit.getDefaultToolkit().addAWTEventListener(viewerListener, AWTEvent.HIERARCHY_EVENT_MASK);
+        SwingUtilities.invokeLater(this::installToOpenViewers);
         
-        LOGGER.info("Weasis Measure Enhance Plugin started (monitoring active)");
+        LOGGER.info("Weasis Measure Enhance Plugin started (listening for viewers)");
     }
     
-    private void updatePluginState() {
+    private void installToOpenViewers() {
+        PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.VIEWER_MONITOR);
         try {
-            // 1. Ensure tools are registered to the static MeasureToolBar list (for future viewers)
-            if (!toolsRegisteredToStaticList) {
-                List<Graphic> measureList = MeasureToolBar.getMeasureGraphicList();
-                if (measureList != null) {
-                    safeAddTool(measureList, new CircleCenterToolGraphic());
-                    safeAddTool(measureList, new ContinueLineToolGraphic());
-                    toolsRegisteredToStaticList = true;
-                    LOGGER.info("Successfully registered tools to static MeasureToolBar list");
-                }
-            }
-
-            // 2. Update all currently open viewers
+            registerToolsToStaticList();
             List<ViewerPlugin<?>> plugins = GuiUtils.getUICore().getViewerPlugins();
             if (plugins != null) {
                 for (ViewerPlugin<?> plugin : plugins) {
                     if (plugin instanceof ImageViewerPlugin<?> imagePlugin) {
-                        // Register tools to this plugin's event manager
-                        registerToolsToEventManager(imagePlugin);
-
-                        // Add buttons to toolbars
-                        List<Toolbar> toolBars = imagePlugin.getSeriesViewerUI().getToolBars();
-                        if (toolBars != null) {
-                            for (Toolbar toolbar : toolBars) {
-                                if (toolbar instanceof MeasureToolBar measureToolBar) {
-                                    addButtonsToToolbar(measureToolBar);
-                                }
-                            }
-                        }
+                        installToViewer(imagePlugin);
                     }
                 }
             }
         } catch (Exception e) {
-            LOGGER.debug("Error in monitor cycle: {}", e.getMessage());
+            LOGGER.debug("Error installing to open viewers: {}", e.getMessage());
+        } finally {
+            span.end("openViewers");
+        }
+    }
+
+    /**
+     * Ensure tools are registered to the static MeasureToolBar list (for future viewers).
+     */
+    private void registerToolsToStaticList() {
+        if (!toolsRegisteredToStaticList) {
+            List<Graphic> measureList = MeasureToolBar.getMeasureGraphicList();
+            if (measureList != null) {
+                safeAddTool(measureList, new CircleCenterToolGraphic());
+                safeAddTool(measureList, new ContinueLineToolGraphic());
+                safeAddTool(measureList, new CircleFitToolGraphic());
+                toolsRegisteredToStaticList = true;
+                LOGGER.info("Successfully registered tools to static MeasureToolBar list");
+            }
+        }
+    }
+
+    /**
+     * The viewer is only marked as installed once its measure toolbar has the buttons, otherwise
+     * it is retried the next time it becomes showing (e.g. its toolbars were not built yet).
+     */
+    private void installToViewer(ImageViewerPlugin<?> imagePlugin) {
+        if (installedPlugins.contains(imagePlugin)) {
+            return;
+        }
+        try {
+            registerToolsToStaticList();
+
+            // Register tools to this plugin's event manager
+            registerToolsToEventManager(imagePlugin);
+
+            // Add buttons to toolbars
+            boolean installed = false;
+            List<Toolbar> toolBars = imagePlugin.getSeriesViewerUI().getToolBars();
+            if (toolBars != null) {
+                for (Toolbar toolbar : toolBars) {
+                    if (toolbar instanceof MeasureToolBar measureToolBar) {
+                        installToToolbar(measureToolBar);
+                        installed = true;
+                    }
+                }
+            }
+            if (installed) {
+                installedPlugins.add(imagePlugin);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Error installing to viewer: {}", e.getMessage());
+        }
+    }
+
+    private void installToToolbar(MeasureToolBar toolbar) {
+        if (!installedToolBars.contains(toolbar)) {
+            addButtonsToToolbar(toolbar);
+            // Not reached if adding the buttons failed: hasButton skips the ones already added
+            installedToolBars.add(toolbar);
         }
     }
 
@@ -93,13 +167,22 @@ public class MeasureEnhanceFactory implements BundleActivator {
 
         if (!hasButton(toolbar, "∠")) {
             JButton calcAngleButton = new JButton("∠");
-            calcAngleButton.setToolTipText("Calculate angle between 2 selected lines (Ctrl+Click to multi-select)");
+            calcAngleButton.setToolTipText("Calculate angles between 2 or more selected lines (Ctrl+Click to multi-select)");
             calcAngleButton.setFont(calcAngleButton.getFont().deriveFont(16f));
             calcAngleButton.addActionListener(e -> onCalcAngleClick());
             toolbar.add(calcAngleButton);
             changed = true;
         }
 
+        if (!hasButton(toolbar, "Cobb")) {
+            JButton cobbButton = new JButton("Cobb");
+            cobbButton.setToolTipText("Cobb angles of the curves between all selected endplate lines (Cobb 角)");
+            cobbButton.setFont(cobbButton.getFont().deriveFont(13f));
+            cobbButton.addActionListener(e -> onCobbClick());
+            toolbar.add(cobbButton);
+            changed = true;
+        }
+
         if (!hasButton(toolbar, "⊥")) {
             JButton perpBisectorButton = new JButton("⊥");
             perpBisectorButton.setToolTipText("Draw perpendicular bisector of selected line");
@@ -136,6 +219,69 @@ public class MeasureEnhanceFactory implements BundleActivator {
             changed = true;
         }
 
+        if (!hasButton(toolbar, "↶")) {
+            JButton undoButton = new JButton("↶");
+            undoButton.setToolTipText("Undo the last constructions of the displayed image (撤销构造)");
+            undoButton.setFont(undoButton.getFont().deriveFont(16f));
+            undoButton.addActionListener(e -> onUndoClick());
+            toolbar.add(undoButton);
+            changed = true;
+        }
+
+        if (!hasButton(toolbar, "↷")) {
+            JButton redoButton = new JButton("↷");
+            redoButton.setToolTipText("Redo the last undone constructions of the displayed image (重做构造)");
+            redoButton.setFont(redoButton.getFont().deriveFont(16f));
+            redoButton.addActionListener(e -> onRedoClick());
+            toolbar.add(redoButton);
+            changed = true;
+        }
+
+        if (!hasButton(toolbar, "⇊")) {
+            JButton propagateButton = new JButton("⇊");
+            propagateButton.setToolTipText("Propagate selected lines and their constructions to a range of slices");
+            propagateButton.setFont(propagateButton.getFont().deriveFont(16f));
+            propagateButton.addActionListener(e -> onPropagateClick());
+            toolbar.add(propagateButton);
+            changed = true;
+        }
+
+        if (!hasButton(toolbar, "⤓")) {
+            JButton exportButton = new JButton("⤓");
+            exportButton.setToolTipText("Export the measurements of all open series to CSV or JSON (导出测量结果)");
+            exportButton.setFont(exportButton.getFont().deriveFont(16f));
+            exportButton.addActionListener(e -> MeasurementExporter.exportOpenSeries(getActiveViewCanvas()));
+            toolbar.add(exportButton);
+            changed = true;
+        }
+
+        if (!hasButton(toolbar, "⌁")) {
+            JToggleButton edgeSnapButton = new JToggleButton("⌁", SnappingUtil.isEdgeSnapEnabled());
+            edgeSnapButton.setToolTipText("Snap points to image edges when no handle is nearby (吸附到图像边缘)");
+            edgeSnapButton.setFont(edgeSnapButton.getFont().deriveFont(16f));
+            edgeSnapButton.addActionListener(e -> SnappingUtil.setEdgeSnapEnabled(edgeSnapButton.isSelected()));
+            toolbar.add(edgeSnapButton);
+            changed = true;
+        }
+
+        if (!hasButton(toolbar, "⌖")) {
+            JButton snapSettingsButton = new JButton("⌖");
+            snapSettingsButton.setToolTipText("Snapping settings and diagnostics (吸附设置与诊断)");
+            snapSettingsButton.setFont(snapSettingsButton.getFont().deriveFont(16f));
+            snapSettingsButton.addActionListener(e -> SnapDiagnosticsDialog.showDialog(getActiveViewCanvas()));
+            toolbar.add(snapSettingsButton);
+            changed = true;
+        }
+
+        if (!hasButton(toolbar, "⏺")) {
+            JToggleButton recordButton = new JToggleButton("⏺");
+            recordButton.setToolTipText("Record the interactions of the active view to replay them with the test kit");
+            recordButton.setFont(recordButton.getFont().deriveFont(14f));
+            recordButton.addActionListener(e -> onRecordClick(recordButton));
+            toolbar.add(recordButton);
+            changed = true;
+        }
+
         if (changed) {
             toolbar.revalidate();
             toolbar.repaint();
@@ -145,7 +291,7 @@ public class MeasureEnhanceFactory implements BundleActivator {
 
     private boolean hasButton(MeasureToolBar toolbar, String text) {
         for (java.awt.Component c : toolbar.getComponents()) {
-            if (c instanceof JButton b && text.equals(b.getText())) {
+            if (c instanceof AbstractButton b && text.equals(b.getText())) {
                 return true;
             }
         }
@@ -155,11 +301,12 @@ public class MeasureEnhanceFactory implements BundleActivator {
     private void registerToolsToEventManager(ImageViewerPlugin<?> imagePlugin) {
         try {
             ImageViewerEventManager<?> eventManager = imagePlugin.getEventManager();
-            if (eventManager != null) {
+            if (eventManager != null && !installedEventManagers.contains(eventManager)) {
                 Optional<ComboItemListener<Graphic>> actionOpt = eventManager.getAction(ActionW.DRAW_MEASURE);
                 if (actionOpt.isPresent()) {
                     ComboItemListener<Graphic> action = actionOpt.get();
                     addToolsToAction(action);
+                    installedEventManagers.add(eventManager);
                 }
             }
         } catch (Exception e) {
@@ -207,6 +354,19 @@ public class MeasureEnhanceFactory implements BundleActivator {
                 changed = true;
             }
             
+            // Check and add CircleFitToolGraphic
+            boolean hasFit = false;
+            for (Graphic item : itemList) {
+                if (item instanceof CircleFitToolGraphic) {
+                    hasFit = true;
+                    break;
+                }
+            }
+            if (!hasFit) {
+                itemList.add(new CircleFitToolGraphic());
+                changed = true;
+            }
+            
             if (changed) {
                 action.setDataList(itemList.toArray(new Graphic[0]));
                 LOGGER.info("Updated existing viewer with new tools");
@@ -221,7 +381,8 @@ public class MeasureEnhanceFactory implements BundleActivator {
         try {
             ViewCanvas<?> view = getActiveViewCanvas();
             if (view != null) {
-                AngleCalculationAction.calculateAngle(view);
+                InteractionRecorder.recordAction(view, "angle");
+                PluginMetrics.run(PluginMetrics.Probe.ANGLE, () -> AngleCalculationAction.calculateAngle(view));
             } else {
                 JOptionPane.showMessageDialog(null, "No active view found.", "Angle Calculation", JOptionPane.WARNING_MESSAGE);
             }
@@ -231,11 +392,27 @@ public class MeasureEnhanceFactory implements BundleActivator {
         }
     }
     
+    private void onCobbClick() {
+        try {
+            ViewCanvas<?> view = getActiveViewCanvas();
+            if (view != null) {
+                InteractionRecorder.recordAction(view, "cobb");
+                PluginMetrics.run(PluginMetrics.Probe.COBB, () -> CobbAngleAction.measure(view));
+            } else {
+                JOptionPane.showMessageDialog(null, "No active view found.", "Cobb Angle", JOptionPane.WARNING_MESSAGE);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error measuring Cobb angles", e);
+            JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Cobb Angle", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
     private void onPerpBisectorClick() {
         try {
             ViewCanvas<?> view = getActiveViewCanvas();
             if (view != null) {
-                PerpendicularBisectorAction.drawPerpendicularBisector(view);
+                InteractionRecorder.recordAction(view, "bisector");
+                PluginMetrics.run(PluginMetrics.Probe.BISECTOR, () -> PerpendicularBisectorAction.drawPerpendicularBisector(view));
             } else {
                 JOptionPane.showMessageDialog(null, "No active view found.", "Perpendicular Bisector", JOptionPane.WARNING_MESSAGE);
             }
@@ -249,7 +426,8 @@ public class MeasureEnhanceFactory implements BundleActivator {
         try {
             ViewCanvas<?> view = getActiveViewCanvas();
             if (view != null) {
-                PerpendicularDistanceAction.startMeasurement(view);
+                InteractionRecorder.recordAction(view, "perpendicularDistance");
+                PluginMetrics.run(PluginMetrics.Probe.PERPENDICULAR_DISTANCE, () -> PerpendicularDistanceAction.startMeasurement(view));
             } else {
                 JOptionPane.showMessageDialog(null, "No active view found.", "Perpendicular Distance", JOptionPane.WARNING_MESSAGE);
             }
@@ -263,7 +441,8 @@ public class MeasureEnhanceFactory implements BundleActivator {
         try {
             ViewCanvas<?> view = getActiveViewCanvas();
             if (view != null) {
-                ParallelLineAction.createParallelLine(view);
+                InteractionRecorder.recordAction(view, "parallel");
+                PluginMetrics.run(PluginMetrics.Probe.PARALLEL_LINE, () -> ParallelLineAction.createParallelLine(view));
             } else {
                 JOptionPane.showMessageDialog(null, "No active view found.", "Create Parallel Line", JOptionPane.WARNING_MESSAGE);
             }
@@ -277,7 +456,8 @@ public class MeasureEnhanceFactory implements BundleActivator {
         try {
             ViewCanvas<?> view = getActiveViewCanvas();
             if (view != null) {
-                TrisectionPerpendicularAction.drawTrisectionPerpendiculars(view);
+                InteractionRecorder.recordAction(view, "trisection");
+                PluginMetrics.run(PluginMetrics.Probe.TRISECTION, () -> TrisectionPerpendicularAction.drawTrisectionPerpendiculars(view));
             } else {
                 JOptionPane.showMessageDialog(null, "No active view found.", "Trisection Perpendiculars", JOptionPane.WARNING_MESSAGE);
             }
@@ -286,6 +466,77 @@ public class MeasureEnhanceFactory implements BundleActivator {
             JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Trisection Perpendiculars", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    private void onUndoClick() {
+        try {
+            ViewCanvas<?> view = getActiveViewCanvas();
+            if (view == null) {
+                JOptionPane.showMessageDialog(null, "No active view found.", "Undo", JOptionPane.WARNING_MESSAGE);
+            } else if (!CommandLog.canUndo(view)) {
+                Toast.show(view.getJComponent(), "Nothing to undo on this image.");
+            } else {
+                InteractionRecorder.recordAction(view, "undo");
+                PluginMetrics.run(PluginMetrics.Probe.UNDO, () -> CommandLog.undo(view));
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error undoing constructions", e);
+            JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Undo", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void onRedoClick() {
+        try {
+            ViewCanvas<?> view = getActiveViewCanvas();
+            if (view == null) {
+                JOptionPane.showMessageDialog(null, "No active view found.", "Redo", JOptionPane.WARNING_MESSAGE);
+            } else if (!CommandLog.canRedo(view)) {
+                Toast.show(view.getJComponent(), "Nothing to redo on this image.");
+            } else {
+                InteractionRecorder.recordAction(view, "redo");
+                PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.REDO);
+                try {
+                    CommandLog.redo(view);
+                } finally {
+                    span.end();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error redoing constructions", e);
+            JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Redo", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void onRecordClick(JToggleButton recordButton) {
+        if (recordButton.isSelected()) {
+            ViewCanvas<?> view = getActiveViewCanvas();
+            if (view == null) {
+                recordButton.setSelected(false);
+                Toast.show(recordButton, "No active view found.");
+                return;
+            }
+            InteractionRecorder.start(view);
+            recordedView = new WeakReference<>(view);
+        } else {
+            ViewCanvas<?> view = recordedView == null ? null : recordedView.get();
+            recordedView = null;
+            InteractionRecorder.stopAndSave(view);
+        }
+    }
+
+    private void onPropagateClick() {
+        try {
+            ViewCanvas<?> view = getActiveViewCanvas();
+            if (view != null) {
+                InteractionRecorder.recordAction(view, "propagate");
+                PluginMetrics.run(PluginMetrics.Probe.PROPAGATION, () -> SeriesPropagationAction.propagate(view));
+            } else {
+                JOptionPane.showMessageDialog(null, "No active view found.", "Propagate to Series", JOptionPane.WARNING_MESSAGE);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error propagating to series", e);
+            JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Propagate to Series", JOptionPane.ERROR_MESSAGE);
+        }
+    }
     
     /**
      * Get the currently active/focused view canvas.
@@ -349,8 +600,10 @@ public class MeasureEnhanceFactory implements BundleActivator {
     @Override
     public void stop(BundleContext bundleContext) throws Exception {
         LOGGER.info("Stopping Weasis Measure Enhance Plugin");
-        if (monitorTimer != null) {
-            monitorTimer.cancel();
-        }
+        Toolkit.getDefaultToolkit().removeAWTEventListener(viewerListener);
+        SeriesPropagationAction.shutdown();
+        GradientTileCache.clear();
+        SnapProfiler.logSummaries();
+        PluginMetrics.unregister();
     }
 }
@@ -0,0 +1,411 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.Component;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import org.dcm4che3.data.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.core.api.image.util.MeasurableLayer;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.media.data.MediaSeries;
+import org.weasis.core.api.media.data.TagW;
+import org.weasis.core.ui.editor.ViewerPlugin;
+import org.weasis.core.ui.editor.image.ImageViewerPlugin;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.utils.bean.MeasureItem;
+import org.weasis.dicom.codec.TagD;
+
+/**
+ * Export of the measurements of the plugin graphics (angles, perpendicular distances,
+ * constructions, circle centers and fits) of every image of the open series to CSV or JSON.
+ *
+ * The graphic models belong to the EDT, so the rows of a chunk of images are read on the EDT,
+ * then written to the file by the background worker before the next chunk is read. Only one
+ * chunk of rows is in memory at a time, whatever the number of series. The values are in the
+ * pixel spacing unit of each image.
+ */
+public class MeasurementExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MeasurementExporter.class);
+
+    private static final String TITLE = "Export Measurements";
+    // Images read per EDT call, short enough not to freeze the viewer
+    private static final int CHUNK_SIZE = 32;
+
+    private MeasurementExporter() {
+    }
+
+    /**
+     * One measurement of one graphic.
+     */
+    record Row(String series, String instance, int index, String graphic, String uuid, String measurement,
+        double value, String unit) {
+    }
+
+    private record SeriesImages(String uid, List<ImageElement> images) {
+    }
+
+    /**
+     * Ask for a file and export the measurements of all the series open in the viewers.
+     */
+    public static void exportOpenSeries(ViewCanvas<?> view) {
+        List<SeriesImages> series = collectOpenSeries();
+        int total = 0;
+        for (SeriesImages s : series) {
+            total += s.images().size();
+        }
+        Component parent = view == null ? null : view.getJComponent();
+        if (total == 0) {
+            Toast.show(parent, "No open series to export.");
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        FileNameExtensionFilter csv = new FileNameExtensionFilter("CSV (*.csv)", "csv");
+        FileNameExtensionFilter json = new FileNameExtensionFilter("JSON (*.json)", "json");
+        chooser.addChoosableFileFilter(csv);
+        chooser.addChoosableFileFilter(json);
+        chooser.setFileFilter(csv);
+        chooser.setSelectedFile(new File("measurements.csv"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        boolean asJson = file.getName().toLowerCase(Locale.ROOT).endsWith(".json")
+            || (chooser.getFileFilter() == json && !file.getName().toLowerCase(Locale.ROOT).endsWith(".csv"));
+        if (asJson && !file.getName().toLowerCase(Locale.ROOT).endsWith(".json")) {
+            file = new File(file.getParentFile(), file.getName() + ".json");
+        }
+        new ExportWorker(parent, series, total, file, asJson).execute();
+    }
+
+    private static List<SeriesImages> collectOpenSeries() {
+        List<MediaSeries<?>> seen = new ArrayList<>();
+        List<SeriesImages> result = new ArrayList<>();
+        try {
+            List<ViewerPlugin<?>> plugins = GuiUtils.getUICore().getViewerPlugins();
+            if (plugins == null) {
+                return result;
+            }
+            for (ViewerPlugin<?> plugin : plugins) {
+                if (!(plugin instanceof ImageViewerPlugin<?> imagePlugin) || imagePlugin.getImagePanels() == null) {
+                    continue;
+                }
+                for (ViewCanvas<?> view : imagePlugin.getImagePanels()) {
+                    addSeries(view, seen, result);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Error collecting the open series: {}", e.getMessage());
+        }
+        return result;
+    }
+
+    private static <E extends ImageElement> void addSeries(ViewCanvas<E> view, List<MediaSeries<?>> seen,
+        List<SeriesImages> result) {
+        MediaSeries<E> series = view == null ? null : view.getSeries();
+        if (series == null) {
+            return;
+        }
+        for (MediaSeries<?> s : seen) {
+            if (s == series) {
+                return;
+            }
+        }
+        seen.add(series);
+        String uid = TagD.getTagValue(series, Tag.SeriesInstanceUID, String.class);
+        List<ImageElement> images = new ArrayList<>(series.copyOfMedias(null, view.getCurrentSortComparator()));
+        result.add(new SeriesImages(uid == null ? String.valueOf(series) : uid, images));
+    }
+
+    /**
+     * Rows of the plugin graphics of one image. Must be called on the EDT.
+     */
+    static void collectRows(String seriesUid, ImageElement image, int index, List<Row> out) {
+        if (!(image.getTagValue(TagW.PresentationModel) instanceof GraphicModel model)) {
+            return;
+        }
+        String instance = TagD.getTagValue(image, Tag.SOPInstanceUID, String.class);
+        if (instance == null) {
+            instance = String.valueOf(image.getMediaURI());
+        }
+        MeasurableLayer layer = null;
+        for (Graphic graphic : model.getModels()) {
+            String name = getExportName(graphic);
+            if (name == null) {
+                continue;
+            }
+            if (layer == null) {
+                layer = ImageMeasurableLayer.create(image);
+            }
+            List<MeasureItem> items;
+            try {
+                items = graphic.computeMeasurements(layer, false, null);
+            } catch (RuntimeException e) {
+                LOGGER.debug("Cannot compute the measurements of {}: {}", name, e.getMessage());
+                continue;
+            }
+            if (items == null) {
+                continue;
+            }
+            String uuid = String.valueOf(graphic.getUuid());
+            for (MeasureItem item : items) {
+                if (item.getValue() instanceof Number number && item.getMeasurement() != null) {
+                    out.add(new Row(seriesUid, instance, index, name, uuid, item.getMeasurement().getName(),
+                        number.doubleValue(), item.getUnit()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the name of the graphic in the export, or null if it is not a plugin graphic
+     */
+    static String getExportName(Graphic graphic) {
+        ConstructionGraph.Construction construction = ConstructionGraph.getConstruction(graphic);
+        if (construction != null) {
+            return switch (construction.type()) {
+                case PERPENDICULAR_AT_FRACTION -> construction.args()[0] == 0.5 ? "Perpendicular Bisector"
+                    : String.format(Locale.ROOT, "Perpendicular at %.3f", construction.args()[0]);
+                case PARALLEL_LINE -> "Parallel Line";
+                default -> graphic.getUIName();
+            };
+        }
+        if (graphic instanceof AngleResultGraphic || graphic instanceof PerpendicularDistanceGraphic
+            || graphic instanceof CircleCenterToolGraphic || graphic instanceof CircleFitToolGraphic
+            || graphic instanceof ContinueLineToolGraphic) {
+            return graphic.getUIName();
+        }
+        return null;
+    }
+
+    interface RowWriter extends Closeable {
+        void write(Row row) throws IOException;
+    }
+
+    static final class CsvRowWriter implements RowWriter {
+        private final BufferedWriter writer;
+
+        CsvRowWriter(BufferedWriter writer) throws IOException {
+            this.writer = writer;
+            writer.write("series_uid,sop_instance_uid,image_index,graphic,graphic_uuid,measurement,value,unit");
+            writer.newLine();
+        }
+
+        @Override
+        public void write(Row row) throws IOException {
+            writer.write(escape(row.series()));
+            writer.write(',');
+            writer.write(escape(row.instance()));
+            writer.write(',');
+            writer.write(Integer.toString(row.index()));
+            writer.write(',');
+            writer.write(escape(row.graphic()));
+            writer.write(',');
+            writer.write(escape(row.uuid()));
+            writer.write(',');
+            writer.write(escape(row.measurement()));
+            writer.write(',');
+            writer.write(Double.isFinite(row.value()) ? String.format(Locale.ROOT, "%.6f", row.value()) : "");
+            writer.write(',');
+            writer.write(escape(row.unit()));
+            writer.newLine();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * A JSON array of row objects, written one object at a time.
+     */
+    static final class JsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private boolean first = true;
+
+        JsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("[");
+        }
+
+        @Override
+        public void write(Row row) throws IOException {
+            writer.write(first ? "\n  {" : ",\n  {");
+            first = false;
+            field("series_uid", row.series());
+            writer.write(',');
+            field("sop_instance_uid", row.instance());
+            writer.write(",\"image_index\":");
+            writer.write(Integer.toString(row.index()));
+            writer.write(',');
+            field("graphic", row.graphic());
+            writer.write(',');
+            field("graphic_uuid", row.uuid());
+            writer.write(',');
+            field("measurement", row.measurement());
+            writer.write(",\"value\":");
+            writer.write(Double.isFinite(row.value()) ? String.format(Locale.ROOT, "%.6f", row.value()) : "null");
+            writer.write(',');
+            field("unit", row.unit());
+            writer.write('}');
+        }
+
+        private void field(String name, String value) throws IOException {
+            writer.write('"');
+            writer.write(name);
+            writer.write("\":");
+            if (value == null) {
+                writer.write("null");
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> writer.write("\\\"");
+                    case '\\' -> writer.write("\\\\");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\t' -> writer.write("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                    }
+                }
+            }
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.write(first ? "]\n" : "\n]\n");
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the rows by chunks of images on the EDT and streams them to the file.
+     */
+    private static class ExportWorker extends SwingWorker<Integer, Void> {
+        private final Component parent;
+        private final List<SeriesImages> series;
+        private final int total;
+        private final File file;
+        private final boolean asJson;
+        private final ProgressMonitor monitor;
+
+        ExportWorker(Component parent, List<SeriesImages> series, int total, File file, boolean asJson) {
+            this.parent = parent;
+            this.series = series;
+            this.total = total;
+            this.file = file;
+            this.asJson = asJson;
+            this.monitor = new ProgressMonitor(parent, TITLE, file.getName(), 0, total);
+            addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName())) {
+                    monitor.setProgress((Integer) evt.getNewValue() * total / 100);
+                    if (monitor.isCanceled()) {
+                        cancel(true);
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected Integer doInBackground() throws Exception {
+            BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            int rowCount = 0;
+            int done = 0;
+            try (RowWriter writer = asJson ? new JsonRowWriter(out) : new CsvRowWriter(out)) {
+                List<Row> rows = new ArrayList<>();
+                for (SeriesImages s : series) {
+                    List<ImageElement> images = s.images();
+                    for (int start = 0; start < images.size() && !isCancelled(); start += CHUNK_SIZE) {
+                        int from = start;
+                        int to = Math.min(images.size(), start + CHUNK_SIZE);
+                        rows.clear();
+                        readOnEdt(() -> {
+                            for (int i = from; i < to; i++) {
+                                collectRows(s.uid(), images.get(i), i, rows);
+                            }
+                        });
+                        for (Row row : rows) {
+                            writer.write(row);
+                        }
+                        rowCount += rows.size();
+                        done += to - from;
+                        setProgress(done * 100 / Math.max(1, total));
+                    }
+                }
+            }
+            return rowCount;
+        }
+
+        private static void readOnEdt(Runnable task) throws InterruptedException, IOException {
+            try {
+                SwingUtilities.invokeAndWait(task);
+            } catch (InvocationTargetException e) {
+                throw new IOException("Cannot read the measurements", e.getCause());
+            }
+        }
+
+        @Override
+        protected void done() {
+            monitor.close();
+            try {
+                int rows = get();
+                LOGGER.info("Exported {} measurements to {}", rows, file);
+                Toast.show(parent, String.format("%d measurements exported to %s", rows, file.getName()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (CancellationException e) {
+                LOGGER.info("Measurement export to {} cancelled", file);
+            } catch (ExecutionException e) {
+                LOGGER.error("Cannot export the measurements to {}", file, e.getCause());
+                JOptionPane.showMessageDialog(parent, "Cannot write " + file.getName() + ": "
+                    + e.getCause().getMessage(), TITLE, JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.core.ui.editor.image.ImageViewerPlugin;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.editor.image.ViewerPlugin;
+import org.weasis.core.ui.model.GraphicModel;
+
+/**
+ * The views of all the open image viewers, for the updates that concern every view showing an
+ * image rather than the view where an action was started. Only used from the EDT.
+ */
+final class OpenViews {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenViews.class);
+
+    private OpenViews() {
+    }
+
+    static List<ViewCanvas<?>> list() {
+        List<ViewCanvas<?>> views = new ArrayList<>();
+        try {
+            List<ViewerPlugin<?>> plugins = GuiUtils.getUICore().getViewerPlugins();
+            if (plugins == null) {
+                return views;
+            }
+            for (ViewerPlugin<?> plugin : plugins) {
+                if (!(plugin instanceof ImageViewerPlugin<?> imagePlugin) || imagePlugin.getImagePanels() == null) {
+                    continue;
+                }
+                for (ViewCanvas<?> view : imagePlugin.getImagePanels()) {
+                    if (view != null) {
+                        views.add(view);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Error listing the open views: {}", e.getMessage());
+        }
+        return views;
+    }
+
+    /**
+     * @return the views currently showing the graphic model, usually one
+     */
+    static List<ViewCanvas<?>> showing(GraphicModel model) {
+        List<ViewCanvas<?>> views = new ArrayList<>(1);
+        if (model != null) {
+            for (ViewCanvas<?> view : list()) {
+                if (view.getGraphicManager() == model) {
+                    views.add(view);
+                }
+            }
+        }
+        return views;
+    }
+}
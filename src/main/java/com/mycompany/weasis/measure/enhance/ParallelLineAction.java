@@ -3,20 +3,14 @@ package com.mycompany.weasis.measure.enhance;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
 
-import org.weasis.core.api.gui.util.GeomUtil;
 import org.weasis.core.ui.editor.image.ViewCanvas;
-import org.weasis.core.ui.model.AbstractGraphicModel;
 import org.weasis.core.ui.model.GraphicModel;
 import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
-import org.weasis.core.ui.model.graphic.imp.line.ParallelLineGraphic;
-import org.weasis.core.ui.model.layer.LayerType;
-import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
 
 /**
- * Creates a ParallelLineGraphic based on a selected LineGraphic.
+ * Creates a ParallelLineGraphic based on each selected LineGraphic.
  * The new parallel line can be dragged to adjust distance while maintaining parallelism.
  */
 public class ParallelLineAction {
@@ -24,7 +18,7 @@ public class ParallelLineAction {
     private static final double DEFAULT_PARALLEL_DISTANCE = 50.0;
 
     /**
-     * Create a parallel line based on the first selected LineGraphic.
+     * Create a parallel line for every selected LineGraphic.
      * 
      * @param view The ViewCanvas containing the graphics
      */
@@ -38,93 +32,39 @@ public class ParallelLineAction {
             return;
         }
         
-        List<Graphic> selected = model.getSelectedGraphics();
-        LineGraphic targetLine = null;
-        
-        // Find the first selected LineGraphic
-        for (Graphic g : selected) {
+        List<LineGraphic> lines = new ArrayList<>();
+        for (Graphic g : model.getSelectedGraphics()) {
             if (g instanceof LineGraphic lineGraphic) {
-                targetLine = lineGraphic;
-                break;
+                lines.add(lineGraphic);
             }
         }
         
-        if (targetLine == null) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "请先选中一条线段。\nPlease select a line first.", 
-                "创建平行线 / Create Parallel Line", 
-                JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-        
-        Point2D p1 = targetLine.getStartPoint();
-        Point2D p2 = targetLine.getEndPoint();
-        
-        if (p1 == null || p2 == null) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "选中的线段无效。\nInvalid line selected.", 
-                "创建平行线 / Create Parallel Line", 
-                JOptionPane.WARNING_MESSAGE);
+        if (lines.isEmpty()) {
+            Toast.show(view.getJComponent(), "请先选中一条线段。 Please select a line first.");
             return;
         }
         
-        // Calculate the direction vector of the original line
-        double dx = p2.getX() - p1.getX();
-        double dy = p2.getY() - p1.getY();
-        double lineLength = Math.sqrt(dx * dx + dy * dy);
-        
-        if (lineLength < 0.001) {
-            return;
+        // The parallel lines stay bound to their line and follow it when it is edited
+        ConstructionBatch batch = new ConstructionBatch("创建平行线 / Create Parallel Line");
+        for (LineGraphic line : lines) {
+            Point2D p1 = line.getStartPoint();
+            Point2D p2 = line.getEndPoint();
+            if (p1 != null && p2 != null && p1.distance(p2) >= GeomKernel.MIN_LENGTH) {
+                batch.add(ConstructionType.PARALLEL_LINE, new Graphic[] {line}, getDefaultOffset(p1, p2));
+            }
         }
         
-        // Calculate perpendicular offset direction (normalized)
-        double perpDx = -dy / lineLength;
-        double perpDy = dx / lineLength;
-        
-        // Calculate offset distance (can be adjusted, default 50 pixels or line length * 0.3)
-        double offsetDistance = Math.max(DEFAULT_PARALLEL_DISTANCE, lineLength * 0.3);
-        
-        // Calculate the parallel line points (offset perpendicular to original line)
-        Point2D ptA = new Point2D.Double(p1.getX(), p1.getY());
-        Point2D ptB = new Point2D.Double(p2.getX(), p2.getY());
-        Point2D ptC = new Point2D.Double(p1.getX() + perpDx * offsetDistance, p1.getY() + perpDy * offsetDistance);
-        Point2D ptD = new Point2D.Double(p2.getX() + perpDx * offsetDistance, p2.getY() + perpDy * offsetDistance);
-        
-        // Calculate midpoints
-        Point2D ptE = GeomUtil.getMidPoint(ptA, ptB);
-        Point2D ptF = GeomUtil.getMidPoint(ptC, ptD);
-        
-        // Create ParallelLineGraphic
-        ParallelLineGraphic parallelLine = new ParallelLineGraphic();
-        parallelLine.setLayerType(LayerType.MEASURE);
-        parallelLine.setLineThickness(targetLine.getLineThickness());
-        
-        try {
-            // ParallelLineGraphic needs 6 points: A, B, C, D, E (midpoint AB), F (midpoint CD)
-            List<Point2D> points = new ArrayList<>(6);
-            points.add(ptA);  // Point 0: A
-            points.add(ptB);  // Point 1: B
-            points.add(ptC);  // Point 2: C
-            points.add(ptD);  // Point 3: D
-            points.add(ptE);  // Point 4: E (midpoint of AB)
-            points.add(ptF);  // Point 5: F (midpoint of CD)
-            
-            parallelLine.buildGraphic(points);
-        } catch (InvalidShapeException e) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "无法创建平行线: " + e.getMessage() + "\nFailed to create parallel line: " + e.getMessage(), 
-                "错误 / Error", 
-                JOptionPane.ERROR_MESSAGE);
+        if (batch.size() == 0) {
+            Toast.show(view.getJComponent(), "选中的线段无效。 Invalid line selected.");
             return;
         }
-        
-        // Add to graphic model
-        AbstractGraphicModel.addGraphicToModel(view, parallelLine);
-        
-        // Refresh view
-        view.getJComponent().repaint();
+        batch.execute(view);
+    }
+    
+    /**
+     * Offset distance of a new parallel line (can be adjusted, default 50 pixels or line length * 0.3).
+     */
+    private static double getDefaultOffset(Point2D p1, Point2D p2) {
+        return Math.max(DEFAULT_PARALLEL_DISTANCE, p1.distance(p2) * 0.3);
     }
 }
@@ -1,20 +1,16 @@
 package com.mycompany.weasis.measure.enhance;
 
 import java.awt.geom.Point2D;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
 
 import org.weasis.core.ui.editor.image.ViewCanvas;
-import org.weasis.core.ui.model.AbstractGraphicModel;
 import org.weasis.core.ui.model.GraphicModel;
 import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
-import org.weasis.core.ui.model.layer.LayerType;
-import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
 
 /**
- * Utility class to draw a perpendicular bisector for a selected line.
+ * Utility class to draw a perpendicular bisector for each selected line.
  * Creates a simple LineGraphic as the bisector.
  */
 public class PerpendicularBisectorAction {
@@ -22,7 +18,7 @@ public class PerpendicularBisectorAction {
     private static final double DEFAULT_BISECTOR_LENGTH = 100.0;
 
     /**
-     * Draw perpendicular bisector for the first selected LineGraphic.
+     * Draw perpendicular bisector for every selected LineGraphic.
      * 
      * @param view The ViewCanvas containing the graphics
      */
@@ -36,88 +32,38 @@ public class PerpendicularBisectorAction {
             return;
         }
         
-        List<Graphic> selected = model.getSelectedGraphics();
-        LineGraphic targetLine = null;
-        
-        // Find the first selected LineGraphic
-        for (Graphic g : selected) {
+        List<LineGraphic> lines = new ArrayList<>();
+        for (Graphic g : model.getSelectedGraphics()) {
             if (g instanceof LineGraphic lineGraphic) {
-                targetLine = lineGraphic;
-                break;
+                lines.add(lineGraphic);
             }
         }
         
-        if (targetLine == null) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "Please select a line first.", 
-                "Perpendicular Bisector", 
-                JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-        
-        Point2D p1 = targetLine.getStartPoint();
-        Point2D p2 = targetLine.getEndPoint();
-        
-        if (p1 == null || p2 == null) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "Invalid line selected.", 
-                "Perpendicular Bisector", 
-                JOptionPane.WARNING_MESSAGE);
+        if (lines.isEmpty()) {
+            Toast.show(view.getJComponent(), "Please select a line first.");
             return;
         }
         
-        // Calculate midpoint
-        double midX = (p1.getX() + p2.getX()) / 2.0;
-        double midY = (p1.getY() + p2.getY()) / 2.0;
-        
-        // Calculate direction vector of the original line
-        double dx = p2.getX() - p1.getX();
-        double dy = p2.getY() - p1.getY();
-        
-        double lineLength = Math.sqrt(dx * dx + dy * dy);
-        if (lineLength < 0.001) {
-            return;
+        // The bisectors stay bound to their line and follow it when it is edited
+        ConstructionBatch batch = new ConstructionBatch("Perpendicular Bisector");
+        for (LineGraphic line : lines) {
+            Point2D p1 = line.getStartPoint();
+            Point2D p2 = line.getEndPoint();
+            if (p1 == null || p2 == null) {
+                continue;
+            }
+            double lineLength = p1.distance(p2);
+            if (lineLength < GeomKernel.MIN_LENGTH) {
+                continue;
+            }
+            double bisectorLength = Math.max(DEFAULT_BISECTOR_LENGTH, lineLength * 0.5);
+            batch.add(ConstructionType.PERPENDICULAR_AT_FRACTION, new Graphic[] {line}, 0.5, bisectorLength);
         }
         
-        // Perpendicular direction (rotate 90 degrees)
-        double perpDx = -dy;
-        double perpDy = dx;
-        
-        // Normalize and scale
-        double bisectorLength = Math.max(DEFAULT_BISECTOR_LENGTH, lineLength * 0.5);
-        double halfLen = bisectorLength / 2.0;
-        double scale = halfLen / lineLength;
-        
-        perpDx *= scale;
-        perpDy *= scale;
-        
-        // Calculate endpoints
-        Point2D bisectorStart = new Point2D.Double(midX - perpDx, midY - perpDy);
-        Point2D bisectorEnd = new Point2D.Double(midX + perpDx, midY + perpDy);
-        
-        // Create LineGraphic using buildGraphic for proper initialization
-        LineGraphic bisector = new LineGraphic();
-        bisector.setLayerType(LayerType.MEASURE);
-        bisector.setLineThickness(targetLine.getLineThickness());
-        
-        try {
-            // buildGraphic properly initializes pts list and calls prepareShape
-            bisector.buildGraphic(Arrays.asList(bisectorStart, bisectorEnd));
-        } catch (InvalidShapeException e) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "Failed to create bisector: " + e.getMessage(), 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+        if (batch.size() == 0) {
+            Toast.show(view.getJComponent(), "Invalid line selected.");
             return;
         }
-        
-        // Add to graphic model using proper method that registers listeners
-        AbstractGraphicModel.addGraphicToModel(view, bisector);
-        
-        // Refresh view
-        view.getJComponent().repaint();
+        batch.execute(view);
     }
 }
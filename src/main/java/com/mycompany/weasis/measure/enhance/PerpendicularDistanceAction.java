@@ -1,34 +1,319 @@
 package com.mycompany.weasis.measure.enhance;
 
+import java.awt.AWTEvent;
 import java.awt.Cursor;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
 import java.awt.geom.Point2D;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import javax.swing.JComponent;
 import javax.swing.JOptionPane;
 
+import org.weasis.core.api.gui.util.ActionW;
+import org.weasis.core.api.image.measure.MeasurementsAdapter;
+import org.weasis.core.api.image.util.MeasurableLayer;
+import org.weasis.core.api.image.util.Unit;
 import org.weasis.core.ui.editor.image.ViewCanvas;
 import org.weasis.core.ui.model.AbstractGraphicModel;
 import org.weasis.core.ui.model.GraphicModel;
 import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.graphic.imp.line.PolylineGraphic;
 import org.weasis.core.ui.model.layer.LayerType;
 import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
 
 /**
  * Tool to measure perpendicular distance from a point to a selected line.
- * User selects a line first, then clicks a point to measure the perpendicular distance.
+ * User selects a line first, then clicks points to measure their perpendicular distance,
+ * or drags along a contour to sample the distances all along it (sweep).
+ * Each view has its own pick mode, which ends with a right click or Escape. While it is
+ * active, the mouse actions of the view (pan, window/level, drawing) are suspended; it also
+ * ends when the view installs its mouse actions again (e.g. tool or layout change).
  */
 public class PerpendicularDistanceAction {
 
-    private static MouseAdapter currentListener = null;
-    private static ViewCanvas<?> currentView = null;
-    private static Cursor originalCursor = null;
+    private static final String SESSION_KEY = "measure.enhance.perpendicularDistance";
 
+    // Arc length between two samples of a sweep, in image pixels
+    private static final double SWEEP_STEP = 1.0;
+    private static final int MAX_OVERLAY_POINTS = 256;
+
+    /**
+     * Pick mode of one view: attached to the view component as a client property and only
+     * used from the EDT.
+     */
+    private static final class PickSession extends MouseAdapter implements KeyListener, HierarchyListener,
+        PropertyChangeListener, AWTEventListener {
+        private final ViewCanvas<?> view;
+        private final JComponent component;
+        private final LineGraphic refLine;
+        private final Cursor originalCursor;
+        // Mouse handlers of the view (pan, window/level, drawing), off while the session runs
+        private final List<MouseListener> suspendedMouse = new ArrayList<>();
+        private final List<MouseMotionListener> suspendedMotion = new ArrayList<>();
+        private SweepProfile sweep;
+        private PolylineGraphic overlay;
+
+        PickSession(ViewCanvas<?> view, LineGraphic refLine) {
+            this.view = view;
+            this.component = view.getJComponent();
+            this.refLine = refLine;
+            this.originalCursor = component.getCursor();
+        }
+
+        void start() {
+            component.putClientProperty(SESSION_KEY, this);
+            component.setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR));
+            suspendViewMouseActions();
+            component.addMouseListener(this);
+            component.addMouseMotionListener(this);
+            component.addKeyListener(this);
+            component.addHierarchyListener(this);
+            refLine.addPropertyChangeListener(this);
+            Toolkit.getDefaultToolkit().addAWTEventListener(this, AWTEvent.MOUSE_EVENT_MASK);
+        }
+
+        void stop() {
+            Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+            component.removeMouseListener(this);
+            component.removeMouseMotionListener(this);
+            component.removeKeyListener(this);
+            component.removeHierarchyListener(this);
+            refLine.removePropertyChangeListener(this);
+            restoreViewMouseActions();
+            component.setCursor(originalCursor);
+            SnapIndicator.hide(view);
+            if (component.getClientProperty(SESSION_KEY) == this) {
+                component.putClientProperty(SESSION_KEY, null);
+            }
+        }
+
+        /**
+         * Take the mouse handlers of the view off the component, so that a sweep drag does not
+         * also pan, change the window/level or draw, which would move the image under the
+         * sampled profile. The interaction recorder keeps listening.
+         */
+        private void suspendViewMouseActions() {
+            for (MouseListener listener : component.getMouseListeners()) {
+                if (!InteractionRecorder.isRecorderListener(listener)) {
+                    suspendedMouse.add(listener);
+                    component.removeMouseListener(listener);
+                }
+            }
+            for (MouseMotionListener listener : component.getMouseMotionListeners()) {
+                if (!InteractionRecorder.isRecorderListener(listener)) {
+                    suspendedMotion.add(listener);
+                    component.removeMouseMotionListener(listener);
+                }
+            }
+        }
+
+        /**
+         * Put back the suspended handlers the view has not registered again in the meantime.
+         */
+        private void restoreViewMouseActions() {
+            List<MouseListener> mouse = Arrays.asList(component.getMouseListeners());
+            for (MouseListener listener : suspendedMouse) {
+                if (!mouse.contains(listener)) {
+                    component.addMouseListener(listener);
+                }
+            }
+            List<MouseMotionListener> motion = Arrays.asList(component.getMouseMotionListeners());
+            for (MouseMotionListener listener : suspendedMotion) {
+                if (!motion.contains(listener)) {
+                    component.addMouseMotionListener(listener);
+                }
+            }
+            suspendedMouse.clear();
+            suspendedMotion.clear();
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            if (e.getButton() == MouseEvent.BUTTON1) {
+                // Each click adds a perpendicular, the mode stays active
+                Point2D clickPoint = snap(view.getImageCoordinatesFromMouse(e.getX(), e.getY()));
+                if (clickPoint != null) {
+                    createPerpendicularLine(view, refLine, clickPoint);
+                }
+            } else if (e.getButton() == MouseEvent.BUTTON3) {
+                stop();
+            }
+        }
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            if (e.getButton() == MouseEvent.BUTTON1) {
+                Point2D p1 = refLine.getStartPoint();
+                Point2D p2 = refLine.getEndPoint();
+                Point2D point = snap(view.getImageCoordinatesFromMouse(e.getX(), e.getY()));
+                if (p1 != null && p2 != null && point != null) {
+                    sweep = new SweepProfile(p1.getX(), p1.getY(), p2.getX(), p2.getY(), SWEEP_STEP);
+                    sweep.addPoint(point.getX(), point.getY());
+                    overlay = null;
+                }
+            }
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            if (sweep != null) {
+                Point2D point = snapToEdge(view.getImageCoordinatesFromMouse(e.getX(), e.getY()));
+                if (point != null && sweep.addPoint(point.getX(), point.getY()) > 0) {
+                    updateOverlay();
+                }
+            }
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            if (e.getButton() != MouseEvent.BUTTON1 || sweep == null) {
+                return;
+            }
+            SweepProfile profile = sweep;
+            sweep = null;
+            SnapIndicator.hide(view);
+            if (overlay != null) {
+                // A drag, not a click: show the profile of the sweep
+                updateOverlay();
+                overlay.updateLabel(Boolean.TRUE, view);
+                MeasurementsAdapter adapter = getMeasurementAdapter(view);
+                SweepProfileDialog.show(view, profile, adapter == null ? 1.0 : adapter.getCalibRatio(),
+                    adapter == null ? "px" : adapter.getUnit());
+            }
+        }
+
+        /**
+         * The picked point, moved onto a nearby handle or image edge when there is one.
+         */
+        private Point2D snap(Point2D point) {
+            Point2D target = SnappingUtil.getSnapPoint(view, point, refLine);
+            return target == null ? point : new Point2D.Double(target.getX(), target.getY());
+        }
+
+        /**
+         * The dragged point, moved onto a nearby image edge when edge snapping is enabled. The
+         * graphics are not snap targets during a sweep: the overlay is in the model and each
+         * sample would snap back onto its previous one.
+         */
+        private Point2D snapToEdge(Point2D point) {
+            if (point == null || !SnappingUtil.isEdgeSnapEnabled()) {
+                return point;
+            }
+            Point2D edge = SnappingUtil.getEdgeSnapPoint(view, point);
+            return edge == null ? point : edge;
+        }
+
+        /**
+         * Draw the sweep as a polyline through a bounded number of its samples.
+         */
+        private void updateOverlay() {
+            if (sweep.size() < 2) {
+                return;
+            }
+            int[] indexes = sweep.decimate(MAX_OVERLAY_POINTS);
+            if (overlay != null && overlay.getPts().size() == indexes.length) {
+                // Same number of points: move them, at most MAX_OVERLAY_POINTS whatever the sweep length
+                List<Point2D> pts = overlay.getPts();
+                for (int i = 0; i < indexes.length; i++) {
+                    pts.get(i).setLocation(sweep.getX(indexes[i]), sweep.getY(indexes[i]));
+                }
+                overlay.buildShape(null);
+            } else {
+                List<Point2D> points = new ArrayList<>(indexes.length);
+                for (int index : indexes) {
+                    points.add(new Point2D.Double(sweep.getX(index), sweep.getY(index)));
+                }
+                try {
+                    if (overlay == null) {
+                        overlay = new PolylineGraphic();
+                        overlay.setLayerType(LayerType.MEASURE);
+                        overlay.setLineThickness(refLine.getLineThickness());
+                        overlay.buildGraphic(points);
+                        AbstractGraphicModel.addGraphicToModel(view, overlay);
+                    } else {
+                        // Rebuilt so that the point count and handles of the polyline follow
+                        overlay.buildGraphic(points);
+                    }
+                } catch (InvalidShapeException ex) {
+                    overlay = null;
+                    sweep = null;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void keyPressed(KeyEvent e) {
+            if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                stop();
+            }
+        }
+
+        @Override
+        public void keyTyped(KeyEvent e) {
+            // Not used
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            // Not used
+        }
+
+        @Override
+        public void hierarchyChanged(HierarchyEvent e) {
+            // The view is disposed (viewer closed or layout changed)
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !component.isDisplayable()) {
+                stop();
+            }
+        }
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            String name = evt.getPropertyName();
+            if ("remove".equals(name) || "remove.repaint".equals(name)) {
+                stop();
+            }
+        }
+
+        /**
+         * The view resets its mouse actions by removing all the listeners of the component and
+         * adding its own: the session, detached, ends at the next press or entry in the view.
+         */
+        @Override
+        public void eventDispatched(AWTEvent event) {
+            int id = event.getID();
+            if (event.getSource() == component
+                && (id == MouseEvent.MOUSE_PRESSED || id == MouseEvent.MOUSE_ENTERED)
+                && !Arrays.asList(component.getMouseListeners()).contains(this)) {
+                stop();
+            }
+        }
+    }
+
+    private static MeasurementsAdapter getMeasurementAdapter(ViewCanvas<?> view) {
+        MeasurableLayer layer = view.getMeasurableLayer();
+        if (layer == null || !layer.hasContent()) {
+            return null;
+        }
+        return layer.getMeasurementAdapter((Unit) view.getActionValue(ActionW.SPATIAL_UNIT.cmd()));
+    }
+    
     /**
-     * Start the perpendicular distance measurement mode.
-     * User must have a line selected, then click a point to measure distance.
+     * Start the perpendicular distance measurement mode in this view.
+     * User must have a line selected, then click points to measure distances.
      * 
      * @param view The ViewCanvas containing the graphics
      */
@@ -54,63 +339,29 @@ public class PerpendicularDistanceAction {
         }
         
         if (targetLine == null) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(), 
-                "请先选中一条参考线", 
-                "垂直距离测量", 
-                JOptionPane.WARNING_MESSAGE);
+            Toast.show(view.getJComponent(), "请先选中一条参考线");
             return;
         }
         
-        final LineGraphic refLine = targetLine;
-        
-        // Cancel any previous listener
-        cancelMeasurement();
-        
-        // Store current view
-        currentView = view;
-        
-        // Change cursor to crosshair
-        originalCursor = view.getJComponent().getCursor();
-        view.getJComponent().setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR));
-        
-        // Add mouse listener to capture click
-        currentListener = new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                if (e.getButton() == MouseEvent.BUTTON1) {
-                    // Get click point in image coordinates
-                    Point2D clickPoint = view.getImageCoordinatesFromMouse(e.getX(), e.getY());
-                    
-                    if (clickPoint != null) {
-                        createPerpendicularLine(view, refLine, clickPoint);
-                    }
-                    
-                    // Remove listener and restore cursor
-                    cancelMeasurement();
-                } else if (e.getButton() == MouseEvent.BUTTON3) {
-                    // Right click to cancel
-                    cancelMeasurement();
-                }
-            }
-        };
-        
-        view.getJComponent().addMouseListener(currentListener);
+        // Only the previous mode of this view is replaced, other views keep theirs
+        cancelMeasurement(view);
+        new PickSession(view, targetLine).start();
     }
     
     /**
-     * Cancel the measurement mode.
+     * Cancel the measurement mode of a view.
      */
-    public static void cancelMeasurement() {
-        if (currentListener != null && currentView != null) {
-            currentView.getJComponent().removeMouseListener(currentListener);
-            if (originalCursor != null) {
-                currentView.getJComponent().setCursor(originalCursor);
-            }
+    public static void cancelMeasurement(ViewCanvas<?> view) {
+        if (view != null && view.getJComponent().getClientProperty(SESSION_KEY) instanceof PickSession session) {
+            session.stop();
         }
-        currentListener = null;
-        currentView = null;
-        originalCursor = null;
+    }
+    
+    /**
+     * @return true if the view is in measurement mode
+     */
+    public static boolean isMeasuring(ViewCanvas<?> view) {
+        return view != null && view.getJComponent().getClientProperty(SESSION_KEY) instanceof PickSession;
     }
     
     /**
@@ -124,16 +375,10 @@ public class PerpendicularDistanceAction {
             return;
         }
         
-        // Calculate the foot of perpendicular (closest point on line to click point)
-        Point2D footPoint = getPerpendicularFoot(p1, p2, clickPoint);
-        
-        // Create the perpendicular line from click point to foot point
-        LineGraphic perpLine = new LineGraphic();
-        perpLine.setLayerType(LayerType.MEASURE);
-        perpLine.setLineThickness(refLine.getLineThickness());
-        
+        // The perpendicular from the click point stays bound to the reference line
         try {
-            perpLine.buildGraphic(Arrays.asList(clickPoint, footPoint));
+            ConstructionGraph.construct(view, ConstructionType.PERPENDICULAR_DISTANCE,
+                new Graphic[] {refLine}, clickPoint.getX(), clickPoint.getY());
         } catch (InvalidShapeException e) {
             JOptionPane.showMessageDialog(
                 view.getJComponent(), 
@@ -142,55 +387,5 @@ public class PerpendicularDistanceAction {
                 JOptionPane.ERROR_MESSAGE);
             return;
         }
-        
-        // Add to graphic model
-        AbstractGraphicModel.addGraphicToModel(view, perpLine);
-        
-        // Refresh view
-        view.getJComponent().repaint();
-    }
-    
-    /**
-     * Calculate the foot of perpendicular from point P to line AB.
-     * This is the closest point on line AB to point P.
-     * 
-     * @param lineStart Start point of line (A)
-     * @param lineEnd End point of line (B)
-     * @param point The point (P)
-     * @return The foot of perpendicular on line AB
-     */
-    private static Point2D getPerpendicularFoot(Point2D lineStart, Point2D lineEnd, Point2D point) {
-        double ax = lineStart.getX();
-        double ay = lineStart.getY();
-        double bx = lineEnd.getX();
-        double by = lineEnd.getY();
-        double px = point.getX();
-        double py = point.getY();
-        
-        // Direction vector of line AB
-        double dx = bx - ax;
-        double dy = by - ay;
-        
-        // Length squared of AB
-        double lenSq = dx * dx + dy * dy;
-        
-        if (lenSq < 1e-10) {
-            // Line is essentially a point
-            return new Point2D.Double(ax, ay);
-        }
-        
-        // Parameter t for the foot point: F = A + t * (B - A)
-        // t = dot(AP, AB) / |AB|^2
-        double t = ((px - ax) * dx + (py - ay) * dy) / lenSq;
-        
-        // Note: We don't clamp t to [0,1] so the foot can be on the extended line
-        // If you want to restrict to the line segment, uncomment below:
-        // t = Math.max(0, Math.min(1, t));
-        
-        // Calculate foot point
-        double footX = ax + t * dx;
-        double footY = ay + t * dy;
-        
-        return new Point2D.Double(footX, footY);
     }
 }
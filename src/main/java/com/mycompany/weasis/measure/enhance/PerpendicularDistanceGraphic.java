@@ -0,0 +1,107 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.weasis.core.api.image.measure.MeasurementsAdapter;
+import org.weasis.core.api.image.util.MeasurableLayer;
+import org.weasis.core.api.image.util.Unit;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.utils.bean.MeasureItem;
+import org.weasis.core.ui.model.utils.bean.Measurement;
+
+/**
+ * Segment from a point to its perpendicular foot on a reference line.
+ *
+ * The reference line is the source of the {@link ConstructionType#PERPENDICULAR_DISTANCE}
+ * construction. The label shows the calibrated distance from the point to the line and the
+ * position of the foot along the reference line (projection of the point from its start). The
+ * values are computed once per change of the points or of the calibration and then reused.
+ */
+public class PerpendicularDistanceGraphic extends LineGraphic {
+
+    public static final Measurement DISTANCE = new Measurement("Perpendicular distance", 1, true, true, true);
+    public static final Measurement PROJECTED = new Measurement("Projected distance", 2, true, true, true);
+
+    private static final List<Measurement> MEASUREMENT_LIST = List.of(DISTANCE, PROJECTED);
+
+    // Point, foot, reference start and end (x, y), then the calibration ratio
+    private final double[] cacheKey = new double[9];
+    private final double[] currentKey = new double[9];
+    private String cachedUnit;
+    private List<MeasureItem> cachedItems;
+
+    public PerpendicularDistanceGraphic() {
+        super();
+    }
+
+    public PerpendicularDistanceGraphic(PerpendicularDistanceGraphic graphic) {
+        super(graphic);
+    }
+
+    @Override
+    public List<MeasureItem> computeMeasurements(MeasurableLayer layer, boolean releaseEvent, Unit displayUnit) {
+        if (layer == null || !layer.hasContent() || !isShapeValid()) {
+            return null;
+        }
+        Graphic[] sources = ConstructionGraph.getSources(this);
+        if (sources == null || !ConstructionType.readSources(sources, currentKey)) {
+            // No longer bound: a plain line
+            return super.computeMeasurements(layer, releaseEvent, displayUnit);
+        }
+
+        MeasurementsAdapter adapter = layer.getMeasurementAdapter(displayUnit);
+        double ratio = adapter.getCalibRatio();
+        String unit = adapter.getUnit();
+
+        // Reference line is in [0..3], add the point, the foot and the ratio
+        System.arraycopy(currentKey, 0, currentKey, 4, 4);
+        List<Point2D> pts = getPts();
+        currentKey[0] = pts.get(0).getX();
+        currentKey[1] = pts.get(0).getY();
+        currentKey[2] = pts.get(1).getX();
+        currentKey[3] = pts.get(1).getY();
+        currentKey[8] = ratio;
+        if (cachedItems != null && Arrays.equals(cacheKey, currentKey) && unit.equals(cachedUnit)) {
+            return cachedItems;
+        }
+
+        double ax = currentKey[4];
+        double ay = currentKey[5];
+        double bx = currentKey[6];
+        double by = currentKey[7];
+        double refLength = GeomKernel.length(bx - ax, by - ay);
+        double distance = GeomKernel.length(currentKey[2] - currentKey[0], currentKey[3] - currentKey[1]);
+
+        List<MeasureItem> measVal = new ArrayList<>(2);
+        measVal.add(new MeasureItem(DISTANCE, ratio * distance, unit));
+        if (refLength >= GeomKernel.MIN_LENGTH) {
+            // Signed position of the foot from the start of the reference line
+            double along = GeomKernel.dot(bx - ax, by - ay, currentKey[0] - ax, currentKey[1] - ay) / refLength;
+            measVal.add(new MeasureItem(PROJECTED, ratio * along, unit));
+        }
+
+        System.arraycopy(currentKey, 0, cacheKey, 0, cacheKey.length);
+        cachedUnit = unit;
+        cachedItems = measVal;
+        return measVal;
+    }
+
+    @Override
+    public List<Measurement> getMeasurementList() {
+        return MEASUREMENT_LIST;
+    }
+
+    @Override
+    public String getUIName() {
+        return "Perpendicular Distance";
+    }
+
+    @Override
+    public PerpendicularDistanceGraphic copy() {
+        return new PerpendicularDistanceGraphic(this);
+    }
+}
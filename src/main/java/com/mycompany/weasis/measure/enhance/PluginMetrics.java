@@ -0,0 +1,233 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counters and latency histograms of the hot paths of the plugin (snap queries, construction
+ * actions, shape rebuilds of the tools, viewer monitor), published as an MXBean for JConsole or
+ * JMC, and emitted as Flight Recorder events when a recording is running.
+ *
+ * Each probe has a {@link LatencyHistogram}, like the views in {@link SnapProfiler}. The Flight
+ * Recorder events are only created when the jdk.jfr module is visible to the bundle and their
+ * event type is enabled by a running recording.
+ */
+public final class PluginMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PluginMetrics.class);
+
+    public static final String OBJECT_NAME = "com.mycompany.weasis.measure.enhance:type=PluginMetrics";
+
+    private static final boolean FLIGHT_RECORDER = isFlightRecorderVisible();
+
+    enum EventKind {
+        SNAP, ACTION, SHAPE, MONITOR
+    }
+
+    public enum Probe {
+        SNAP_QUERY("snapQuery", EventKind.SNAP),
+        ANGLE("angle", EventKind.ACTION),
+        COBB("cobb", EventKind.ACTION),
+        BISECTOR("bisector", EventKind.ACTION),
+        PERPENDICULAR_DISTANCE("perpendicularDistance", EventKind.ACTION),
+        PARALLEL_LINE("parallel", EventKind.ACTION),
+        TRISECTION("trisection", EventKind.ACTION),
+        PROPAGATION("propagate", EventKind.ACTION),
+        UNDO("undo", EventKind.ACTION),
+        REDO("redo", EventKind.ACTION),
+        CIRCLE_CENTER_SHAPE("circleCenter.buildShape", EventKind.SHAPE),
+        CONTINUE_LINE_SHAPE("continueLine.buildShape", EventKind.SHAPE),
+        CIRCLE_FIT_SHAPE("circleFit.buildShape", EventKind.SHAPE),
+        VIEWER_MONITOR("viewerMonitor", EventKind.MONITOR);
+
+        final String key;
+        final EventKind kind;
+        final LatencyHistogram stats = new LatencyHistogram();
+
+        Probe(String key, EventKind kind) {
+            this.key = key;
+            this.kind = kind;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * One timed execution of a probe, ended in a finally block.
+     */
+    public static final class Span {
+        private final Probe probe;
+        private final long start;
+        // Flight Recorder event, or null when no recording listens to it
+        private final Object event;
+
+        private Span(Probe probe) {
+            this.probe = probe;
+            this.event = FLIGHT_RECORDER ? FlightRecorderEvents.begin(probe) : null;
+            this.start = System.nanoTime();
+        }
+
+        public void end() {
+            end(null);
+        }
+
+        /**
+         * @param detail Outcome written in the Flight Recorder event, e.g. the snap type
+         */
+        public void end(String detail) {
+            probe.stats.add(System.nanoTime() - start);
+            if (event != null) {
+                FlightRecorderEvents.commit(event, probe, detail);
+            }
+        }
+    }
+
+    private static final class Bean implements PluginMetricsMXBean {
+
+        @Override
+        public Map<String, Long> getCounts() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Probe probe : Probe.values()) {
+                map.put(probe.key, probe.stats.getCount());
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Double> getMeanMicros() {
+            Map<String, Double> map = new LinkedHashMap<>();
+            for (Probe probe : Probe.values()) {
+                map.put(probe.key, probe.stats.getMeanMicros());
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Long> getP50Micros() {
+            return percentiles(0.5);
+        }
+
+        @Override
+        public Map<String, Long> getP99Micros() {
+            return percentiles(0.99);
+        }
+
+        private static Map<String, Long> percentiles(double p) {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Probe probe : Probe.values()) {
+                map.put(probe.key, probe.stats.percentileMicros(p));
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, Double> getMaxMicros() {
+            Map<String, Double> map = new LinkedHashMap<>();
+            for (Probe probe : Probe.values()) {
+                map.put(probe.key, probe.stats.getMaxMicros());
+            }
+            return map;
+        }
+
+        @Override
+        public String[] getHistograms() {
+            Probe[] probes = Probe.values();
+            String[] lines = new String[probes.length];
+            for (int p = 0; p < probes.length; p++) {
+                lines[p] = probes[p].key + ':' + probes[p].stats.formatBuckets();
+            }
+            return lines;
+        }
+
+        @Override
+        public boolean isFlightRecorderAvailable() {
+            return FLIGHT_RECORDER;
+        }
+
+        @Override
+        public void reset() {
+            PluginMetrics.reset();
+        }
+    }
+
+    private PluginMetrics() {
+    }
+
+    public static Span begin(Probe probe) {
+        return new Span(probe);
+    }
+
+    /**
+     * Run a toolbar action as one span of its probe.
+     */
+    public static void run(Probe probe, Runnable action) {
+        Span span = begin(probe);
+        try {
+            action.run();
+        } finally {
+            span.end();
+        }
+    }
+
+    public static long getCount(Probe probe) {
+        return probe.stats.getCount();
+    }
+
+    public static void reset() {
+        for (Probe probe : Probe.values()) {
+            probe.stats.reset();
+        }
+    }
+
+    /**
+     * Publish the metrics in the platform MBean server, replacing a previous registration.
+     */
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new Bean(), name);
+            LOGGER.info("Metrics published as {} (Flight Recorder events {})", OBJECT_NAME,
+                FLIGHT_RECORDER ? "enabled" : "unavailable");
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warn("Cannot publish the metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    public static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | RuntimeException e) {
+            LOGGER.debug("Cannot remove the metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * jdk.jfr is imported optionally: the event classes must not be loaded when the framework
+     * does not export it to the bundle.
+     */
+    private static boolean isFlightRecorderVisible() {
+        try {
+            Class.forName("jdk.jfr.Event", false, PluginMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link PluginMetrics}. The maps are keyed by probe, the percentiles
+ * are the upper bound of their power of two bucket of microseconds.
+ */
+public interface PluginMetricsMXBean {
+
+    Map<String, Long> getCounts();
+
+    Map<String, Double> getMeanMicros();
+
+    Map<String, Long> getP50Micros();
+
+    Map<String, Long> getP99Micros();
+
+    Map<String, Double> getMaxMicros();
+
+    /**
+     * @return one line per probe with the non-empty buckets
+     */
+    String[] getHistograms();
+
+    boolean isFlightRecorderAvailable();
+
+    void reset();
+}
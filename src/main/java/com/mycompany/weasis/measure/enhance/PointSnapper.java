@@ -0,0 +1,65 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.util.MouseEventDouble;
+
+/**
+ * Snapping of the point being placed by a tool graphic, with the last query cached so that
+ * rebuilding the shape without moving the point costs nothing.
+ */
+final class PointSnapper {
+
+    // Last point given to the snapping and its result, to skip the query when it did not move
+    private double lastQueryX = Double.NaN;
+    private double lastQueryY = Double.NaN;
+    private boolean snapped = false;
+    private double snapX;
+    private double snapY;
+
+    /**
+     * Snap the only point that moved since the shape was last built. Nothing is snapped when
+     * several points moved (the whole graphic is dragged).
+     */
+    void snapMovedPoint(MouseEventDouble mouseEvent, List<Point2D> pts, ShapeBuffers buffers, Graphic graphic) {
+        if (mouseEvent == null || pts == null) {
+            return;
+        }
+        int index = buffers.getMovedIndex(pts);
+        if (index >= 0) {
+            snap(mouseEvent, pts.get(index), index > 0 ? pts.get(index - 1) : null, graphic);
+        }
+        if (ShapeBuffers.isRelease(mouseEvent) && mouseEvent.getSource() instanceof ViewCanvas<?> view) {
+            SnapIndicator.hide(view);
+        }
+    }
+
+    /**
+     * Move the point onto a nearby snap target. The point is moved rather than replaced, so
+     * that it is never shared with the other graphic.
+     */
+    void snap(MouseEventDouble mouseEvent, Point2D currentPt, Point2D anchor, Graphic graphic) {
+        if (currentPt == null) {
+            return;
+        }
+        if (currentPt.getX() != lastQueryX || currentPt.getY() != lastQueryY) {
+            lastQueryX = currentPt.getX();
+            lastQueryY = currentPt.getY();
+            Point2D target = SnappingUtil.getSnapPoint(mouseEvent, currentPt, graphic, anchor);
+            snapped = target != null;
+            if (snapped) {
+                snapX = target.getX();
+                snapY = target.getY();
+            }
+        }
+        if (snapped) {
+            currentPt.setLocation(snapX, snapY);
+            // Next time, the snapped location itself needs no new query
+            lastQueryX = snapX;
+            lastQueryY = snapY;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mycompany.weasis.measure.enhance;
+
+/**
+ * Return values of the methods that a dynamic proxy of a large Weasis interface does not
+ * answer (see ImageMeasurableLayer, and the headless view of the test kit).
+ */
+public final class ProxyDefaults {
+
+    private ProxyDefaults() {
+    }
+
+    /**
+     * @return null for objects and void, false or zero for primitives
+     */
+    public static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,282 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.GridLayout;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.swing.BoundedRangeModel;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.ActionW;
+import org.weasis.core.api.gui.util.Filter;
+import org.weasis.core.api.media.data.ImageElement;
+import org.weasis.core.api.media.data.MediaSeries;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.layer.LayerType;
+import org.weasis.dicom.viewer2d.EventManager;
+
+/**
+ * Copies the selected lines, and the constructions bound to them, to a range of slices of the
+ * displayed series.
+ *
+ * The lines are copied at the same image coordinates on every slice, so their points and the
+ * points of their constructions are computed once, as primitive arrays shared by all the
+ * target images. The graphics are only created, added to the graphic model of the image and
+ * bound to the copied line when the slice is displayed, so a long stack costs one map entry
+ * per image until it is browsed, in any view of any image viewer: the views are all looked at
+ * when the slice of the selected view changes, which also scrolls the views synchronized with
+ * it. The pending slices are only accessed from the EDT.
+ */
+public class SeriesPropagationAction {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeriesPropagationAction.class);
+
+    private static final String TITLE = "Propagate to Series";
+
+    private static final Map<ImageElement, PendingSlice> PENDING = new WeakHashMap<>();
+    private static final ChangeListener SLICE_LISTENER = e -> SwingUtilities.invokeLater(
+        SeriesPropagationAction::materializeDisplayedSlices);
+
+    private static BoundedRangeModel observedSlider;
+
+    /**
+     * Geometry shared by all the slices: the source lines and their constructions.
+     */
+    private record Template(double[] lines, Float[] thickness, ConstructionType[] types, int[] sourceIndex,
+        double[][] args) {
+    }
+
+    /**
+     * Points of the lines and constructions, x, y pairs, shared by all the target slices and
+     * never modified. Must not reference an image, which is the weak key of the pending map.
+     */
+    private record PendingSlice(Template template, double[] linePoints, double[][] constructionPoints) {
+    }
+
+    private SeriesPropagationAction() {
+    }
+
+    /**
+     * Propagate the selected lines of the view, with their constructions, to a range of slices
+     * chosen by the user.
+     */
+    public static <E extends ImageElement> void propagate(ViewCanvas<E> view) {
+        if (view == null || view.getGraphicManager() == null || view.getSeries() == null) {
+            return;
+        }
+
+        List<LineGraphic> lines = new ArrayList<>();
+        for (Graphic g : view.getGraphicManager().getSelectedGraphics()) {
+            if (g instanceof LineGraphic lineGraphic && !ConstructionGraph.isConstructed(g)) {
+                lines.add(lineGraphic);
+            }
+        }
+        if (lines.isEmpty()) {
+            Toast.show(view.getJComponent(), "Please select a reference line first.");
+            return;
+        }
+        Template template = buildTemplate(lines);
+        if (template == null) {
+            return;
+        }
+
+        MediaSeries<E> series = view.getSeries();
+        @SuppressWarnings("unchecked")
+        Filter<E> filter = (Filter<E>) view.getActionValue(ActionW.FILTERED_SERIES.cmd());
+        List<E> images = series.copyOfMedias(filter, view.getCurrentSortComparator());
+        int current = images.indexOf(view.getImage());
+        int[] range = askRange(view, images.size(), current);
+        if (range == null) {
+            return;
+        }
+
+        PendingSlice slice = computeSlice(template);
+        int count = 0;
+        for (int i = range[0]; i <= range[1]; i++) {
+            if (i != current) {
+                PENDING.put(images.get(i), slice);
+                count++;
+            }
+        }
+        observeSliceChanges();
+        LOGGER.info("Propagated {} lines to {} slices", lines.size(), count);
+        // Other views of the layout may already display one of the slices
+        materializeDisplayedSlices();
+    }
+
+    /**
+     * Forget the pending slices, when the plugin is stopped.
+     */
+    public static void shutdown() {
+        SwingUtilities.invokeLater(() -> {
+            if (observedSlider != null) {
+                observedSlider.removeChangeListener(SLICE_LISTENER);
+                observedSlider = null;
+            }
+            PENDING.clear();
+        });
+    }
+
+    private static Template buildTemplate(List<LineGraphic> lines) {
+        double[] src = new double[lines.size() * 4];
+        double[] linePoints = new double[4];
+        Float[] thickness = new Float[lines.size()];
+        List<ConstructionGraph.Construction> constructions = new ArrayList<>();
+        List<Integer> sourceIndex = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            LineGraphic line = lines.get(i);
+            if (!ConstructionType.readSources(new Graphic[] {line}, linePoints)) {
+                return null;
+            }
+            System.arraycopy(linePoints, 0, src, 4 * i, 4);
+            thickness[i] = line.getLineThickness();
+            for (ConstructionGraph.Construction construction : ConstructionGraph.getConstructions(line)) {
+                constructions.add(construction);
+                sourceIndex.add(i);
+            }
+        }
+
+        int count = constructions.size();
+        ConstructionType[] types = new ConstructionType[count];
+        double[][] args = new double[count][];
+        int[] sources = new int[count];
+        for (int i = 0; i < count; i++) {
+            types[i] = constructions.get(i).type();
+            args[i] = constructions.get(i).args();
+            sources[i] = sourceIndex.get(i);
+        }
+        return new Template(src, thickness, types, sources, args);
+    }
+
+    /**
+     * @return the first and last slice indexes (0-based, inclusive), or null if cancelled
+     */
+    private static int[] askRange(ViewCanvas<?> view, int size, int current) {
+        SpinnerNumberModel from = new SpinnerNumberModel(1, 1, size, 1);
+        SpinnerNumberModel to = new SpinnerNumberModel(size, 1, size, 1);
+        JPanel panel = new JPanel(new GridLayout(3, 2, 5, 5));
+        panel.add(new JLabel("Current slice:"));
+        panel.add(new JLabel(String.valueOf(current + 1)));
+        panel.add(new JLabel("From slice:"));
+        panel.add(new JSpinner(from));
+        panel.add(new JLabel("To slice:"));
+        panel.add(new JSpinner(to));
+
+        int option = JOptionPane.showConfirmDialog(view.getJComponent(), panel, TITLE,
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return null;
+        }
+        int first = from.getNumber().intValue() - 1;
+        int last = to.getNumber().intValue() - 1;
+        return first <= last ? new int[] {first, last} : new int[] {last, first};
+    }
+
+    /**
+     * Compute the points of the lines and constructions, the same for every slice.
+     */
+    private static PendingSlice computeSlice(Template template) {
+        double[] linePoints = template.lines();
+        double[][] constructionPoints = new double[template.types().length][];
+        double[] src = new double[4];
+        for (int i = 0; i < constructionPoints.length; i++) {
+            ConstructionType type = template.types()[i];
+            System.arraycopy(linePoints, 4 * template.sourceIndex()[i], src, 0, 4);
+            double[] out = new double[type.getPointCount() * 2];
+            if (type.computePoints(src, template.args()[i], out)) {
+                constructionPoints[i] = out;
+            }
+        }
+        return new PendingSlice(template, linePoints, constructionPoints);
+    }
+
+    private static void observeSliceChanges() {
+        if (observedSlider != null) {
+            return;
+        }
+        try {
+            EventManager.getInstance().getAction(ActionW.SCROLL_SERIES).ifPresent(slider -> {
+                observedSlider = slider.getSliderModel();
+                observedSlider.addChangeListener(SLICE_LISTENER);
+            });
+        } catch (Exception e) {
+            LOGGER.debug("Error observing slice changes: {}", e.getMessage());
+        }
+    }
+
+    private static void materializeDisplayedSlices() {
+        if (PENDING.isEmpty()) {
+            return;
+        }
+        for (ViewCanvas<?> view : OpenViews.list()) {
+            materialize(view);
+        }
+    }
+
+    /**
+     * Create the graphics of the slice displayed in the view, if it has pending ones.
+     */
+    private static void materialize(ViewCanvas<?> view) {
+        ImageElement image = view.getImage();
+        GraphicModel model = view.getGraphicManager();
+        if (image == null || model == null) {
+            return;
+        }
+        PendingSlice slice = PENDING.remove(image);
+        if (slice == null) {
+            return;
+        }
+
+        Template template = slice.template();
+        try {
+            int lineCount = template.thickness().length;
+            LineGraphic[] lines = new LineGraphic[lineCount];
+            List<Graphic> graphics = new ArrayList<>(lineCount + template.types().length);
+            for (int i = 0; i < lineCount; i++) {
+                double[] p = slice.linePoints();
+                LineGraphic line = new LineGraphic();
+                line.setLayerType(LayerType.MEASURE);
+                line.setLineThickness(template.thickness()[i]);
+                line.buildGraphic(List.of(new Point2D.Double(p[4 * i], p[4 * i + 1]),
+                    new Point2D.Double(p[4 * i + 2], p[4 * i + 3])));
+                lines[i] = line;
+                graphics.add(line);
+            }
+            Graphic[] targets = new Graphic[template.types().length];
+            for (int i = 0; i < targets.length; i++) {
+                double[] points = slice.constructionPoints()[i];
+                if (points != null) {
+                    targets[i] = ConstructionGraph.build(template.types()[i],
+                        template.thickness()[template.sourceIndex()[i]], points);
+                    graphics.add(targets[i]);
+                }
+            }
+
+            ConstructionGraph.addAllToModel(view, graphics);
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] != null) {
+                    ConstructionGraph.bind(view, targets[i], template.types()[i],
+                        new Graphic[] {lines[template.sourceIndex()[i]]}, template.args()[i]);
+                }
+            }
+            // One undo group per slice, in the log of its image; the copied lines are sources
+            // like the lines drawn by the user, so only their constructions are recorded
+            CommandLog.record(view, graphics);
+        } catch (Exception e) {
+            LOGGER.error("Cannot create the propagated graphics", e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.event.MouseEvent;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+
+import org.weasis.core.ui.util.MouseEventDouble;
+
+/**
+ * Reusable shape buffers of a tool graphic, and the points its shape was last built from.
+ *
+ * Two paths are used alternately: setShape reports the previous shape in its "bounds" event,
+ * so the path that is being rebuilt must not be the one currently set on the graphic.
+ */
+final class ShapeBuffers {
+
+    private final Path2D.Double[] paths = {new Path2D.Double(), new Path2D.Double()};
+    private int index = 0;
+    private double[] lastPoints = new double[0];
+    private int lastCount = -1;
+
+    /**
+     * @return the other path, emptied
+     */
+    Path2D.Double nextPath() {
+        index ^= 1;
+        Path2D.Double path = paths[index];
+        path.reset();
+        return path;
+    }
+
+    /**
+     * @return true if the points are the same as when {@link #remember(List)} was last called
+     */
+    boolean isUnchanged(List<Point2D> pts) {
+        if (pts.size() != lastCount) {
+            return false;
+        }
+        for (int i = 0; i < lastCount; i++) {
+            Point2D p = pts.get(i);
+            if (p == null || p.getX() != lastPoints[2 * i] || p.getY() != lastPoints[2 * i + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the only point that was added or moved since {@link #remember(List)}
+     *     was last called, or -1 if none or several did
+     */
+    int getMovedIndex(List<Point2D> pts) {
+        int moved = -1;
+        for (int i = 0; i < pts.size(); i++) {
+            Point2D p = pts.get(i);
+            if (p == null) {
+                continue;
+            }
+            if (i >= lastCount || p.getX() != lastPoints[2 * i] || p.getY() != lastPoints[2 * i + 1]) {
+                if (moved >= 0) {
+                    return -1;
+                }
+                moved = i;
+            }
+        }
+        return moved;
+    }
+
+    void remember(List<Point2D> pts) {
+        if (lastPoints.length < pts.size() * 2) {
+            lastPoints = Arrays.copyOf(lastPoints, pts.size() * 2);
+        }
+        lastCount = pts.size();
+        for (int i = 0; i < lastCount; i++) {
+            Point2D p = pts.get(i);
+            lastPoints[2 * i] = p == null ? Double.NaN : p.getX();
+            lastPoints[2 * i + 1] = p == null ? Double.NaN : p.getY();
+        }
+    }
+
+    void invalidate() {
+        lastCount = -1;
+    }
+
+    /**
+     * The label measurements are only complete on release, so the shape must be rebuilt then.
+     */
+    static boolean isRelease(MouseEventDouble mouseEvent) {
+        return mouseEvent != null && mouseEvent.getID() == MouseEvent.MOUSE_RELEASED;
+    }
+}
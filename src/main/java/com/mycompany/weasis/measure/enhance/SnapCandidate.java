@@ -0,0 +1,11 @@
+package com.mycompany.weasis.measure.enhance;
+
+import org.weasis.core.ui.model.graphic.Graphic;
+
+/**
+ * A point to snap to, in image space.
+ *
+ * @param source The graphic the point was derived from, null for image edges
+ */
+public record SnapCandidate(double x, double y, SnapType type, Graphic source) {
+}
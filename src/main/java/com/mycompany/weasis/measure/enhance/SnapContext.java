@@ -0,0 +1,134 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.graphic.Graphic;
+
+/**
+ * One snap query: the cursor, the tolerance, the geometry near the cursor and the best candidate
+ * offered so far. Everything is in image space.
+ */
+public final class SnapContext {
+
+    private final ViewCanvas<?> view;
+    private final double x;
+    private final double y;
+    private final double radius;
+    private final Graphic excludeGraphic;
+    private final Point2D anchor;
+    private final long deadline;
+    private final HandleSpatialIndex handles;
+    private final GeometrySpatialIndex geometry;
+
+    private List<SnapPrimitive> primitives;
+    private SnapType bestType;
+    private double bestX;
+    private double bestY;
+    private double bestDistSq;
+    private Graphic bestSource;
+    private int offers;
+
+    SnapContext(ViewCanvas<?> view, double x, double y, double radius, Graphic excludeGraphic, Point2D anchor,
+        long deadline, HandleSpatialIndex handles, GeometrySpatialIndex geometry) {
+        this.view = view;
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+        this.excludeGraphic = excludeGraphic;
+        this.anchor = anchor;
+        this.deadline = deadline;
+        this.handles = handles;
+        this.geometry = geometry;
+    }
+
+    public ViewCanvas<?> getView() {
+        return view;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    public Graphic getExcludeGraphic() {
+        return excludeGraphic;
+    }
+
+    /**
+     * @return the previous point of the graphic being drawn (for tangents), or null
+     */
+    public Point2D getAnchor() {
+        return anchor;
+    }
+
+    public boolean isOverBudget() {
+        return System.nanoTime() > deadline;
+    }
+
+    /**
+     * @return the segments and circles of the other graphics indexed in the cells around the
+     *     cursor (not all of them are within the radius), at most the maximum number of candidates
+     *     of the settings
+     */
+    public List<SnapPrimitive> getPrimitives() {
+        if (primitives == null) {
+            primitives = new ArrayList<>();
+            geometry.collect(x, y, radius, excludeGraphic, SnapSettings.getMaxCandidates(), primitives);
+        }
+        return primitives;
+    }
+
+    HandleSpatialIndex getHandleIndex() {
+        return handles;
+    }
+
+    /**
+     * Offer a candidate; it is kept if it is within the radius and better than the current one.
+     */
+    public void offer(SnapType type, double px, double py, Graphic source) {
+        offers++;
+        double dx = px - x;
+        double dy = py - y;
+        double distSq = dx * dx + dy * dy;
+        if (distSq > radius * radius) {
+            return;
+        }
+        if (bestType == null || type.getPriority() < bestType.getPriority()
+            || (type.getPriority() == bestType.getPriority() && distSq < bestDistSq)) {
+            bestType = type;
+            bestX = px;
+            bestY = py;
+            bestDistSq = distSq;
+            bestSource = source;
+        }
+    }
+
+    /**
+     * @return the priority of the best candidate so far, or Integer.MAX_VALUE if there is none
+     */
+    int getBestPriority() {
+        return bestType == null ? Integer.MAX_VALUE : bestType.getPriority();
+    }
+
+    int getPrimitiveCount() {
+        return primitives == null ? 0 : primitives.size();
+    }
+
+    int getOfferCount() {
+        return offers;
+    }
+
+    SnapCandidate getBest() {
+        return bestType == null ? null : new SnapCandidate(bestX, bestY, bestType, bestSource);
+    }
+}
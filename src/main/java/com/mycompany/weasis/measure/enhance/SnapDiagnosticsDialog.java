@@ -0,0 +1,171 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.Window;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JTable;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+
+/**
+ * Non-modal editor of the {@link SnapSettings} with the statistics of {@link SnapProfiler} for
+ * each view, refreshed every second while the dialog is open.
+ */
+public class SnapDiagnosticsDialog extends JDialog {
+
+    private static final int REFRESH_MS = 1000;
+
+    private final StatsTableModel tableModel = new StatsTableModel();
+    private final Timer refreshTimer = new Timer(REFRESH_MS, e -> refresh());
+
+    private SnapDiagnosticsDialog(Window owner) {
+        super(owner, "Snapping", ModalityType.MODELESS);
+
+        JSpinner tolerance = new JSpinner(new SpinnerNumberModel(SnapSettings.getTolerance(), 1.0, 100.0, 1.0));
+        tolerance.addChangeListener(e -> SnapSettings.setTolerance(((Number) tolerance.getValue()).doubleValue()));
+        JSpinner maxCandidates =
+            new JSpinner(new SpinnerNumberModel(SnapSettings.getMaxCandidates(), 1, 100_000, 16));
+        maxCandidates.addChangeListener(
+            e -> SnapSettings.setMaxCandidates(((Number) maxCandidates.getValue()).intValue()));
+        JSpinner budget = new JSpinner(new SpinnerNumberModel(SnapSettings.getBudgetMicros(), 0, 1_000_000, 500));
+        budget.addChangeListener(e -> SnapSettings.setBudgetMicros(((Number) budget.getValue()).intValue()));
+
+        JPanel values = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        values.add(new JLabel("Tolerance (px):"));
+        values.add(tolerance);
+        values.add(new JLabel("Max candidates:"));
+        values.add(maxCandidates);
+        values.add(new JLabel("Budget (µs):"));
+        values.add(budget);
+
+        JPanel types = new JPanel(new GridLayout(0, 4));
+        types.setBorder(BorderFactory.createTitledBorder("Targets"));
+        for (SnapType type : SnapType.values()) {
+            if (type == SnapType.EDGE) {
+                // Same setting as the edge snapping button of the toolbar
+                JCheckBox edge = new JCheckBox("Image edges", SnapSettings.isEdgeSnap());
+                edge.addActionListener(e -> SnapSettings.setEdgeSnap(edge.isSelected()));
+                types.add(edge);
+            } else {
+                JCheckBox box = new JCheckBox(type.getTitle(), SnapSettings.isEnabled(type));
+                box.addActionListener(e -> SnapSettings.setEnabled(type, box.isSelected()));
+                types.add(box);
+            }
+        }
+
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(values, BorderLayout.NORTH);
+        top.add(types, BorderLayout.CENTER);
+
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            SnapProfiler.reset();
+            refresh();
+        });
+        JButton logButton = new JButton("Write to log");
+        logButton.addActionListener(e -> SnapProfiler.logSummaries());
+
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottom.add(resetButton);
+        bottom.add(logButton);
+
+        getContentPane().add(top, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        getContentPane().add(bottom, BorderLayout.SOUTH);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        refresh();
+        refreshTimer.start();
+        setSize(760, 380);
+    }
+
+    public static void showDialog(ViewCanvas<?> view) {
+        Window owner = view == null ? null : SwingUtilities.getWindowAncestor(view.getJComponent());
+        SnapDiagnosticsDialog dialog = new SnapDiagnosticsDialog(owner);
+        dialog.setLocationRelativeTo(owner);
+        dialog.setVisible(true);
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
+    }
+
+    private void refresh() {
+        tableModel.setRows(SnapProfiler.getSummaries());
+    }
+
+    private static class StatsTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"View", "Calls", "Mean (µs)", "p50 (µs)", "p95 (µs)", "p99 (µs)",
+            "Max (µs)", "Over budget", "Candidates", "Max cand.", "Misses"};
+
+        private List<SnapProfiler.Summary> rows = List.of();
+
+        void setRows(List<SnapProfiler.Summary> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case 0 -> String.class;
+                case 2, 6, 8 -> Double.class;
+                case 9 -> Integer.class;
+                default -> Long.class;
+            };
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            SnapProfiler.Summary s = rows.get(row);
+            return switch (column) {
+                case 0 -> s.view();
+                case 1 -> s.calls();
+                case 2 -> Math.round(s.meanMicros() * 10.0) / 10.0;
+                case 3 -> s.p50Micros();
+                case 4 -> s.p95Micros();
+                case 5 -> s.p99Micros();
+                case 6 -> Math.round(s.maxMicros() * 10.0) / 10.0;
+                case 7 -> s.overBudget();
+                case 8 -> Math.round(s.meanPrimitives() * 10.0) / 10.0;
+                case 9 -> s.maxPrimitives();
+                default -> s.misses();
+            };
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+
+/**
+ * Snap queries of one GraphicModel, over its handle and geometry grids.
+ *
+ * The registered generators of the types enabled in {@link SnapSettings} run by increasing
+ * priority. Once a candidate is found, only the
+ * generators of the same priority still run (they may offer a closer point); the query also
+ * stops when the latency budget of the event is spent, returning the best candidate so far.
+ * Every query is recorded by {@link SnapProfiler}. Only used from the EDT.
+ */
+public class SnapEngine {
+
+    private static final long DEFAULT_BUDGET_NANOS = SnapSettings.DEFAULT_BUDGET_MICROS * 1000L;
+
+    private static final List<SnapGenerator> GENERATORS = new ArrayList<>(List.of(SnapGenerators.HANDLE,
+        SnapGenerators.INTERSECTION, SnapGenerators.CENTER, SnapGenerators.MIDPOINT, SnapGenerators.TANGENT,
+        SnapGenerators.NEAREST, SnapGenerators.EDGE));
+    private static long budgetNanos = DEFAULT_BUDGET_NANOS;
+
+    private final HandleSpatialIndex handles;
+    private final GeometrySpatialIndex geometry;
+
+    SnapEngine(GraphicModel model) {
+        this.handles = new HandleSpatialIndex(model);
+        this.geometry = new GeometrySpatialIndex(model);
+    }
+
+    /**
+     * Add a generator, run in the order of its priority (after the registered ones of the same
+     * priority).
+     */
+    public static void registerGenerator(SnapGenerator generator) {
+        if (generator != null && !GENERATORS.contains(generator)) {
+            GENERATORS.add(generator);
+            GENERATORS.sort(Comparator.comparingInt(g -> g.getType().getPriority()));
+        }
+    }
+
+    public static void unregisterGenerator(SnapGenerator generator) {
+        GENERATORS.remove(generator);
+    }
+
+    public static List<SnapGenerator> getGenerators() {
+        return List.copyOf(GENERATORS);
+    }
+
+    public static void setBudgetNanos(long nanos) {
+        budgetNanos = Math.max(0L, nanos);
+    }
+
+    public static long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * @param radius The tolerance in image space
+     * @param anchor The previous point of the graphic being drawn, or null
+     * @return the best candidate within the radius, or null
+     */
+    public SnapCandidate find(ViewCanvas<?> view, double x, double y, double radius, Graphic excludeGraphic,
+        Point2D anchor) {
+        long start = System.nanoTime();
+        SnapContext context =
+            new SnapContext(view, x, y, radius, excludeGraphic, anchor, start + budgetNanos, handles, geometry);
+        boolean overBudget = false;
+        boolean first = true;
+        for (int i = 0, n = GENERATORS.size(); i < n; i++) {
+            SnapGenerator generator = GENERATORS.get(i);
+            if (!SnapSettings.isEnabled(generator.getType())) {
+                continue;
+            }
+            if (generator.getType().getPriority() > context.getBestPriority()) {
+                break;
+            }
+            if (!first && context.isOverBudget()) {
+                overBudget = true;
+                break;
+            }
+            generator.generate(context);
+            first = false;
+        }
+        SnapCandidate best = context.getBest();
+        SnapProfiler.record(view, System.nanoTime() - start, context.getPrimitiveCount(), context.getOfferCount(),
+            best == null ? null : best.type(), overBudget);
+        return best;
+    }
+
+    void dispose() {
+        handles.dispose();
+        geometry.dispose();
+    }
+}
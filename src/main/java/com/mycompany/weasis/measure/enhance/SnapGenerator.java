@@ -0,0 +1,19 @@
+package com.mycompany.weasis.measure.enhance;
+
+/**
+ * Source of snap candidates, registered with {@link SnapEngine#registerGenerator(SnapGenerator)}.
+ *
+ * The generators are run by increasing priority of their type; the lower priority ones are
+ * skipped as soon as a candidate was found, and when the latency budget is spent.
+ */
+public interface SnapGenerator {
+
+    SnapType getType();
+
+    /**
+     * Offer the candidates near the cursor with {@link SnapContext#offer(SnapType, double, double,
+     * org.weasis.core.ui.model.graphic.Graphic)}. Long loops should give up when
+     * {@link SnapContext#isOverBudget()} returns true.
+     */
+    void generate(SnapContext context);
+}
@@ -0,0 +1,183 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.geom.Point2D;
+import java.util.List;
+
+/**
+ * Built-in snap candidate generators, all registered by default in {@link SnapEngine}.
+ */
+public final class SnapGenerators {
+
+    // Pairs of segments tested between two checks of the latency budget
+    private static final int PAIRS_PER_CHECK = 64;
+
+    private SnapGenerators() {
+    }
+
+    /** Handle points of the other graphics, from the handle grid. */
+    public static final SnapGenerator HANDLE = new SnapGenerator() {
+        @Override
+        public SnapType getType() {
+            return SnapType.HANDLE;
+        }
+
+        @Override
+        public void generate(SnapContext context) {
+            Point2D handle = context.getHandleIndex().findNearest(context.getX(), context.getY(),
+                context.getRadius(), context.getExcludeGraphic());
+            if (handle != null) {
+                context.offer(SnapType.HANDLE, handle.getX(), handle.getY(), null);
+            }
+        }
+    };
+
+    /** Crossings of two segments near the cursor. */
+    public static final SnapGenerator INTERSECTION = new SnapGenerator() {
+        @Override
+        public SnapType getType() {
+            return SnapType.INTERSECTION;
+        }
+
+        @Override
+        public void generate(SnapContext context) {
+            List<SnapPrimitive> primitives = context.getPrimitives();
+            double[] p = new double[2];
+            int pairs = 0;
+            for (int i = 0, n = primitives.size(); i < n; i++) {
+                SnapPrimitive a = primitives.get(i);
+                if (a.circle()) {
+                    continue;
+                }
+                for (int j = i + 1; j < n; j++) {
+                    SnapPrimitive b = primitives.get(j);
+                    if (b.circle() || b.owner() == a.owner()) {
+                        continue;
+                    }
+                    if (GeomKernel.intersectSegments(a.x1(), a.y1(), a.x2(), a.y2(), b.x1(), b.y1(), b.x2(),
+                        b.y2(), p, 0)) {
+                        context.offer(SnapType.INTERSECTION, p[0], p[1], a.owner());
+                    }
+                    if (++pairs % PAIRS_PER_CHECK == 0 && context.isOverBudget()) {
+                        return;
+                    }
+                }
+            }
+        }
+    };
+
+    /** Centers of circles. */
+    public static final SnapGenerator CENTER = new SnapGenerator() {
+        @Override
+        public SnapType getType() {
+            return SnapType.CENTER;
+        }
+
+        @Override
+        public void generate(SnapContext context) {
+            for (SnapPrimitive primitive : context.getPrimitives()) {
+                if (primitive.circle()) {
+                    context.offer(SnapType.CENTER, primitive.x1(), primitive.y1(), primitive.owner());
+                }
+            }
+        }
+    };
+
+    /** Midpoints of segments. */
+    public static final SnapGenerator MIDPOINT = new SnapGenerator() {
+        @Override
+        public SnapType getType() {
+            return SnapType.MIDPOINT;
+        }
+
+        @Override
+        public void generate(SnapContext context) {
+            for (SnapPrimitive primitive : context.getPrimitives()) {
+                if (!primitive.circle()) {
+                    context.offer(SnapType.MIDPOINT, (primitive.x1() + primitive.x2()) / 2.0,
+                        (primitive.y1() + primitive.y2()) / 2.0, primitive.owner());
+                }
+            }
+        }
+    };
+
+    /** Contact points of the tangents to circles from the previous point of the graphic. */
+    public static final SnapGenerator TANGENT = new SnapGenerator() {
+        @Override
+        public SnapType getType() {
+            return SnapType.TANGENT;
+        }
+
+        @Override
+        public void generate(SnapContext context) {
+            Point2D anchor = context.getAnchor();
+            if (anchor == null) {
+                return;
+            }
+            double[] p = new double[2];
+            for (SnapPrimitive primitive : context.getPrimitives()) {
+                if (!primitive.circle()) {
+                    continue;
+                }
+                for (int side = -1; side <= 1; side += 2) {
+                    if (GeomKernel.tangentPoint(anchor.getX(), anchor.getY(), primitive.x1(), primitive.y1(),
+                        primitive.radius(), side, p, 0)) {
+                        context.offer(SnapType.TANGENT, p[0], p[1], primitive.owner());
+                    }
+                }
+            }
+        }
+    };
+
+    /** Closest point of segments and circle outlines. */
+    public static final SnapGenerator NEAREST = new SnapGenerator() {
+        @Override
+        public SnapType getType() {
+            return SnapType.NEAREST;
+        }
+
+        @Override
+        public void generate(SnapContext context) {
+            double x = context.getX();
+            double y = context.getY();
+            double[] p = new double[2];
+            for (SnapPrimitive primitive : context.getPrimitives()) {
+                if (primitive.circle()) {
+                    double dx = x - primitive.x1();
+                    double dy = y - primitive.y1();
+                    double d = GeomKernel.length(dx, dy);
+                    if (d > GeomKernel.MIN_LENGTH) {
+                        double k = primitive.radius() / d;
+                        context.offer(SnapType.NEAREST, primitive.x1() + dx * k, primitive.y1() + dy * k,
+                            primitive.owner());
+                    }
+                } else {
+                    double t = GeomKernel.foot(primitive.x1(), primitive.y1(), primitive.x2(), primitive.y2(), x, y,
+                        p, 0);
+                    t = Math.max(0.0, Math.min(1.0, t));
+                    GeomKernel.pointAt(primitive.x1(), primitive.y1(), primitive.x2(), primitive.y2(), t, p, 0);
+                    context.offer(SnapType.NEAREST, p[0], p[1], primitive.owner());
+                }
+            }
+        }
+    };
+
+    /** Strongest image gradient, when edge snapping is enabled. */
+    public static final SnapGenerator EDGE = new SnapGenerator() {
+        @Override
+        public SnapType getType() {
+            return SnapType.EDGE;
+        }
+
+        @Override
+        public void generate(SnapContext context) {
+            if (!SnappingUtil.isEdgeSnapEnabled()) {
+                return;
+            }
+            Point2D edge = SnappingUtil.getEdgeSnapPoint(context.getView(),
+                new Point2D.Double(context.getX(), context.getY()));
+            if (edge != null) {
+                context.offer(SnapType.EDGE, edge.getX(), edge.getY(), null);
+            }
+        }
+    };
+}
@@ -0,0 +1,134 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+
+import javax.swing.JComponent;
+import javax.swing.JLayeredPane;
+import javax.swing.JRootPane;
+import javax.swing.SwingUtilities;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+
+/**
+ * Marker of the current snap target, drawn above the view in the layered pane of its window so
+ * that showing and moving it only repaints the marker itself, not the image and its graphics.
+ * The symbol depends on the kind of target.
+ */
+public final class SnapIndicator extends JComponent {
+
+    private static final String INDICATOR_KEY = "measure.enhance.snapIndicator";
+    private static final int SIZE = 14;
+    private static final Color COLOR = new Color(255, 200, 0);
+    private static final Color OUTLINE = new Color(0, 0, 0, 160);
+
+    private SnapType type = SnapType.HANDLE;
+
+    private SnapIndicator() {
+        setOpaque(false);
+        setSize(SIZE, SIZE);
+    }
+
+    /**
+     * Show the marker on the candidate, or hide it if the candidate is null.
+     */
+    public static void show(ViewCanvas<?> view, SnapCandidate candidate) {
+        if (candidate == null) {
+            hide(view);
+            return;
+        }
+        if (view == null) {
+            return;
+        }
+        JComponent component = view.getJComponent();
+        JRootPane rootPane = SwingUtilities.getRootPane(component);
+        AffineTransform transform = view.getAffineTransform();
+        if (rootPane == null || transform == null || !component.isShowing()) {
+            return;
+        }
+        Point2D p = transform.transform(new Point2D.Double(candidate.x(), candidate.y()), null);
+        Point location = new Point((int) Math.round(p.getX()), (int) Math.round(p.getY()));
+        if (!component.getVisibleRect().contains(location)) {
+            hide(view);
+            return;
+        }
+
+        SnapIndicator indicator = (SnapIndicator) component.getClientProperty(INDICATOR_KEY);
+        JLayeredPane layeredPane = rootPane.getLayeredPane();
+        if (indicator == null || indicator.getParent() != layeredPane) {
+            if (indicator != null && indicator.getParent() != null) {
+                indicator.getParent().remove(indicator);
+            }
+            indicator = new SnapIndicator();
+            layeredPane.add(indicator, JLayeredPane.DRAG_LAYER);
+            component.putClientProperty(INDICATOR_KEY, indicator);
+        }
+        location = SwingUtilities.convertPoint(component, location, layeredPane);
+        indicator.type = candidate.type();
+        indicator.setLocation(location.x - SIZE / 2, location.y - SIZE / 2);
+        indicator.setVisible(true);
+        indicator.repaint();
+    }
+
+    public static void hide(ViewCanvas<?> view) {
+        if (view == null) {
+            return;
+        }
+        Object indicator = view.getJComponent().getClientProperty(INDICATOR_KEY);
+        if (indicator instanceof SnapIndicator snapIndicator && snapIndicator.isVisible()) {
+            snapIndicator.setVisible(false);
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setStroke(new BasicStroke(3f));
+            g2.setColor(OUTLINE);
+            paintSymbol(g2);
+            g2.setStroke(new BasicStroke(1.5f));
+            g2.setColor(COLOR);
+            paintSymbol(g2);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintSymbol(Graphics2D g2) {
+        int m = 2;
+        int s = SIZE - 2 * m;
+        int c = SIZE / 2;
+        switch (type) {
+            case HANDLE -> g2.drawRect(m, m, s, s);
+            case INTERSECTION -> {
+                g2.drawLine(m, m, m + s, m + s);
+                g2.drawLine(m, m + s, m + s, m);
+            }
+            case CENTER -> {
+                g2.drawOval(m, m, s, s);
+                g2.drawLine(c, m + 2, c, m + s - 2);
+                g2.drawLine(m + 2, c, m + s - 2, c);
+            }
+            case MIDPOINT -> g2.drawPolygon(new int[] {c, m + s, m}, new int[] {m, m + s, m + s}, 3);
+            case TANGENT -> {
+                g2.drawOval(m, m + 2, s - 2, s - 2);
+                g2.drawLine(m, m + 1, m + s, m + 1);
+            }
+            case NEAREST -> {
+                g2.drawLine(m, m, m + s, m + s);
+                g2.drawLine(m, m + s, m + s, m);
+                g2.drawLine(m, m, m + s, m);
+                g2.drawLine(m, m + s, m + s, m + s);
+            }
+            case EDGE -> g2.drawPolygon(new int[] {c, m + s, c, m}, new int[] {m, c, m + s, c}, 4);
+        }
+    }
+}
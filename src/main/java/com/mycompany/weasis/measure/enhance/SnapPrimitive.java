@@ -0,0 +1,20 @@
+package com.mycompany.weasis.measure.enhance;
+
+import org.weasis.core.ui.model.graphic.Graphic;
+
+/**
+ * Segment or circle of a graphic, copied in image space when the graphic is indexed.
+ *
+ * A segment goes from (x1, y1) to (x2, y2). A circle has its center in (x1, y1) and a radius.
+ */
+public record SnapPrimitive(Graphic owner, boolean circle, double x1, double y1, double x2, double y2,
+    double radius) {
+
+    public static SnapPrimitive segment(Graphic owner, double x1, double y1, double x2, double y2) {
+        return new SnapPrimitive(owner, false, x1, y1, x2, y2, 0.0);
+    }
+
+    public static SnapPrimitive circle(Graphic owner, double cx, double cy, double radius) {
+        return new SnapPrimitive(owner, true, cx, cy, cx, cy, radius);
+    }
+}
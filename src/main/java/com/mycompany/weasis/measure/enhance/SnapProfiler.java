@@ -0,0 +1,119 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+
+/**
+ * Latency histogram and candidate counts of the snap queries, per view.
+ *
+ * Recording is a few increments per query, so it is always on. The latencies of each view are
+ * counted in a {@link LatencyHistogram}. Only used from the EDT.
+ */
+public final class SnapProfiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapProfiler.class);
+
+    private static final Map<ViewCanvas<?>, Stats> STATS = new WeakHashMap<>();
+    private static int viewCounter = 0;
+
+    private static final class Stats {
+        final String name;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final long[] hits = new long[SnapType.values().length];
+        long misses;
+        long overBudget;
+        long totalPrimitives;
+        int maxPrimitives;
+        long totalOffers;
+
+        Stats(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Snapshot of the statistics of one view.
+     */
+    public record Summary(String view, long calls, double meanMicros, long p50Micros, long p95Micros,
+        long p99Micros, double maxMicros, long overBudget, double meanPrimitives, int maxPrimitives,
+        double meanOffers, long misses, long[] hits) {
+
+        @Override
+        public String toString() {
+            StringBuilder types = new StringBuilder();
+            for (SnapType type : SnapType.values()) {
+                if (hits[type.ordinal()] > 0) {
+                    types.append(' ').append(type.name()).append('=').append(hits[type.ordinal()]);
+                }
+            }
+            return String.format(
+                "%s: %d calls, mean %.1f us, p50 <%d us, p95 <%d us, p99 <%d us, max %.1f us, %d over budget, "
+                    + "candidates mean %.1f max %d, offers mean %.1f, misses %d, hits:%s",
+                view, calls, meanMicros, p50Micros, p95Micros, p99Micros, maxMicros, overBudget, meanPrimitives,
+                maxPrimitives, meanOffers, misses, types);
+        }
+    }
+
+    private SnapProfiler() {
+    }
+
+    static void record(ViewCanvas<?> view, long nanos, int primitives, int offers, SnapType result,
+        boolean overBudget) {
+        if (view == null) {
+            return;
+        }
+        Stats stats = STATS.computeIfAbsent(view, v -> new Stats("View " + (++viewCounter)));
+        stats.latency.add(nanos);
+        stats.totalPrimitives += primitives;
+        stats.maxPrimitives = Math.max(stats.maxPrimitives, primitives);
+        stats.totalOffers += offers;
+        if (overBudget) {
+            stats.overBudget++;
+        }
+        if (result == null) {
+            stats.misses++;
+        } else {
+            stats.hits[result.ordinal()]++;
+        }
+    }
+
+    public static List<Summary> getSummaries() {
+        List<Summary> list = new ArrayList<>(STATS.size());
+        for (Stats s : STATS.values()) {
+            long calls = s.latency.getCount();
+            if (calls == 0) {
+                continue;
+            }
+            double n = calls;
+            LatencyHistogram latency = s.latency;
+            list.add(new Summary(s.name, calls, latency.getMeanMicros(), latency.percentileMicros(0.5),
+                latency.percentileMicros(0.95), latency.percentileMicros(0.99), latency.getMaxMicros(), s.overBudget,
+                s.totalPrimitives / n, s.maxPrimitives, s.totalOffers / n, s.misses, s.hits.clone()));
+        }
+        list.sort((a, b) -> a.view().compareTo(b.view()));
+        return list;
+    }
+
+    public static void reset() {
+        STATS.clear();
+        viewCounter = 0;
+    }
+
+    /**
+     * Write the statistics of every view to the log.
+     */
+    public static void logSummaries() {
+        List<Summary> summaries = getSummaries();
+        if (summaries.isEmpty()) {
+            LOGGER.info("Snapping: no queries recorded");
+        }
+        for (Summary summary : summaries) {
+            LOGGER.info("Snapping {}", summary);
+        }
+    }
+}
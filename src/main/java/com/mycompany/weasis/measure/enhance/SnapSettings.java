@@ -0,0 +1,139 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.api.gui.util.GuiUtils;
+import org.weasis.core.api.service.WProperties;
+
+/**
+ * Snapping settings, kept in the local preferences of Weasis so that they survive a restart.
+ *
+ * The values are read once by {@link #load()} when the plugin starts and written on every
+ * change. Without preferences (headless use), the defaults apply and nothing is stored.
+ */
+public final class SnapSettings {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapSettings.class);
+
+    private static final String PREFIX = "measure.enhance.snap.";
+    private static final String TOLERANCE = PREFIX + "tolerance";
+    private static final String MAX_CANDIDATES = PREFIX + "maxCandidates";
+    private static final String BUDGET_MICROS = PREFIX + "budgetMicros";
+    private static final String EDGE = PREFIX + "edge";
+    private static final String TYPE = PREFIX + "type.";
+
+    public static final double DEFAULT_TOLERANCE = 15.0; // Screen pixels
+    public static final int DEFAULT_MAX_CANDIDATES = 256;
+    public static final int DEFAULT_BUDGET_MICROS = 2000;
+
+    private static double tolerance = DEFAULT_TOLERANCE;
+    private static int maxCandidates = DEFAULT_MAX_CANDIDATES;
+    private static int budgetMicros = DEFAULT_BUDGET_MICROS;
+    // Off by default: an edge is a weaker target than a handle and not always wanted
+    private static boolean edgeSnap = false;
+    private static final Set<SnapType> ENABLED_TYPES = EnumSet.allOf(SnapType.class);
+
+    private SnapSettings() {
+    }
+
+    public static void load() {
+        WProperties prefs = getPreferences();
+        if (prefs == null) {
+            return;
+        }
+        tolerance = Math.max(1.0, prefs.getDoubleProperty(TOLERANCE, DEFAULT_TOLERANCE));
+        maxCandidates = Math.max(1, prefs.getIntProperty(MAX_CANDIDATES, DEFAULT_MAX_CANDIDATES));
+        budgetMicros = Math.max(0, prefs.getIntProperty(BUDGET_MICROS, DEFAULT_BUDGET_MICROS));
+        edgeSnap = prefs.getBooleanProperty(EDGE, false);
+        ENABLED_TYPES.clear();
+        for (SnapType type : SnapType.values()) {
+            if (prefs.getBooleanProperty(TYPE + type.name(), true)) {
+                ENABLED_TYPES.add(type);
+            }
+        }
+        SnapEngine.setBudgetNanos(budgetMicros * 1000L);
+    }
+
+    /**
+     * @return the snap distance in screen pixels
+     */
+    public static double getTolerance() {
+        return tolerance;
+    }
+
+    public static void setTolerance(double pixels) {
+        tolerance = Math.max(1.0, pixels);
+        WProperties prefs = getPreferences();
+        if (prefs != null) {
+            prefs.putDoubleProperty(TOLERANCE, tolerance);
+        }
+    }
+
+    /**
+     * @return the maximum number of segments and circles examined by a query
+     */
+    public static int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    public static void setMaxCandidates(int count) {
+        maxCandidates = Math.max(1, count);
+        WProperties prefs = getPreferences();
+        if (prefs != null) {
+            prefs.putIntProperty(MAX_CANDIDATES, maxCandidates);
+        }
+    }
+
+    public static int getBudgetMicros() {
+        return budgetMicros;
+    }
+
+    public static void setBudgetMicros(int micros) {
+        budgetMicros = Math.max(0, micros);
+        SnapEngine.setBudgetNanos(budgetMicros * 1000L);
+        WProperties prefs = getPreferences();
+        if (prefs != null) {
+            prefs.putIntProperty(BUDGET_MICROS, budgetMicros);
+        }
+    }
+
+    public static boolean isEdgeSnap() {
+        return edgeSnap;
+    }
+
+    public static void setEdgeSnap(boolean enabled) {
+        edgeSnap = enabled;
+        WProperties prefs = getPreferences();
+        if (prefs != null) {
+            prefs.putBooleanProperty(EDGE, enabled);
+        }
+    }
+
+    public static boolean isEnabled(SnapType type) {
+        return ENABLED_TYPES.contains(type);
+    }
+
+    public static void setEnabled(SnapType type, boolean enabled) {
+        if (enabled) {
+            ENABLED_TYPES.add(type);
+        } else {
+            ENABLED_TYPES.remove(type);
+        }
+        WProperties prefs = getPreferences();
+        if (prefs != null) {
+            prefs.putBooleanProperty(TYPE + type.name(), enabled);
+        }
+    }
+
+    private static WProperties getPreferences() {
+        try {
+            var uiCore = GuiUtils.getUICore();
+            return uiCore == null ? null : uiCore.getLocalPersistence();
+        } catch (Exception e) {
+            LOGGER.debug("No preferences for snapping settings: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mycompany.weasis.measure.enhance;
+
+/**
+ * Kinds of snap targets, with their priority: a candidate of a lower priority value always wins
+ * over one of a higher value, whatever their distances to the cursor.
+ */
+public enum SnapType {
+    HANDLE("Handle", 0),
+    INTERSECTION("Intersection", 1),
+    CENTER("Center", 2),
+    MIDPOINT("Midpoint", 2),
+    TANGENT("Tangent", 3),
+    NEAREST("Nearest", 4),
+    EDGE("Edge", 5);
+
+    private final String title;
+    private final int priority;
+
+    SnapType(String title, int priority) {
+        this.title = title;
+        this.priority = priority;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
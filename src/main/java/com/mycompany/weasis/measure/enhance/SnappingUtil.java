@@ -1,56 +1,119 @@
 package com.mycompany.weasis.measure.enhance;
 
-import java.awt.Point;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
-import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+import org.weasis.core.api.media.data.ImageElement;
 import org.weasis.core.ui.editor.image.ViewCanvas;
 import org.weasis.core.ui.model.GraphicModel;
-import org.weasis.core.ui.model.graphic.AbstractGraphic;
 import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.util.MouseEventDouble;
 
 public class SnappingUtil {
     
-    private static final double SNAP_DISTANCE = 15.0; // Pixels
+    private static final double EDGE_SNAP_DISTANCE = 6.0; // Pixels
+
+    // One engine per graphic model (a view switches model when the displayed image changes)
+    private static final Map<GraphicModel, SnapEngine> ENGINES = new WeakHashMap<>();
 
     public static Point2D getSnapPoint(MouseEventDouble mouseEvent, Point2D currentPoint, Graphic excludeGraphic) {
-        if (mouseEvent != null && mouseEvent.getSource() instanceof ViewCanvas) {
-            ViewCanvas<?> view = (ViewCanvas<?>) mouseEvent.getSource();
-            GraphicModel model = view.getGraphicManager();
-            if (model == null) return null;
-            
-            // Convert current point (Image Space) to Screen Space for distance check
-            Point currentScreen = view.getMouseCoordinatesFromImage(currentPoint.getX(), currentPoint.getY());
-            if (currentScreen == null) return null;
-
-            Point2D bestMatch = null;
-            double minDistance = Double.MAX_VALUE;
-
-            for (Graphic graphic : model.getAllGraphics()) {
-                if (graphic == excludeGraphic) continue;
-
-                List<Point2D> handles = null;
-                if (graphic instanceof AbstractGraphic) {
-                    handles = ((AbstractGraphic) graphic).getHandlePointList();
-                }
-                
-                if (handles == null) continue;
-                
-                for (Point2D handle : handles) {
-                    // Convert handle (Image Space) to Screen Space
-                    Point handleScreen = view.getMouseCoordinatesFromImage(handle.getX(), handle.getY());
-                    if (handleScreen != null) {
-                        double dist = handleScreen.distance(currentScreen);
-                        if (dist < SNAP_DISTANCE && dist < minDistance) {
-                            minDistance = dist;
-                            bestMatch = handle; // Return the Image Space point
-                        }
-                    }
-                }
-            }
-            return bestMatch;
+        return getSnapPoint(mouseEvent, currentPoint, excludeGraphic, null);
+    }
+
+    /**
+     * @param anchor The previous point of the graphic being drawn, for tangent targets, or null
+     */
+    public static Point2D getSnapPoint(MouseEventDouble mouseEvent, Point2D currentPoint, Graphic excludeGraphic,
+        Point2D anchor) {
+        if (mouseEvent != null && mouseEvent.getSource() instanceof ViewCanvas<?> view) {
+            return toPoint(findSnap(view, currentPoint, excludeGraphic, anchor));
         }
         return null;
     }
-}
\ No newline at end of file
+
+    public static boolean isEdgeSnapEnabled() {
+        return SnapSettings.isEdgeSnap();
+    }
+
+    public static void setEdgeSnapEnabled(boolean enabled) {
+        SnapSettings.setEdgeSnap(enabled);
+    }
+
+    public static Point2D getSnapPoint(ViewCanvas<?> view, Point2D currentPoint, Graphic excludeGraphic) {
+        return toPoint(findSnap(view, currentPoint, excludeGraphic, null));
+    }
+
+    /**
+     * Find the best snap target within the tolerance of the settings (in screen pixels) of the given image point:
+     * a handle, an intersection, a center or midpoint, a tangent point, the nearest point of a
+     * segment or circle, and finally an image edge when edge snapping is enabled. Only the
+     * geometry indexed around the point is visited. The snap indicator of the view is moved
+     * onto the result, or hidden if there is none.
+     *
+     * @param view The ViewCanvas containing the graphics
+     * @param currentPoint The point being placed, in image space
+     * @param excludeGraphic The graphic being drawn, ignored as a snap target
+     * @param anchor The previous point of the graphic being drawn, or null
+     * @return The target to snap to, or null
+     */
+    public static SnapCandidate findSnap(ViewCanvas<?> view, Point2D currentPoint, Graphic excludeGraphic,
+        Point2D anchor) {
+        if (view == null || currentPoint == null) {
+            return null;
+        }
+        GraphicModel model = view.getGraphicManager();
+        if (model == null) {
+            return null;
+        }
+
+        PluginMetrics.Span span = PluginMetrics.begin(PluginMetrics.Probe.SNAP_QUERY);
+        SnapCandidate candidate = null;
+        try {
+            SnapEngine engine = ENGINES.computeIfAbsent(model, SnapEngine::new);
+            double radius = SnapSettings.getTolerance() / getViewScale(view);
+            candidate = engine.find(view, currentPoint.getX(), currentPoint.getY(), radius, excludeGraphic, anchor);
+            SnapIndicator.show(view, candidate);
+        } finally {
+            span.end(candidate == null ? "none" : candidate.type().name());
+        }
+        return candidate;
+    }
+
+    private static Point2D toPoint(SnapCandidate candidate) {
+        return candidate == null ? null : new Point2D.Double(candidate.x(), candidate.y());
+    }
+
+    /**
+     * Find the strongest intensity edge of the displayed image within EDGE_SNAP_DISTANCE screen
+     * pixels of the given image point.
+     *
+     * @return The image space point on the edge, or null if there is no distinct edge
+     */
+    public static Point2D getEdgeSnapPoint(ViewCanvas<?> view, Point2D currentPoint) {
+        if (view == null || currentPoint == null) {
+            return null;
+        }
+        ImageElement image = view.getImage();
+        if (image == null) {
+            return null;
+        }
+        double radius = EDGE_SNAP_DISTANCE / getViewScale(view);
+        return GradientTileCache.findEdge(image, currentPoint.getX(), currentPoint.getY(), radius);
+    }
+
+    /**
+     * Screen pixels per image pixel, so that the screen tolerance can be expressed in image space.
+     */
+    private static double getViewScale(ViewCanvas<?> view) {
+        AffineTransform transform = view.getAffineTransform();
+        if (transform != null) {
+            double scale = Math.sqrt(Math.abs(transform.getDeterminant()));
+            if (scale > 1e-6) {
+                return scale;
+            }
+        }
+        return 1.0;
+    }
+}
@@ -0,0 +1,136 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.util.Arrays;
+
+/**
+ * Perpendicular distances from a dragged contour to a reference line, sampled at fixed
+ * arc-length steps along the contour.
+ *
+ * The samples are stored in a growable primitive buffer, 5 doubles per sample: arc length,
+ * x, y, signed distance to the line and position of the foot along the line, all in image
+ * pixels. Only used from the EDT.
+ */
+public class SweepProfile {
+
+    public static final int STRIDE = 5;
+
+    private final double ax;
+    private final double ay;
+    private final double bx;
+    private final double by;
+    private final double step;
+    private final double lineLength;
+
+    private double[] buffer = new double[STRIDE * 256];
+    private int size = 0;
+
+    private boolean started = false;
+    private double lastX;
+    private double lastY;
+    private double arcLength = 0.0;
+    // Arc length travelled since the last sample
+    private double carry = 0.0;
+
+    /**
+     * @param step Arc length between two samples, in image pixels
+     */
+    public SweepProfile(double ax, double ay, double bx, double by, double step) {
+        this.ax = ax;
+        this.ay = ay;
+        this.bx = bx;
+        this.by = by;
+        this.step = step;
+        this.lineLength = GeomKernel.length(bx - ax, by - ay);
+    }
+
+    /**
+     * Add a point of the dragged contour and sample the segment from the previous point.
+     *
+     * @return the number of samples added
+     */
+    public int addPoint(double x, double y) {
+        if (!started) {
+            started = true;
+            lastX = x;
+            lastY = y;
+            addSample(x, y);
+            return 1;
+        }
+
+        double dx = x - lastX;
+        double dy = y - lastY;
+        double length = GeomKernel.length(dx, dy);
+        if (length == 0.0) {
+            return 0;
+        }
+        int added = 0;
+        double position = step - carry;
+        while (position <= length) {
+            double t = position / length;
+            arcLength += step;
+            addSample(lastX + t * dx, lastY + t * dy);
+            added++;
+            position += step;
+        }
+        carry = length - (position - step);
+        lastX = x;
+        lastY = y;
+        return added;
+    }
+
+    private void addSample(double x, double y) {
+        if (size * STRIDE == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int i = size * STRIDE;
+        buffer[i] = arcLength;
+        buffer[i + 1] = x;
+        buffer[i + 2] = y;
+        buffer[i + 3] = GeomKernel.signedDistance(ax, ay, bx, by, x, y);
+        buffer[i + 4] = lineLength < GeomKernel.MIN_LENGTH ? 0.0
+            : GeomKernel.dot(bx - ax, by - ay, x - ax, y - ay) / lineLength;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getArcLength(int index) {
+        return buffer[index * STRIDE];
+    }
+
+    public double getX(int index) {
+        return buffer[index * STRIDE + 1];
+    }
+
+    public double getY(int index) {
+        return buffer[index * STRIDE + 2];
+    }
+
+    public double getDistance(int index) {
+        return buffer[index * STRIDE + 3];
+    }
+
+    public double getAlong(int index) {
+        return buffer[index * STRIDE + 4];
+    }
+
+    /**
+     * Indexes of at most maxPoints samples evenly spread over the profile, always including
+     * the first and the last one, for drawing.
+     */
+    public int[] decimate(int maxPoints) {
+        if (size <= maxPoints) {
+            int[] all = new int[size];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        int[] indexes = new int[maxPoints];
+        double stride = (size - 1) / (double) (maxPoints - 1);
+        for (int i = 0; i < maxPoints; i++) {
+            indexes[i] = (int) Math.round(i * stride);
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Window;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weasis.core.ui.editor.image.ViewCanvas;
+
+/**
+ * Non-modal summary of a perpendicular distance sweep, with CSV export of all the samples.
+ */
+public class SweepProfileDialog extends JDialog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SweepProfileDialog.class);
+
+    private final SweepProfile profile;
+    private final double ratio;
+    private final String unit;
+
+    private SweepProfileDialog(Window owner, SweepProfile profile, double ratio, String unit) {
+        super(owner, "Perpendicular Distance Profile", ModalityType.MODELESS);
+        this.profile = profile;
+        this.ratio = ratio;
+        this.unit = unit;
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = 0.0;
+        double sum = 0.0;
+        for (int i = 0; i < profile.size(); i++) {
+            double d = Math.abs(profile.getDistance(i));
+            min = Math.min(min, d);
+            max = Math.max(max, d);
+            sum += d;
+        }
+        int n = profile.size();
+        String summary = String.format(
+            "<html>Samples: %d<br>Contour length: %.2f %s<br>"
+                + "Distance min: %.2f %s<br>Distance max: %.2f %s<br>Distance mean: %.2f %s</html>",
+            n, ratio * profile.getArcLength(n - 1), unit, ratio * min, unit, ratio * max, unit,
+            ratio * sum / n, unit);
+        JLabel label = new JLabel(summary);
+        label.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JButton exportButton = new JButton("Export CSV...");
+        exportButton.addActionListener(e -> exportCsv());
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottom.add(exportButton);
+
+        getContentPane().add(label, BorderLayout.CENTER);
+        getContentPane().add(bottom, BorderLayout.SOUTH);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        pack();
+    }
+
+    /**
+     * @param ratio Calibration ratio from image pixels to the unit
+     */
+    public static void show(ViewCanvas<?> view, SweepProfile profile, double ratio, String unit) {
+        if (profile.size() == 0) {
+            return;
+        }
+        Window owner = SwingUtilities.getWindowAncestor(view.getJComponent());
+        SweepProfileDialog dialog = new SweepProfileDialog(owner, profile, ratio, unit);
+        dialog.setLocationRelativeTo(view.getJComponent());
+        dialog.setVisible(true);
+    }
+
+    private void exportCsv() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("distance_profile.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(String.format("index,arc_length_px,x_px,y_px,distance_px,along_px,arc_length_%1$s,"
+                + "distance_%1$s,along_%1$s", unit));
+            writer.newLine();
+            for (int i = 0; i < profile.size(); i++) {
+                writer.write(String.format(Locale.ROOT, "%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.4f,%.4f,%.4f", i,
+                    profile.getArcLength(i), profile.getX(i), profile.getY(i), profile.getDistance(i),
+                    profile.getAlong(i), ratio * profile.getArcLength(i), ratio * profile.getDistance(i),
+                    ratio * profile.getAlong(i)));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cannot export the profile to {}", file, e);
+            JOptionPane.showMessageDialog(this, "Cannot write " + file.getName() + ": " + e.getMessage(),
+                "Perpendicular Distance Profile", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mycompany.weasis.measure.enhance;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.Popup;
+import javax.swing.PopupFactory;
+import javax.swing.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Short message shown over the bottom of a component and hidden automatically, for warnings
+ * that do not need to interrupt the user like a modal dialog.
+ */
+public final class Toast {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Toast.class);
+
+    private static final int DURATION_MS = 2500;
+    private static final int MARGIN = 30;
+
+    // Only one toast at a time, on the EDT
+    private static Popup current;
+    private static Timer timer;
+
+    private Toast() {
+    }
+
+    /**
+     * Show a message over the component. Does nothing visible if the component is not showing.
+     */
+    public static void show(Component parent, String message) {
+        LOGGER.info(message);
+        if (parent == null || GraphicsEnvironment.isHeadless() || !parent.isShowing()) {
+            return;
+        }
+        hide();
+
+        JLabel label = new JLabel(message);
+        label.setOpaque(true);
+        label.setForeground(Color.WHITE);
+        label.setBackground(new Color(50, 50, 50));
+        label.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(230, 160, 0)),
+            BorderFactory.createEmptyBorder(6, 12, 6, 12)));
+
+        Point origin = parent.getLocationOnScreen();
+        int x = origin.x + (parent.getWidth() - label.getPreferredSize().width) / 2;
+        int y = origin.y + parent.getHeight() - label.getPreferredSize().height - MARGIN;
+        current = PopupFactory.getSharedInstance().getPopup(parent, label, x, y);
+        current.show();
+
+        timer = new Timer(DURATION_MS, e -> hide());
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    private static void hide() {
+        if (timer != null) {
+            timer.stop();
+            timer = null;
+        }
+        if (current != null) {
+            current.hide();
+            current = null;
+        }
+    }
+}
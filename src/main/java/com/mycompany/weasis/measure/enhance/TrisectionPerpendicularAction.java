@@ -1,17 +1,13 @@
 package com.mycompany.weasis.measure.enhance;
 
 import java.awt.geom.Point2D;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
 
 import org.weasis.core.ui.editor.image.ViewCanvas;
-import org.weasis.core.ui.model.AbstractGraphicModel;
 import org.weasis.core.ui.model.GraphicModel;
 import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
-import org.weasis.core.ui.model.layer.LayerType;
-import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
 
 /**
  * Utility class to draw perpendicular lines at the trisection points of a selected line.
@@ -21,7 +17,7 @@ public class TrisectionPerpendicularAction {
     private static final double DEFAULT_PERPENDICULAR_LENGTH = 100.0;
 
     /**
-     * Draw two perpendicular lines at the 1/3 and 2/3 points of the first selected line.
+     * Draw two perpendicular lines at the 1/3 and 2/3 points of every selected line.
      *
      * @param view The ViewCanvas containing the graphics
      */
@@ -35,91 +31,40 @@ public class TrisectionPerpendicularAction {
             return;
         }
 
-        List<Graphic> selected = model.getSelectedGraphics();
-        LineGraphic targetLine = null;
-
-        for (Graphic g : selected) {
+        List<LineGraphic> lines = new ArrayList<>();
+        for (Graphic g : model.getSelectedGraphics()) {
             if (g instanceof LineGraphic lineGraphic) {
-                targetLine = lineGraphic;
-                break;
+                lines.add(lineGraphic);
             }
         }
 
-        if (targetLine == null) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(),
-                "Please select a line first.",
-                "Trisection Perpendiculars",
-                JOptionPane.WARNING_MESSAGE);
+        if (lines.isEmpty()) {
+            Toast.show(view.getJComponent(), "Please select a line first.");
             return;
         }
 
-        Point2D p1 = targetLine.getStartPoint();
-        Point2D p2 = targetLine.getEndPoint();
-        if (p1 == null || p2 == null) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(),
-                "Invalid line selected.",
-                "Trisection Perpendiculars",
-                JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-
-        double dx = p2.getX() - p1.getX();
-        double dy = p2.getY() - p1.getY();
-        double lineLength = Math.sqrt(dx * dx + dy * dy);
-        if (lineLength < 0.001) {
-            return;
+        // Perpendiculars centered at 1/3 and 2/3 of each line, bound to it
+        ConstructionBatch batch = new ConstructionBatch("Trisection Perpendiculars");
+        for (LineGraphic line : lines) {
+            Point2D p1 = line.getStartPoint();
+            Point2D p2 = line.getEndPoint();
+            if (p1 == null || p2 == null) {
+                continue;
+            }
+            double lineLength = p1.distance(p2);
+            if (lineLength < GeomKernel.MIN_LENGTH) {
+                continue;
+            }
+            double perpendicularLength = Math.max(DEFAULT_PERPENDICULAR_LENGTH, lineLength * 0.5);
+            Graphic[] sources = {line};
+            batch.add(ConstructionType.PERPENDICULAR_AT_FRACTION, sources, 1.0 / 3.0, perpendicularLength);
+            batch.add(ConstructionType.PERPENDICULAR_AT_FRACTION, sources, 2.0 / 3.0, perpendicularLength);
         }
 
-        Point2D oneThird = new Point2D.Double(p1.getX() + dx / 3.0, p1.getY() + dy / 3.0);
-        Point2D twoThird = new Point2D.Double(p1.getX() + (2.0 * dx) / 3.0, p1.getY() + (2.0 * dy) / 3.0);
-
-        double perpendicularLength = Math.max(DEFAULT_PERPENDICULAR_LENGTH, lineLength * 0.5);
-        if (!createPerpendicularLine(view, targetLine, oneThird, dx, dy, lineLength, perpendicularLength)) {
-            return;
-        }
-        if (!createPerpendicularLine(view, targetLine, twoThird, dx, dy, lineLength, perpendicularLength)) {
+        if (batch.size() == 0) {
+            Toast.show(view.getJComponent(), "Invalid line selected.");
             return;
         }
-
-        view.getJComponent().repaint();
-    }
-
-    private static boolean createPerpendicularLine(
-        ViewCanvas<?> view,
-        LineGraphic sourceLine,
-        Point2D anchor,
-        double dx,
-        double dy,
-        double lineLength,
-        double perpendicularLength) {
-
-        double halfLen = perpendicularLength / 2.0;
-        double scale = halfLen / lineLength;
-
-        double perpDx = -dy * scale;
-        double perpDy = dx * scale;
-
-        Point2D start = new Point2D.Double(anchor.getX() - perpDx, anchor.getY() - perpDy);
-        Point2D end = new Point2D.Double(anchor.getX() + perpDx, anchor.getY() + perpDy);
-
-        LineGraphic perpendicular = new LineGraphic();
-        perpendicular.setLayerType(LayerType.MEASURE);
-        perpendicular.setLineThickness(sourceLine.getLineThickness());
-
-        try {
-            perpendicular.buildGraphic(Arrays.asList(start, end));
-        } catch (InvalidShapeException e) {
-            JOptionPane.showMessageDialog(
-                view.getJComponent(),
-                "Failed to create trisection perpendicular: " + e.getMessage(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
-
-        AbstractGraphicModel.addGraphicToModel(view, perpendicular);
-        return true;
+        batch.execute(view);
     }
 }
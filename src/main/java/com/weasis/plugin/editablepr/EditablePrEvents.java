@@ -0,0 +1,58 @@
+package com.weasis.plugin.editablepr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a refresh cycle. Only loaded by {@link EditablePrMetrics} once it has
+ * checked that jdk.jfr is visible to the bundle.
+ */
+final class EditablePrEvents {
+
+    private EditablePrEvents() {
+    }
+
+    @Name("com.weasis.plugin.editablepr.RefreshCycle")
+    @Label("Editable PR Refresh Cycle")
+    @Category({"Weasis", "Editable PR"})
+    @Description("Check of the views and unlocking of their new layers")
+    static final class RefreshCycleEvent extends Event {
+        @Label("Trigger")
+        String trigger;
+
+        @Label("Views Checked")
+        int viewsChecked;
+
+        @Label("Layers Unlocked")
+        int layersUnlocked;
+    }
+
+    private static final EventType REFRESH_CYCLE = EventType.getEventType(RefreshCycleEvent.class);
+
+    /**
+     * @return the started event, or null when no recording enables it
+     */
+    static Object begin(String trigger) {
+        if (!REFRESH_CYCLE.isEnabled()) {
+            return null;
+        }
+        RefreshCycleEvent event = new RefreshCycleEvent();
+        event.trigger = trigger;
+        event.begin();
+        return event;
+    }
+
+    static void commit(Object started, int viewsChecked, int layersUnlocked) {
+        RefreshCycleEvent event = (RefreshCycleEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.viewsChecked = viewsChecked;
+            event.layersUnlocked = layersUnlocked;
+            event.commit();
+        }
+    }
+}
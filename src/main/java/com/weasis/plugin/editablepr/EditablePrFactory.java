@@ -1,54 +1,192 @@
 package com.weasis.plugin.editablepr;
 
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.HierarchyEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
+import javax.swing.BoundedRangeModel;
 import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
 
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.weasis.core.api.explorer.DataExplorerModel;
+import org.weasis.core.api.explorer.DataExplorerView;
+import org.weasis.core.api.explorer.ObservableEvent;
+import org.weasis.core.api.gui.util.ActionW;
 import org.weasis.core.api.gui.util.GuiUtils;
 import org.weasis.core.ui.editor.image.ImageViewerPlugin;
 import org.weasis.core.ui.editor.image.ViewCanvas;
 import org.weasis.core.ui.editor.image.ViewerPlugin;
 import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
 import org.weasis.core.ui.model.layer.GraphicLayer;
+import org.weasis.dicom.viewer2d.EventManager;
 
 /**
  * Plugin to make DICOM Presentation State (PR) graphics editable.
- * 
- * When DICOM files with saved measurements are loaded, the graphics are 
+ *
+ * When DICOM files with saved measurements are loaded, the graphics are
  * normally locked and cannot be moved. This plugin unlocks them so users
  * can edit the measurements.
+ *
+ * Unlocking is driven by events (a view becoming showing, series loading, the
+ * displayed slice changing, graphics being added to a model). The locked and
+ * selectable state of every inspected layer is remembered, and a layer is only
+ * inspected again when that state has changed, so the cost follows the number
+ * of new layers rather than the number of open views or graphic events.
  */
 public class EditablePrFactory implements BundleActivator {
     private static final Logger LOGGER = LoggerFactory.getLogger(EditablePrFactory.class);
-    
-    private Timer monitorTimer;
+
+    // All collections are weak and only accessed from the EDT
+    // Locked and selectable state of each layer when it was last inspected, see layerState
+    private final Map<GraphicLayer, Integer> layerStates = new WeakHashMap<>();
+    private final Map<ViewCanvas<?>, GraphicModel> viewModels = new WeakHashMap<>();
+    private final Set<DataExplorerModel> observedExplorers = Collections.newSetFromMap(new WeakHashMap<>());
+    private BoundedRangeModel observedSlider;
+    private boolean refreshPending = false;
+    private final EditablePrMetrics metrics = new EditablePrMetrics();
+
+    // A view component becoming showing (new viewer, layout change)
+    private final AWTEventListener viewListener = event -> {
+        if (event instanceof HierarchyEvent hierarchyEvent
+            && (hierarchyEvent.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+            Component component = hierarchyEvent.getComponent();
+            if (component instanceof ViewCanvas<?> view && component.isShowing()) {
+                metrics.beginCycle("viewShown");
+                try {
+                    checkView(view);
+                    observeSliceChanges();
+                } finally {
+                    metrics.endCycle();
+                }
+            }
+        }
+    };
+
+    // Series loaded or updated in an explorer: the displayed images may have new models
+    private final PropertyChangeListener explorerListener = evt -> {
+        if (evt instanceof ObservableEvent event) {
+            ObservableEvent.BasicAction action = event.getActionCommand();
+            if (action == ObservableEvent.BasicAction.LOADING_STOP
+                || action == ObservableEvent.BasicAction.ADD
+                || action == ObservableEvent.BasicAction.UPDATE) {
+                scheduleRefresh();
+            }
+        }
+    };
+
+    // Scrolling swaps the graphic model of the views, and may apply a presentation state
+    private final ChangeListener sliceListener = e -> scheduleRefresh();
+
+    // Graphic events of the observed models: only a graphic getting its first shape (added,
+    // e.g. PR applied, or drawn) is looked at, not the moves, edits and removals
+    private final PropertyChangeListener graphicListener = evt -> {
+        if ("bounds".equals(evt.getPropertyName()) && evt.getOldValue() == null
+            && evt.getSource() instanceof Graphic graphic) {
+            GraphicLayer layer = graphic.getLayer();
+            if (layer != null && needsInspection(layer)) {
+                metrics.beginCycle("graphicAdded");
+                try {
+                    if (unlockLayer(layer)) {
+                        repaintViewsShowing(layer);
+                    }
+                } finally {
+                    metrics.endCycle();
+                }
+            }
+        }
+    };
 
     @Override
     public void start(BundleContext bundleContext) throws Exception {
         LOGGER.info("=== Editable PR Plugin STARTING ===");
-        
-        // Start monitoring for views
-        monitorTimer = new Timer("EditablePR-Monitor", true);
-        monitorTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> checkAndUnlockLayers());
-            }
-        }, 2000, 2000); // Check every 2 seconds after 2 second delay
-        
+
+        metrics.register();
+        Toolkit.getDefaultToolkit().addAWTEventListener(viewListener, AWTEvent.HIERARCHY_EVENT_MASK);
+        SwingUtilities.invokeLater(() -> {
+            metrics.beginCycle("startup");
+            try {
+                observeExplorers();
+                observeSliceChanges();
+                checkOpenViews();
+            } finally {
+                metrics.endCycle();
+            }
+        });
+
         LOGGER.info("=== Editable PR Plugin STARTED ===");
     }
-    
+
+    private void observeExplorers() {
+        try {
+            var uiCore = GuiUtils.getUICore();
+            if (uiCore == null) {
+                return;
+            }
+            List<DataExplorerView> explorers = uiCore.getExplorerPlugins();
+            if (explorers == null) {
+                return;
+            }
+            for (DataExplorerView explorer : explorers) {
+                DataExplorerModel model = explorer.getDataExplorerModel();
+                if (model != null && observedExplorers.add(model)) {
+                    model.addPropertyChangeListener(explorerListener);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Error observing explorers: {}", e.getMessage());
+        }
+    }
+
+    private void observeSliceChanges() {
+        if (observedSlider != null) {
+            return;
+        }
+        try {
+            EventManager.getInstance().getAction(ActionW.SCROLL_SERIES).ifPresent(slider -> {
+                observedSlider = slider.getSliderModel();
+                observedSlider.addChangeListener(sliceListener);
+            });
+        } catch (Exception e) {
+            LOGGER.debug("Error observing slice changes: {}", e.getMessage());
+        }
+    }
+
     /**
-     * Check all views and unlock any locked PR layers
+     * Coalesce bursts of events (series loading, cine) into one refresh per EDT cycle.
      */
-    private void checkAndUnlockLayers() {
+    private void scheduleRefresh() {
+        if (!refreshPending) {
+            refreshPending = true;
+            SwingUtilities.invokeLater(() -> {
+                refreshPending = false;
+                metrics.beginCycle("refresh");
+                try {
+                    observeExplorers();
+                    refreshKnownViews();
+                } finally {
+                    metrics.endCycle();
+                }
+            });
+        }
+    }
+
+    /**
+     * Handle the views that were already open when the bundle started.
+     */
+    private void checkOpenViews() {
         try {
             var uiCore = GuiUtils.getUICore();
             if (uiCore == null) {
@@ -64,7 +202,7 @@ public class EditablePrFactory implements BundleActivator {
                     if (panels != null) {
                         for (ViewCanvas<?> view : panels) {
                             if (view != null) {
-                                unlockLayersInView(view);
+                                checkView(view);
                             }
                         }
                     }
@@ -74,7 +212,44 @@ public class EditablePrFactory implements BundleActivator {
             LOGGER.debug("Error checking layers: {}", e.getMessage());
         }
     }
-    
+
+    /**
+     * Re-check the views whose graphic model has been swapped since the last check, and the
+     * layers of the other views whose state has changed (e.g. a presentation state applied).
+     */
+    private void refreshKnownViews() {
+        try {
+            for (ViewCanvas<?> view : List.copyOf(viewModels.keySet())) {
+                if (!checkView(view)) {
+                    unlockLayersInView(view);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Error refreshing views: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if the view still shows the graphic model of the last check
+     */
+    private boolean checkView(ViewCanvas<?> view) {
+        GraphicModel graphicModel = view.getGraphicManager();
+        if (graphicModel == null) {
+            return true;
+        }
+        GraphicModel previous = viewModels.put(view, graphicModel);
+        if (previous == graphicModel) {
+            return false;
+        }
+        if (previous != null) {
+            previous.removeGraphicChangeHandler(graphicListener);
+        }
+        graphicModel.addGraphicChangeHandler(graphicListener);
+        metrics.viewChecked();
+        unlockLayersInView(view);
+        return true;
+    }
+
     /**
      * Unlock all locked layers in a view
      */
@@ -84,59 +259,104 @@ public class EditablePrFactory implements BundleActivator {
             if (graphicModel == null) {
                 return;
             }
-            
+
             List<GraphicLayer> layers = graphicModel.getLayers();
             if (layers == null) {
                 return;
             }
-            
+
+            boolean changed = false;
             for (GraphicLayer layer : layers) {
-                String layerName = layer.getName();
-                if (layerName == null) {
-                    continue;
-                }
-                
-                // Unlock any locked layer that is not editable
-                // This covers DICOM PR layers and any other locked layers
-                boolean isLocked = Boolean.TRUE.equals(layer.getLocked());
-                boolean isNotSelectable = Boolean.FALSE.equals(layer.getSelectable());
-                
-                if (isLocked || isNotSelectable) {
-                    boolean changed = false;
-                    
-                    if (isLocked) {
-                        layer.setLocked(false);
-                        changed = true;
-                        LOGGER.info("Unlocked layer: {}", layerName);
-                    }
-                    
-                    if (isNotSelectable) {
-                        layer.setSelectable(true);
-                        changed = true;
-                        LOGGER.info("Made layer selectable: {}", layerName);
-                    }
-                    
-                    if (Boolean.FALSE.equals(layer.getSerializable())) {
-                        layer.setSerializable(true);
-                        LOGGER.info("Made layer serializable: {}", layerName);
-                    }
-                    
-                    if (changed) {
-                        view.getJComponent().repaint();
-                    }
+                if (needsInspection(layer)) {
+                    changed |= unlockLayer(layer);
                 }
             }
+            if (changed) {
+                view.getJComponent().repaint();
+            }
         } catch (Exception e) {
             LOGGER.warn("Error unlocking layers: {}", e.getMessage());
         }
     }
 
+    private void repaintViewsShowing(GraphicLayer layer) {
+        for (Map.Entry<ViewCanvas<?>, GraphicModel> entry : viewModels.entrySet()) {
+            List<GraphicLayer> layers = entry.getValue().getLayers();
+            if (layers != null && layers.contains(layer)) {
+                entry.getKey().getJComponent().repaint();
+            }
+        }
+    }
+
+    private static int layerState(GraphicLayer layer) {
+        return (Boolean.TRUE.equals(layer.getLocked()) ? 1 : 0) | (Boolean.FALSE.equals(layer.getSelectable()) ? 2 : 0);
+    }
+
+    /**
+     * A layer is inspected when it is new, or when it has been locked or made unselectable
+     * since its last inspection, e.g. by a presentation state applied after its graphics.
+     */
+    private boolean needsInspection(GraphicLayer layer) {
+        Integer state = layerStates.get(layer);
+        return state == null || state != layerState(layer);
+    }
+
+    /**
+     * Unlock a layer, and remember its resulting state.
+     *
+     * @return true if the layer state was changed
+     */
+    private boolean unlockLayer(GraphicLayer layer) {
+        String layerName = layer.getName();
+        if (layerName == null) {
+            return false;
+        }
+
+        // Unlock any locked layer that is not editable
+        // This covers DICOM PR layers and any other locked layers
+        boolean isLocked = Boolean.TRUE.equals(layer.getLocked());
+        boolean isNotSelectable = Boolean.FALSE.equals(layer.getSelectable());
+        boolean changed = false;
+
+        if (isLocked) {
+            layer.setLocked(false);
+            changed = true;
+            LOGGER.info("Unlocked layer: {}", layerName);
+        }
+
+        if (isNotSelectable) {
+            layer.setSelectable(true);
+            changed = true;
+            LOGGER.info("Made layer selectable: {}", layerName);
+        }
+
+        layerStates.put(layer, layerState(layer));
+        if (changed && Boolean.FALSE.equals(layer.getSerializable())) {
+            layer.setSerializable(true);
+            LOGGER.info("Made layer serializable: {}", layerName);
+        }
+        metrics.layerInspected(changed);
+        return changed;
+    }
+
     @Override
     public void stop(BundleContext bundleContext) throws Exception {
         LOGGER.info("Stopping Editable PR Plugin");
-        if (monitorTimer != null) {
-            monitorTimer.cancel();
-            monitorTimer = null;
-        }
+        Toolkit.getDefaultToolkit().removeAWTEventListener(viewListener);
+        metrics.unregister();
+        SwingUtilities.invokeLater(() -> {
+            for (DataExplorerModel model : observedExplorers) {
+                model.removePropertyChangeListener(explorerListener);
+            }
+            observedExplorers.clear();
+            if (observedSlider != null) {
+                observedSlider.removeChangeListener(sliceListener);
+                observedSlider = null;
+            }
+            for (GraphicModel graphicModel : viewModels.values()) {
+                graphicModel.removeGraphicChangeHandler(graphicListener);
+            }
+            viewModels.clear();
+        });
     }
 }
@@ -0,0 +1,194 @@
+package com.weasis.plugin.editablepr;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counters and latency histogram of the refresh cycles (a view becoming showing, series loaded,
+ * slice changed, graphics added to an unseen layer), published as an MXBean and emitted as
+ * Flight Recorder events when a recording is running.
+ *
+ * Cycles are started and ended on the EDT; a cycle started inside another one is part of it.
+ * The counters are atomic so that JMX can read them from its own thread.
+ */
+public final class EditablePrMetrics implements EditablePrMetricsMXBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EditablePrMetrics.class);
+
+    public static final String OBJECT_NAME = "com.weasis.plugin.editablepr:type=EditablePrMetrics";
+
+    // Bucket i counts the latencies in [2^(i-1), 2^i) microseconds, the last one everything above
+    private static final int BUCKETS = 24;
+
+    private static final boolean FLIGHT_RECORDER = isFlightRecorderVisible();
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong viewsChecked = new AtomicLong();
+    private final AtomicLong layersInspected = new AtomicLong();
+    private final AtomicLong layersUnlocked = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong lastNanos = new AtomicLong();
+
+    // Current cycle, EDT only
+    private int depth = 0;
+    private long start;
+    private int cycleViews;
+    private int cycleUnlocked;
+    private Object event;
+
+    void beginCycle(String trigger) {
+        if (depth++ > 0) {
+            return;
+        }
+        cycleViews = 0;
+        cycleUnlocked = 0;
+        event = FLIGHT_RECORDER ? EditablePrEvents.begin(trigger) : null;
+        start = System.nanoTime();
+    }
+
+    void endCycle() {
+        if (--depth > 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        long micros = nanos / 1000L;
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        cycles.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        lastNanos.set(nanos);
+        if (event != null) {
+            EditablePrEvents.commit(event, cycleViews, cycleUnlocked);
+            event = null;
+        }
+    }
+
+    void viewChecked() {
+        cycleViews++;
+        viewsChecked.incrementAndGet();
+    }
+
+    void layerInspected(boolean unlocked) {
+        layersInspected.incrementAndGet();
+        if (unlocked) {
+            cycleUnlocked++;
+            layersUnlocked.incrementAndGet();
+        }
+    }
+
+    @Override
+    public long getCycles() {
+        return cycles.get();
+    }
+
+    @Override
+    public long getViewsChecked() {
+        return viewsChecked.get();
+    }
+
+    @Override
+    public long getLayersInspected() {
+        return layersInspected.get();
+    }
+
+    @Override
+    public long getLayersUnlocked() {
+        return layersUnlocked.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long n = cycles.get();
+        return n == 0 ? 0.0 : totalNanos.get() / (double) n / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    @Override
+    public double getLastMicros() {
+        return lastNanos.get() / 1000.0;
+    }
+
+    @Override
+    public String[] getHistogram() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = buckets.get(i);
+            if (n > 0) {
+                lines.add("<" + (1L << i) + "us=" + n);
+            }
+        }
+        return lines.toArray(String[]::new);
+    }
+
+    @Override
+    public boolean isFlightRecorderAvailable() {
+        return FLIGHT_RECORDER;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        cycles.set(0L);
+        viewsChecked.set(0L);
+        layersInspected.set(0L);
+        layersUnlocked.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+        lastNanos.set(0L);
+    }
+
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warn("Cannot publish the metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | RuntimeException e) {
+            LOGGER.debug("Cannot remove the metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * jdk.jfr is imported optionally: the event class must not be loaded when the framework does
+     * not export it to the bundle.
+     */
+    private static boolean isFlightRecorderVisible() {
+        try {
+            Class.forName("jdk.jfr.Event", false, EditablePrMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
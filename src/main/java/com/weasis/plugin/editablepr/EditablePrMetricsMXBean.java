@@ -0,0 +1,30 @@
+package com.weasis.plugin.editablepr;
+
+/**
+ * Management interface of the refresh cycles of the Editable PR plugin.
+ */
+public interface EditablePrMetricsMXBean {
+
+    long getCycles();
+
+    long getViewsChecked();
+
+    long getLayersInspected();
+
+    long getLayersUnlocked();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double getLastMicros();
+
+    /**
+     * @return the non-empty power of two buckets of microseconds, e.g. "<64us=12"
+     */
+    String[] getHistogram();
+
+    boolean isFlightRecorderAvailable();
+
+    void reset();
+}
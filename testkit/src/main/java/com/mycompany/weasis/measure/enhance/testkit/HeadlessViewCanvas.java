@@ -0,0 +1,105 @@
+package com.mycompany.weasis.measure.enhance.testkit;
+
+import java.awt.Point;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+
+import com.mycompany.weasis.measure.enhance.ProxyDefaults;
+
+/**
+ * Stand-in ViewCanvas for running the plugin code without a Weasis GUI.
+ *
+ * ViewCanvas is a large interface, so it is implemented with a dynamic proxy: only the
+ * methods used by the plugin hot paths (graphic model, image/screen transforms, component)
+ * are answered, everything else returns null, false or zero.
+ */
+public final class HeadlessViewCanvas implements InvocationHandler {
+
+    private final GraphicModel graphicModel;
+    private final AffineTransform transform;
+    private final AffineTransform inverse;
+    private final JComponent component = new JPanel();
+
+    private HeadlessViewCanvas(GraphicModel graphicModel, AffineTransform transform) {
+        this.graphicModel = graphicModel;
+        this.transform = new AffineTransform(transform);
+        try {
+            this.inverse = transform.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            throw new IllegalArgumentException("The image to screen transform must be invertible", e);
+        }
+    }
+
+    /**
+     * Create a view with an identity image to screen transform.
+     */
+    public static ViewCanvas<?> create(GraphicModel graphicModel) {
+        return create(graphicModel, new AffineTransform());
+    }
+
+    /**
+     * Create a view with the given image to screen transform (zoom, pan, rotation).
+     */
+    public static ViewCanvas<?> create(GraphicModel graphicModel, AffineTransform transform) {
+        return (ViewCanvas<?>) Proxy.newProxyInstance(
+            HeadlessViewCanvas.class.getClassLoader(),
+            new Class<?>[] {ViewCanvas.class},
+            new HeadlessViewCanvas(graphicModel, transform));
+    }
+
+    /**
+     * Image to screen transform of a view zoomed, rotated around the image origin, then panned.
+     *
+     * @param rotationDegrees Clockwise on screen, as the Weasis rotation
+     * @param tx Pan in screen pixels
+     * @param ty Pan in screen pixels
+     */
+    public static AffineTransform transform(double zoom, double rotationDegrees, double tx, double ty) {
+        AffineTransform transform = AffineTransform.getTranslateInstance(tx, ty);
+        transform.rotate(Math.toRadians(rotationDegrees));
+        transform.scale(zoom, zoom);
+        return transform;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getGraphicManager":
+                return graphicModel;
+            case "getAffineTransform":
+                return transform;
+            case "getInverseTransform":
+                return inverse;
+            case "getJComponent":
+                return component;
+            case "getMouseCoordinatesFromImage": {
+                Point2D screen = transform.transform(toPoint(args), null);
+                return new Point((int) Math.floor(screen.getX() + 0.5), (int) Math.floor(screen.getY() + 0.5));
+            }
+            case "getImageCoordinatesFromMouse":
+                return inverse.transform(toPoint(args), null);
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "HeadlessViewCanvas@" + Integer.toHexString(System.identityHashCode(proxy));
+            default:
+                return ProxyDefaults.defaultValue(method.getReturnType());
+        }
+    }
+
+    private static Point2D toPoint(Object[] args) {
+        return new Point2D.Double(((Number) args[0]).doubleValue(), ((Number) args[1]).doubleValue());
+    }
+}
@@ -0,0 +1,472 @@
+package com.mycompany.weasis.measure.enhance.testkit;
+
+import java.awt.AWTEvent;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.imp.XmlGraphicModel;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+
+import com.mycompany.weasis.measure.enhance.AngleCalculationAction;
+import com.mycompany.weasis.measure.enhance.CobbAngleAction;
+import com.mycompany.weasis.measure.enhance.CommandLog;
+import com.mycompany.weasis.measure.enhance.InteractionRecording;
+import com.mycompany.weasis.measure.enhance.ParallelLineAction;
+import com.mycompany.weasis.measure.enhance.PerpendicularBisectorAction;
+import com.mycompany.weasis.measure.enhance.PerpendicularDistanceAction;
+import com.mycompany.weasis.measure.enhance.TrisectionPerpendicularAction;
+
+/**
+ * Replays an interaction recording of the plugin on a headless view over a heavy synthetic
+ * study, and reports the event to paint latency and the GC activity of the run.
+ *
+ * Each recorded event is posted to the EDT, given to the listeners of the view component
+ * (perpendicular distance mode) and to a stand-in of the Weasis drawing handler. The event
+ * is complete once the EDT has run everything the plugin queued for it (construction updates,
+ * coalesced repaints) and the dirty region has been painted offscreen, as Swing would do. Its
+ * latency is measured from the time it was posted.
+ *
+ * Usage: java -cp weasis-measure-enhance-testkit-1.0.1-all.jar
+ * com.mycompany.weasis.measure.enhance.testkit.InteractionReplayer recording.rec [graphic count]
+ * [speed] [runs]
+ * The speed is "max" (next event once the previous one is painted) or a factor of the
+ * recorded timing, 1 being real time. Each run uses a fresh model; the first one includes the
+ * JIT warm-up. Toolbar actions select the lines drawn during the replay, then random lines of
+ * the study, up to the recorded selection size.
+ */
+public final class InteractionReplayer {
+
+    // Source of the replay events, to tell them apart from the work queued by the plugin
+    private static final Object REPLAY_SOURCE = new Object();
+    private static final int MAX_DEFERRALS = 10_000;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private static final String[] KINDS = {"move", "drag", "button", "key", "action", "tool"};
+
+    private final InteractionRecording recording;
+    private final double speed;
+
+    // EDT state of a run
+    private ViewCanvas<?> view;
+    private JComponent component;
+    private ReplayDrawing drawing;
+    private List<LineGraphic> studyLines;
+    private final SplittableRandom random = new SplittableRandom(5L);
+    private CapturingRepaintManager repaintManager;
+    private BufferedImage canvas;
+    private final List<Integer> pending = new ArrayList<>();
+    private boolean paintScheduled = false;
+    private int deferrals = 0;
+    private long[] postedNanos;
+    private long[] latencyNanos;
+    private int errors = 0;
+    private String firstError;
+    private long paints = 0;
+    private long paintedPixels = 0;
+    private Semaphore completed;
+
+    private InteractionReplayer(InteractionRecording recording, double speed) {
+        this.recording = recording;
+        this.speed = speed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: InteractionReplayer recording.rec [graphic count] [max|speed] [runs]");
+            System.exit(2);
+        }
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        InteractionRecording recording;
+        try (BufferedReader in = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            recording = InteractionRecording.read(in);
+        }
+        int graphicCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        double speed = args.length > 2 && !"max".equals(args[2]) ? Double.parseDouble(args[2]) : 0.0;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        System.out.printf(Locale.ROOT, "%s: %d events over %.1f s, %d graphics, speed %s%n", args[0],
+            recording.size(), recording.size() == 0 ? 0.0 : recording.getWhen(recording.size() - 1) / 1000.0,
+            graphicCount, speed > 0.0 ? String.valueOf(speed) : "max");
+        for (int run = 1; run <= runs; run++) {
+            InteractionReplayer replayer = new InteractionReplayer(recording, speed);
+            replayer.run(run, graphicCount);
+        }
+        System.exit(0);
+    }
+
+    private void run(int run, int graphicCount) throws Exception {
+        int n = recording.size();
+        postedNanos = new long[n];
+        latencyNanos = new long[n];
+        Arrays.fill(latencyNanos, -1L);
+        completed = new Semaphore(0);
+
+        SwingUtilities.invokeAndWait(() -> setUp(graphicCount));
+        GcSnapshot before = GcSnapshot.take();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < n; i++) {
+            if (speed > 0.0) {
+                long due = start + (long) (recording.getWhen(i) * 1_000_000L / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            int index = i;
+            postedNanos[i] = System.nanoTime();
+            post(new InvocationEvent(REPLAY_SOURCE, () -> replay(index)));
+            if (speed <= 0.0 && !completed.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Event " + i + " not painted after " + TIMEOUT_SECONDS + " s");
+            }
+        }
+        if (speed > 0.0 && !completed.tryAcquire(n, TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Replay not painted after " + TIMEOUT_SECONDS + " s");
+        }
+        long elapsed = System.nanoTime() - start;
+        GcSnapshot after = GcSnapshot.take();
+        SwingUtilities.invokeAndWait(() -> RepaintManager.setCurrentManager(null));
+        report(run, elapsed, before, after);
+    }
+
+    private void setUp(int graphicCount) {
+        GraphicModel model = new XmlGraphicModel();
+        AffineTransform transform = recording.getTransform();
+        view = HeadlessViewCanvas.create(model, transform);
+        component = view.getJComponent();
+        int width = recording.getWidth() > 0 ? recording.getWidth() : 1024;
+        int height = recording.getHeight() > 0 ? recording.getHeight() : 1024;
+        component.setSize(width, height);
+        canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        studyLines = LoadGenerator.populate(view, LoadGenerator.Mix.of(graphicCount), 3L);
+        drawing = new ReplayDrawing(view);
+        repaintManager = new CapturingRepaintManager(component);
+        RepaintManager.setCurrentManager(repaintManager);
+    }
+
+    private static void post(AWTEvent event) {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().postEvent(event);
+    }
+
+    /**
+     * Give one recorded event to the view, on the EDT.
+     */
+    private void replay(int i) {
+        try {
+            int id = recording.getId(i);
+            if (id == InteractionRecording.TOOL) {
+                drawing.setTool(recording.getLabel(i));
+            } else if (id == InteractionRecording.ACTION) {
+                applyAction(recording.getLabel(i), recording.getClickCount(i));
+            } else if (id >= KeyEvent.KEY_FIRST && id <= KeyEvent.KEY_LAST) {
+                KeyEvent e = new KeyEvent(component, id, System.currentTimeMillis(), recording.getModifiersEx(i),
+                    recording.getKeyCode(i), recording.getKeyChar(i));
+                dispatch(e);
+                drawing.keyEvent(e);
+            } else {
+                MouseEvent e = new MouseEvent(component, id, System.currentTimeMillis(), recording.getModifiersEx(i),
+                    recording.getX(i), recording.getY(i), recording.getClickCount(i), false, recording.getButton(i));
+                dispatch(e);
+                drawing.mouseEvent(e, new Point2D.Double(recording.getImageX(i), recording.getImageY(i)));
+            }
+        } catch (Exception e) {
+            error(e);
+        }
+        pending.add(i);
+        if (!paintScheduled) {
+            paintScheduled = true;
+            post(new InvocationEvent(this, this::paintWhenIdle));
+        }
+    }
+
+    /**
+     * Listeners of the view component, as the perpendicular distance mode.
+     */
+    private void dispatch(AWTEvent event) {
+        if (event instanceof KeyEvent e) {
+            for (KeyListener listener : component.getKeyListeners()) {
+                switch (e.getID()) {
+                    case KeyEvent.KEY_PRESSED -> listener.keyPressed(e);
+                    case KeyEvent.KEY_RELEASED -> listener.keyReleased(e);
+                    default -> listener.keyTyped(e);
+                }
+            }
+        } else if (event instanceof MouseEvent e) {
+            if (e.getID() == MouseEvent.MOUSE_MOVED || e.getID() == MouseEvent.MOUSE_DRAGGED) {
+                for (MouseMotionListener listener : component.getMouseMotionListeners()) {
+                    if (e.getID() == MouseEvent.MOUSE_MOVED) {
+                        listener.mouseMoved(e);
+                    } else {
+                        listener.mouseDragged(e);
+                    }
+                }
+                return;
+            }
+            for (MouseListener listener : component.getMouseListeners()) {
+                switch (e.getID()) {
+                    case MouseEvent.MOUSE_PRESSED -> listener.mousePressed(e);
+                    case MouseEvent.MOUSE_RELEASED -> listener.mouseReleased(e);
+                    case MouseEvent.MOUSE_CLICKED -> listener.mouseClicked(e);
+                    default -> {
+                        // Enter and exit are not recorded
+                    }
+                }
+            }
+        }
+    }
+
+    private void applyAction(String name, int selectedCount) throws InvalidShapeException {
+        GraphicModel model = view.getGraphicManager();
+        for (Graphic graphic : model.getSelectedGraphics()) {
+            graphic.setSelected(Boolean.FALSE);
+        }
+        List<LineGraphic> drawn = drawing.getDrawnLines();
+        for (int k = 0; k < selectedCount && (k < drawn.size() || !studyLines.isEmpty()); k++) {
+            LineGraphic line = k < drawn.size() ? drawn.get(drawn.size() - 1 - k)
+                : studyLines.get(random.nextInt(studyLines.size()));
+            line.setSelected(Boolean.TRUE);
+        }
+        switch (name) {
+            case "angle" -> AngleCalculationAction.calculateAngle(view);
+            case "cobb" -> CobbAngleAction.measure(view);
+            case "bisector" -> PerpendicularBisectorAction.drawPerpendicularBisector(view);
+            case "perpendicularDistance" -> PerpendicularDistanceAction.startMeasurement(view);
+            case "parallel" -> ParallelLineAction.createParallelLine(view);
+            case "trisection" -> TrisectionPerpendicularAction.drawTrisectionPerpendiculars(view);
+            case "undo" -> CommandLog.undo(view);
+            case "redo" -> CommandLog.redo(view);
+            default -> {
+                // Series propagation needs a series, other actions are not replayed
+            }
+        }
+    }
+
+    /**
+     * Paint once the EDT has no more work from the plugin ahead of the next replayed event,
+     * then complete all the events waiting for that paint.
+     */
+    private void paintWhenIdle() {
+        AWTEvent next = Toolkit.getDefaultToolkit().getSystemEventQueue().peekEvent();
+        if (next != null && next.getSource() != REPLAY_SOURCE && deferrals < MAX_DEFERRALS) {
+            deferrals++;
+            post(new InvocationEvent(this, this::paintWhenIdle));
+            return;
+        }
+        deferrals = 0;
+        paintScheduled = false;
+
+        Rectangle dirty = repaintManager.takeDirtyRegion();
+        if (dirty != null) {
+            paint(dirty);
+        }
+        long now = System.nanoTime();
+        for (int i : pending) {
+            latencyNanos[i] = now - postedNanos[i];
+        }
+        completed.release(pending.size());
+        pending.clear();
+    }
+
+    /**
+     * Paint the graphics crossing the dirty region, as the view does.
+     */
+    private void paint(Rectangle dirty) {
+        Rectangle clip = dirty.intersection(new Rectangle(canvas.getWidth(), canvas.getHeight()));
+        if (clip.isEmpty()) {
+            return;
+        }
+        AffineTransform transform = view.getAffineTransform();
+        Graphics2D g2d = canvas.createGraphics();
+        try {
+            g2d.setClip(clip);
+            g2d.setColor(Color.BLACK);
+            g2d.fill(clip);
+            for (Graphic graphic : view.getGraphicManager().getModels()) {
+                Rectangle bounds = graphic.getRepaintBounds(transform);
+                if (bounds != null && bounds.intersects(clip)) {
+                    graphic.paint(g2d, transform);
+                    graphic.paintLabel(g2d, transform);
+                }
+            }
+        } catch (Exception e) {
+            error(e);
+        } finally {
+            g2d.dispose();
+        }
+        paints++;
+        paintedPixels += (long) clip.width * clip.height;
+    }
+
+    private void error(Exception e) {
+        if (errors++ == 0) {
+            firstError = e.toString();
+        }
+    }
+
+    private void report(int run, long elapsedNanos, GcSnapshot before, GcSnapshot after) {
+        System.out.printf(Locale.ROOT, "Run %d: %.2f s, %d paints, %.1f Mpx painted, %d errors%n", run,
+            elapsedNanos / 1e9, paints, paintedPixels / 1e6, errors);
+        if (firstError != null) {
+            System.out.println("  First error: " + firstError);
+        }
+        System.out.printf(Locale.ROOT, "  %-8s %7s %9s %9s %9s %9s %9s %7s%n", "events", "count", "mean ms",
+            "p50 ms", "p90 ms", "p99 ms", "max ms", ">16 ms");
+        printLatencies("all", -1);
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            printLatencies(KINDS[kind], kind);
+        }
+        after.printDelta(before);
+    }
+
+    private void printLatencies(String name, int kind) {
+        long[] values = new long[latencyNanos.length];
+        int count = 0;
+        for (int i = 0; i < latencyNanos.length; i++) {
+            if (latencyNanos[i] >= 0 && (kind < 0 || kindOf(i) == kind)) {
+                values[count++] = latencyNanos[i];
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        Arrays.sort(values, 0, count);
+        long total = 0;
+        int slow = 0;
+        for (int i = 0; i < count; i++) {
+            total += values[i];
+            if (values[i] > 16_000_000L) {
+                slow++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "  %-8s %7d %9.3f %9.3f %9.3f %9.3f %9.3f %7d%n", name, count,
+            total / 1e6 / count, percentile(values, count, 0.5), percentile(values, count, 0.9),
+            percentile(values, count, 0.99), values[count - 1] / 1e6, slow);
+    }
+
+    private static double percentile(long[] sorted, int count, double p) {
+        int index = (int) Math.min(count - 1, Math.ceil(p * count) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private int kindOf(int i) {
+        int id = recording.getId(i);
+        if (id == InteractionRecording.ACTION) {
+            return 4;
+        }
+        if (id == InteractionRecording.TOOL) {
+            return 5;
+        }
+        if (id >= KeyEvent.KEY_FIRST && id <= KeyEvent.KEY_LAST) {
+            return 3;
+        }
+        if (id == MouseEvent.MOUSE_MOVED) {
+            return 0;
+        }
+        return id == MouseEvent.MOUSE_DRAGGED ? 1 : 2;
+    }
+
+    /**
+     * Collects the repaint requests of the view instead of painting: headless components are
+     * never painted by Swing.
+     */
+    private static final class CapturingRepaintManager extends RepaintManager {
+        private final JComponent component;
+        private Rectangle dirty;
+
+        CapturingRepaintManager(JComponent component) {
+            this.component = component;
+        }
+
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            if (c == component && w > 0 && h > 0) {
+                Rectangle region = new Rectangle(x, y, w, h);
+                if (dirty == null) {
+                    dirty = region;
+                } else {
+                    dirty.add(region);
+                }
+            }
+        }
+
+        Rectangle takeDirtyRegion() {
+            Rectangle region = dirty;
+            dirty = null;
+            return region;
+        }
+    }
+
+    /**
+     * Collection counts and times of the garbage collectors, and the allocation of the EDT.
+     */
+    private record GcSnapshot(String[] names, long[] counts, long[] millis, long heapUsed, long edtAllocated) {
+
+        static GcSnapshot take() throws Exception {
+            List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+            String[] names = new String[beans.size()];
+            long[] counts = new long[beans.size()];
+            long[] millis = new long[beans.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = beans.get(i).getName();
+                counts[i] = beans.get(i).getCollectionCount();
+                millis[i] = beans.get(i).getCollectionTime();
+            }
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            long[] edtAllocated = {-1L};
+            SwingUtilities.invokeAndWait(() -> {
+                if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+                    edtAllocated[0] = threads.getCurrentThreadAllocatedBytes();
+                }
+            });
+            return new GcSnapshot(names, counts, millis, memory.getHeapMemoryUsage().getUsed(), edtAllocated[0]);
+        }
+
+        void printDelta(GcSnapshot before) {
+            for (int i = 0; i < names.length; i++) {
+                System.out.printf(Locale.ROOT, "  GC %-24s %5d collections %7d ms%n", names[i],
+                    counts[i] - before.counts[i], millis[i] - before.millis[i]);
+            }
+            if (edtAllocated >= 0 && before.edtAllocated >= 0) {
+                System.out.printf(Locale.ROOT, "  EDT allocated %.1f MB, heap used %.1f MB%n",
+                    (edtAllocated - before.edtAllocated) / 1e6, heapUsed / 1e6);
+            } else {
+                System.out.printf(Locale.ROOT, "  Heap used %.1f MB%n", heapUsed / 1e6);
+            }
+        }
+    }
+}
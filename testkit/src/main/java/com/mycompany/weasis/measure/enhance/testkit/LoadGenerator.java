@@ -0,0 +1,197 @@
+package com.mycompany.weasis.measure.enhance.testkit;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.graphic.imp.line.PolylineGraphic;
+import org.weasis.core.ui.model.layer.LayerType;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+
+import com.mycompany.weasis.measure.enhance.CircleFitToolGraphic;
+import com.mycompany.weasis.measure.enhance.ConstructionGraph;
+import com.mycompany.weasis.measure.enhance.ConstructionType;
+
+/**
+ * Fills the model of a view with the mix of graphics of a heavily annotated study: plain lines,
+ * circle centers, fitted circles, polylines, and constructions bound to some of the lines, as
+ * the toolbar actions create them. Also generates cursor traces to replay over the model.
+ *
+ * Generation is seeded, so runs are comparable. Must be called from the EDT, like the actions.
+ */
+public final class LoadGenerator {
+
+    /**
+     * Number of graphics of each kind.
+     *
+     * @param constructions Bisectors, parallel lines and perpendicular distances, bound to the lines
+     */
+    public record Mix(int lines, int circles, int circleFits, int polylines, int constructions) {
+
+        /**
+         * Half lines, a fifth constructions, and a tenth of each other kind.
+         */
+        public static Mix of(int graphicCount) {
+            int tenth = graphicCount / 10;
+            int constructions = graphicCount / 5;
+            return new Mix(graphicCount - 3 * tenth - constructions, tenth, tenth, tenth, constructions);
+        }
+
+        public int total() {
+            return lines + circles + circleFits + polylines + constructions;
+        }
+    }
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Add the graphics of the mix to the model of the view, with a single change notification.
+     *
+     * @return The source lines, in creation order
+     */
+    public static List<LineGraphic> populate(ViewCanvas<?> view, Mix mix, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<LineGraphic> lines = new ArrayList<>(mix.lines());
+        List<Graphic> graphics = new ArrayList<>(mix.total());
+        for (int i = 0; i < mix.lines(); i++) {
+            LineGraphic line = SyntheticStudy.randomLine(random);
+            lines.add(line);
+            graphics.add(line);
+        }
+        for (int i = 0; i < mix.circles(); i++) {
+            graphics.add(SyntheticStudy.randomCircle(random));
+        }
+        for (int i = 0; i < mix.circleFits(); i++) {
+            graphics.add(randomCircleFit(random));
+        }
+        for (int i = 0; i < mix.polylines(); i++) {
+            graphics.add(randomPolyline(random));
+        }
+
+        ConstructionType[] types = {ConstructionType.PERPENDICULAR_AT_FRACTION, ConstructionType.PARALLEL_LINE,
+            ConstructionType.PERPENDICULAR_DISTANCE};
+        List<Graphic> constructed = new ArrayList<>(mix.constructions());
+        List<ConstructionType> constructedTypes = new ArrayList<>(mix.constructions());
+        List<Graphic[]> sources = new ArrayList<>(mix.constructions());
+        List<double[]> args = new ArrayList<>(mix.constructions());
+        for (int i = 0; i < mix.constructions() && !lines.isEmpty(); i++) {
+            Graphic[] source = {lines.get(random.nextInt(lines.size()))};
+            ConstructionType type = types[i % types.length];
+            double[] arg = switch (type) {
+                case PERPENDICULAR_AT_FRACTION -> new double[] {random.nextDouble(), 20.0 + random.nextDouble(100.0)};
+                case PARALLEL_LINE -> new double[] {random.nextDouble(-100.0, 100.0)};
+                default -> new double[] {random.nextDouble(SyntheticStudy.IMAGE_SIZE),
+                    random.nextDouble(SyntheticStudy.IMAGE_SIZE)};
+            };
+            Graphic graphic = create(type, source, arg);
+            if (graphic != null) {
+                graphics.add(graphic);
+                constructed.add(graphic);
+                constructedTypes.add(type);
+                sources.add(source);
+                args.add(arg);
+            }
+        }
+
+        ConstructionGraph.addAllToModel(view, graphics);
+        for (int i = 0; i < constructed.size(); i++) {
+            ConstructionGraph.bind(view, constructed.get(i), constructedTypes.get(i), sources.get(i), args.get(i));
+        }
+        return lines;
+    }
+
+    /**
+     * Cursor positions of a random walk over the image, as x, y pairs, like the mouse events
+     * of a user drawing or dragging.
+     *
+     * @param step Maximum move between two events, in image pixels
+     */
+    public static double[] cursorTrace(int events, double step, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] trace = new double[events * 2];
+        double x = random.nextDouble(SyntheticStudy.IMAGE_SIZE);
+        double y = random.nextDouble(SyntheticStudy.IMAGE_SIZE);
+        for (int i = 0; i < events; i++) {
+            x = clamp(x + random.nextDouble(-step, step));
+            y = clamp(y + random.nextDouble(-step, step));
+            trace[2 * i] = x;
+            trace[2 * i + 1] = y;
+        }
+        return trace;
+    }
+
+    public static CircleFitToolGraphic randomCircleFit(SplittableRandom random) {
+        double cx = random.nextDouble(SyntheticStudy.IMAGE_SIZE);
+        double cy = random.nextDouble(SyntheticStudy.IMAGE_SIZE);
+        double r = 10.0 + random.nextDouble(80.0);
+        int count = 4 + random.nextInt(8);
+        List<Point2D> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Points of a noisy circle, as clicked on a rounded structure
+            double angle = 2.0 * Math.PI * i / count;
+            double noisy = r + random.nextDouble(-1.0, 1.0);
+            points.add(new Point2D.Double(cx + noisy * Math.cos(angle), cy + noisy * Math.sin(angle)));
+        }
+        return circleFit(points);
+    }
+
+    /**
+     * A circle fitted through points taken exactly on the given circle.
+     */
+    public static CircleFitToolGraphic circleFit(double cx, double cy, double r, int count) {
+        List<Point2D> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double angle = 0.3 + 2.0 * Math.PI * i / count;
+            points.add(new Point2D.Double(cx + r * Math.cos(angle), cy + r * Math.sin(angle)));
+        }
+        return circleFit(points);
+    }
+
+    private static CircleFitToolGraphic circleFit(List<Point2D> points) {
+        CircleFitToolGraphic circle = new CircleFitToolGraphic();
+        circle.setLayerType(LayerType.MEASURE);
+        build(circle, points);
+        return circle;
+    }
+
+    public static PolylineGraphic randomPolyline(SplittableRandom random) {
+        double x = random.nextDouble(SyntheticStudy.IMAGE_SIZE);
+        double y = random.nextDouble(SyntheticStudy.IMAGE_SIZE);
+        int count = 3 + random.nextInt(6);
+        List<Point2D> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(new Point2D.Double(x, y));
+            x = clamp(x + random.nextDouble(-60.0, 60.0));
+            y = clamp(y + random.nextDouble(-60.0, 60.0));
+        }
+        PolylineGraphic polyline = new PolylineGraphic();
+        polyline.setLayerType(LayerType.MEASURE);
+        build(polyline, points);
+        return polyline;
+    }
+
+    private static Graphic create(ConstructionType type, Graphic[] sources, double[] args) {
+        try {
+            return ConstructionGraph.create(type, sources, args);
+        } catch (InvalidShapeException e) {
+            throw new IllegalStateException("Cannot build synthetic construction", e);
+        }
+    }
+
+    private static void build(Graphic graphic, List<Point2D> points) {
+        try {
+            graphic.buildGraphic(points);
+        } catch (InvalidShapeException e) {
+            throw new IllegalStateException("Cannot build synthetic graphic", e);
+        }
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(SyntheticStudy.IMAGE_SIZE, value));
+    }
+}
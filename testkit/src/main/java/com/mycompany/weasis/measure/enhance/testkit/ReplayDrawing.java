@@ -0,0 +1,155 @@
+package com.mycompany.weasis.measure.enhance.testkit;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JComponent;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.AbstractGraphicModel;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.area.ThreePointsCircleGraphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.graphic.imp.line.PolylineGraphic;
+import org.weasis.core.ui.model.layer.LayerType;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+import org.weasis.core.ui.util.MouseEventDouble;
+
+/**
+ * Stand-in for the Weasis mouse handler of a view in measure mode, for the replay: a press
+ * starts a graphic of the recorded tool, the moves and drags move its last point and rebuild
+ * its shape with the mouse event (so the plugin tools snap as in Weasis), a release adds the
+ * next point or finishes the graphic, Escape cancels it.
+ *
+ * Two-point tools finish on release, three-point circles at their third point and polylines
+ * (the circle fit) on a double-click. Only used from the EDT.
+ */
+final class ReplayDrawing {
+
+    private final ViewCanvas<?> view;
+    private final Map<String, Graphic> tools = new HashMap<>();
+    private final List<LineGraphic> drawnLines = new ArrayList<>();
+    private Graphic tool;
+    private Graphic drawing;
+
+    ReplayDrawing(ViewCanvas<?> view) {
+        this.view = view;
+    }
+
+    /**
+     * @param toolClassName Class of the tool graphic, or "none" when the left button does not draw
+     */
+    void setTool(String toolClassName) {
+        tool = tools.computeIfAbsent(toolClassName, ReplayDrawing::newTool);
+    }
+
+    private static Graphic newTool(String className) {
+        try {
+            Object tool = Class.forName(className).getDeclaredConstructor().newInstance();
+            return tool instanceof Graphic graphic ? graphic : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // "none", or a tool of another plugin: the left button does not draw
+            return null;
+        }
+    }
+
+    /**
+     * @return the lines drawn during the replay, oldest first
+     */
+    List<LineGraphic> getDrawnLines() {
+        return drawnLines;
+    }
+
+    void mouseEvent(MouseEvent e, Point2D imagePoint) throws InvalidShapeException {
+        switch (e.getID()) {
+            case MouseEvent.MOUSE_PRESSED -> {
+                if (drawing == null && tool != null && e.getButton() == MouseEvent.BUTTON1) {
+                    start(imagePoint);
+                }
+            }
+            case MouseEvent.MOUSE_DRAGGED, MouseEvent.MOUSE_MOVED -> {
+                if (drawing != null) {
+                    moveLastPoint(imagePoint, toViewEvent(e, imagePoint));
+                }
+            }
+            case MouseEvent.MOUSE_RELEASED -> {
+                if (drawing != null && e.getButton() == MouseEvent.BUTTON1) {
+                    release(imagePoint, toViewEvent(e, imagePoint), e.getClickCount());
+                }
+            }
+            default -> {
+                // Clicks are only used by the component listeners
+            }
+        }
+    }
+
+    void keyEvent(KeyEvent e) {
+        if (drawing != null && e.getID() == KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+            GraphicModel model = view.getGraphicManager();
+            model.removeGraphic(drawing);
+            drawing = null;
+        }
+    }
+
+    private void start(Point2D p) throws InvalidShapeException {
+        Graphic graphic = tool.copy();
+        graphic.setLayerType(LayerType.MEASURE);
+        List<Point2D> pts = new ArrayList<>();
+        pts.add(new Point2D.Double(p.getX(), p.getY()));
+        pts.add(new Point2D.Double(p.getX(), p.getY()));
+        graphic.buildGraphic(pts);
+        AbstractGraphicModel.addGraphicToModel(view, graphic);
+        drawing = graphic;
+    }
+
+    private void moveLastPoint(Point2D p, MouseEventDouble event) {
+        List<Point2D> pts = drawing.getPts();
+        pts.get(pts.size() - 1).setLocation(p);
+        drawing.buildShape(event);
+    }
+
+    private void release(Point2D p, MouseEventDouble event, int clickCount) {
+        moveLastPoint(p, event);
+        List<Point2D> pts = drawing.getPts();
+        boolean finished;
+        if (drawing instanceof PolylineGraphic) {
+            finished = clickCount >= 2;
+            if (finished && pts.size() > 2) {
+                // The double-click added the same point twice
+                pts.remove(pts.size() - 1);
+                drawing.buildShape(event);
+            }
+        } else if (drawing instanceof ThreePointsCircleGraphic) {
+            finished = pts.size() >= 3;
+        } else {
+            finished = true;
+        }
+        if (finished) {
+            if (drawing instanceof LineGraphic line) {
+                drawnLines.add(line);
+            }
+            drawing = null;
+        } else {
+            pts.add(new Point2D.Double(p.getX(), p.getY()));
+        }
+    }
+
+    /**
+     * The event as the graphics receive it in Weasis: in image coordinates, from the view.
+     */
+    private MouseEventDouble toViewEvent(MouseEvent e, Point2D imagePoint) {
+        JComponent component = view.getJComponent();
+        MouseEventDouble event = new MouseEventDouble(component, e.getID(), e.getWhen(), e.getModifiersEx(),
+            e.getX(), e.getY(), e.getClickCount(), false, e.getButton());
+        event.setImageCoordinates(imagePoint);
+        // A ViewCanvas is a component in Weasis; the headless one is not
+        event.setSource(view);
+        return event;
+    }
+}
@@ -0,0 +1,363 @@
+package com.mycompany.weasis.measure.enhance.testkit;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.weasis.core.ui.editor.image.ViewCanvas;
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.imp.XmlGraphicModel;
+import org.weasis.core.ui.model.utils.bean.MeasureItem;
+
+import com.mycompany.weasis.measure.enhance.AngleCalculationAction;
+import com.mycompany.weasis.measure.enhance.AngleResultGraphic;
+import com.mycompany.weasis.measure.enhance.CircleFitToolGraphic;
+import com.mycompany.weasis.measure.enhance.CobbAngleAction;
+import com.mycompany.weasis.measure.enhance.ConstructionGraph;
+import com.mycompany.weasis.measure.enhance.ConstructionGraph.Construction;
+import com.mycompany.weasis.measure.enhance.ParallelLineAction;
+import com.mycompany.weasis.measure.enhance.PerpendicularBisectorAction;
+import com.mycompany.weasis.measure.enhance.SnapCandidate;
+import com.mycompany.weasis.measure.enhance.SnapProfiler;
+import com.mycompany.weasis.measure.enhance.SnapType;
+import com.mycompany.weasis.measure.enhance.SnappingUtil;
+import com.mycompany.weasis.measure.enhance.TrisectionPerpendicularAction;
+
+/**
+ * Runs the actions and the snapping of the plugin on headless views and checks their results,
+ * then replays cursor traces over a large synthetic model and prints the snap latencies.
+ *
+ * Usage: java -jar weasis-measure-enhance-testkit-1.0.1-all.jar [graphic count] [cursor events]
+ * The exit code is the number of failed checks, so it can gate a local build script. Plugin code
+ * runs on the EDT as in Weasis; the checks wait for it between steps.
+ */
+public final class SelfCheck {
+
+    private static final double EPSILON = 1e-6;
+    private static final long ACTION_TIMEOUT_MILLIS = 10_000;
+
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    private int passed = 0;
+    private int failed = 0;
+
+    private SelfCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        int graphicCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+
+        SelfCheck selfCheck = new SelfCheck();
+        selfCheck.run("Perpendicular bisector", SelfCheck::checkBisector);
+        selfCheck.run("Trisection perpendiculars", SelfCheck::checkTrisection);
+        selfCheck.run("Parallel line", SelfCheck::checkParallelLine);
+        selfCheck.run("Construction follows its source", SelfCheck::checkFollowSource);
+        selfCheck.run("Angle label", SelfCheck::checkAngle);
+        selfCheck.run("Cobb curves", SelfCheck::checkCobbCurves);
+        selfCheck.run("Circle fit", SelfCheck::checkCircleFit);
+        selfCheck.run("Snap to handle", () -> checkSnap(101.0, 101.0, SnapType.HANDLE, 100.0, 100.0));
+        selfCheck.run("Snap to midpoint", () -> checkSnap(200.0, 103.0, SnapType.MIDPOINT, 200.0, 100.0));
+        selfCheck.run("Snap to nearest", () -> checkSnap(150.0, 103.0, SnapType.NEAREST, 150.0, 100.0));
+        selfCheck.run("Snap to intersection", () -> checkSnap(502.0, 501.0, SnapType.INTERSECTION, 500.0, 500.0));
+        selfCheck.run("Snap to center", () -> checkSnap(1001.0, 1002.0, SnapType.CENTER, 1000.0, 1000.0));
+        selfCheck.run("Snap tolerance follows the zoom", SelfCheck::checkSnapZoom);
+        selfCheck.run("Bisectors of 1000 lines", SelfCheck::checkBatchBisectors);
+        selfCheck.run("Snap latency, " + graphicCount + " graphics", () -> replaySnapping(graphicCount, events));
+
+        System.out.printf(Locale.ROOT, "%d passed, %d failed%n", selfCheck.passed, selfCheck.failed);
+        System.exit(selfCheck.failed);
+    }
+
+    private void run(String name, Check check) {
+        long start = System.nanoTime();
+        try {
+            check.run();
+            passed++;
+            System.out.printf(Locale.ROOT, "PASS %-40s %8.2f ms%n", name, (System.nanoTime() - start) / 1e6);
+        } catch (Throwable e) {
+            failed++;
+            System.out.printf(Locale.ROOT, "FAIL %-40s %s%n", name, e);
+        }
+    }
+
+    private static void checkBisector() throws Exception {
+        onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(new XmlGraphicModel());
+            LineGraphic line = addSelectedLine(view, 100.0, 200.0, 500.0, 500.0);
+            PerpendicularBisectorAction.drawPerpendicularBisector(view);
+            Graphic bisector = singleConstruction(line);
+            assertPoint(midpoint(bisector), 300.0, 350.0);
+            assertPerpendicular(line, bisector);
+            assertEquals(250.0, length(bisector), "bisector length");
+            return null;
+        });
+    }
+
+    private static void checkTrisection() throws Exception {
+        onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(new XmlGraphicModel());
+            LineGraphic line = addSelectedLine(view, 0.0, 0.0, 300.0, 0.0);
+            TrisectionPerpendicularAction.drawTrisectionPerpendiculars(view);
+            List<Construction> constructions = ConstructionGraph.getConstructions(line);
+            check(constructions.size() == 2, "expected 2 perpendiculars, got " + constructions.size());
+            assertPoint(midpoint(constructions.get(0).target()), 100.0, 0.0);
+            assertPoint(midpoint(constructions.get(1).target()), 200.0, 0.0);
+            assertPerpendicular(line, constructions.get(0).target());
+            return null;
+        });
+    }
+
+    private static void checkParallelLine() throws Exception {
+        onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(new XmlGraphicModel());
+            LineGraphic line = addSelectedLine(view, 100.0, 100.0, 400.0, 500.0);
+            ParallelLineAction.createParallelLine(view);
+            List<Point2D> pts = singleConstruction(line).getPts();
+            Point2D a = pts.get(0);
+            Point2D b = pts.get(1);
+            Point2D c = pts.get(2);
+            Point2D d = pts.get(3);
+            double cross =
+                (b.getX() - a.getX()) * (d.getY() - c.getY()) - (b.getY() - a.getY()) * (d.getX() - c.getX());
+            assertEquals(0.0, cross / (a.distance(b) * c.distance(d)), "sine between the lines");
+            // Default offset: max(50, 0.3 * length)
+            double offset = Math.abs((b.getX() - a.getX()) * (c.getY() - a.getY())
+                - (b.getY() - a.getY()) * (c.getX() - a.getX())) / a.distance(b);
+            assertEquals(150.0, offset, "offset");
+            return null;
+        });
+    }
+
+    private static void checkFollowSource() throws Exception {
+        AtomicReference<LineGraphic> line = new AtomicReference<>();
+        onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(new XmlGraphicModel());
+            line.set(addSelectedLine(view, 100.0, 100.0, 300.0, 100.0));
+            PerpendicularBisectorAction.drawPerpendicularBisector(view);
+            line.get().buildGraphic(Arrays.asList(new Point2D.Double(100.0, 100.0), new Point2D.Double(500.0, 300.0)));
+            return null;
+        });
+        // The constructions are recomputed at the end of the EDT cycle of the change
+        onEdt(() -> {
+            Graphic bisector = singleConstruction(line.get());
+            assertPoint(midpoint(bisector), 300.0, 200.0);
+            assertPerpendicular(line.get(), bisector);
+            return null;
+        });
+    }
+
+    private static void checkAngle() throws Exception {
+        onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(new XmlGraphicModel());
+            addSelectedLine(view, 0.0, 0.0, 100.0, 0.0);
+            addSelectedLine(view, 0.0, 0.0, 100.0, 100.0);
+            AngleCalculationAction.calculateAngle(view);
+            AngleResultGraphic label = null;
+            for (Graphic graphic : view.getGraphicManager().getModels()) {
+                if (graphic instanceof AngleResultGraphic angle) {
+                    label = angle;
+                }
+            }
+            check(label != null, "no angle label created");
+            List<MeasureItem> items = label.computeMeasurements(null, true, null);
+            check(items != null && !items.isEmpty(), "no angle measured");
+            assertEquals(45.0, ((Number) items.get(0).getValue()).doubleValue(), "angle");
+            return null;
+        });
+    }
+
+    private static void checkCobbCurves() {
+        // Tilts along the spine: up to 20 degrees, down to -25, back to 0
+        List<CobbAngleAction.Curve> curves =
+            CobbAngleAction.findCurves(new double[] {0.0, 10.0, 20.0, 10.0, -10.0, -25.0, -10.0, 0.0}, 5.0);
+        check(curves.size() == 3, "expected 3 curves, got " + curves.size());
+        CobbAngleAction.Curve largest = curves.get(0);
+        check(largest.upper() == 2 && largest.lower() == 5, "wrong end vertebrae " + largest);
+        assertEquals(45.0, largest.angle(), "largest curve");
+    }
+
+    private static void checkCircleFit() throws Exception {
+        onEdt(() -> {
+            CircleFitToolGraphic circle = LoadGenerator.circleFit(400.0, 300.0, 75.0, 7);
+            double[] fit = new double[3];
+            check(circle.getFitCircle(fit), "no fit");
+            assertPoint(new Point2D.Double(fit[0], fit[1]), 400.0, 300.0);
+            assertEquals(75.0, fit[2], "radius");
+            return null;
+        });
+    }
+
+    private static void checkSnap(double x, double y, SnapType type, double expectedX, double expectedY)
+        throws Exception {
+        onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(createSnapModel());
+            SnapCandidate candidate = SnappingUtil.findSnap(view, new Point2D.Double(x, y), null, null);
+            check(candidate != null, "no snap");
+            check(candidate.type() == type, "snapped to " + candidate.type());
+            assertPoint(new Point2D.Double(candidate.x(), candidate.y()), expectedX, expectedY);
+            return null;
+        });
+    }
+
+    private static void checkSnapZoom() throws Exception {
+        onEdt(() -> {
+            // 10 image pixels from the handle: 10 screen pixels at zoom 1, 20 at zoom 2
+            GraphicModel model = createSnapModel();
+            Point2D point = new Point2D.Double(100.0, 110.0);
+            ViewCanvas<?> view = HeadlessViewCanvas.create(model);
+            check(SnappingUtil.findSnap(view, point, null, null) != null, "no snap at zoom 1");
+            ViewCanvas<?> zoomed = HeadlessViewCanvas.create(model, HeadlessViewCanvas.transform(2.0, 30.0, 50.0, 0.0));
+            SnapCandidate candidate = SnappingUtil.findSnap(zoomed, point, null, null);
+            check(candidate == null, "snapped at zoom 2 to " + candidate);
+            return null;
+        });
+    }
+
+    private static void checkBatchBisectors() throws Exception {
+        // Large selections are built in the background, then added on the EDT
+        List<LineGraphic> lines = onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(new XmlGraphicModel());
+            List<LineGraphic> selected = LoadGenerator.populate(view, new LoadGenerator.Mix(1000, 0, 0, 0, 0), 7L);
+            for (LineGraphic line : selected) {
+                line.setSelected(Boolean.TRUE);
+            }
+            PerpendicularBisectorAction.drawPerpendicularBisector(view);
+            return selected;
+        });
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACTION_TIMEOUT_MILLIS);
+        while (!onEdt(() -> ConstructionGraph.getConstructions(lines.get(lines.size() - 1)).size() == 1)) {
+            check(System.nanoTime() < deadline, "bisectors not added after " + ACTION_TIMEOUT_MILLIS + " ms");
+            Thread.sleep(1);
+        }
+        onEdt(() -> {
+            for (LineGraphic line : lines) {
+                Graphic bisector = singleConstruction(line);
+                assertPoint(midpoint(bisector), midpoint(line).getX(), midpoint(line).getY());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Move a cursor over a large mixed model at several zooms and report the snap latencies.
+     * Only prints: the latency depends on the machine, the regression gate is the benchmarks.
+     */
+    private static void replaySnapping(int graphicCount, int events) throws Exception {
+        double[] trace = LoadGenerator.cursorTrace(events, 8.0, 11L);
+        onEdt(() -> {
+            ViewCanvas<?> view = HeadlessViewCanvas.create(new XmlGraphicModel());
+            LoadGenerator.populate(view, LoadGenerator.Mix.of(graphicCount), 3L);
+            GraphicModel model = view.getGraphicManager();
+            SnapProfiler.reset();
+            for (double zoom : new double[] {0.5, 1.0, 4.0}) {
+                ViewCanvas<?> zoomed = HeadlessViewCanvas.create(model, AffineTransform.getScaleInstance(zoom, zoom));
+                Point2D point = new Point2D.Double();
+                for (int i = 0; i < events; i++) {
+                    point.setLocation(trace[2 * i], trace[2 * i + 1]);
+                    SnappingUtil.findSnap(zoomed, point, null, null);
+                }
+            }
+            for (SnapProfiler.Summary summary : SnapProfiler.getSummaries()) {
+                System.out.println("     " + summary);
+            }
+            SnapProfiler.reset();
+            return null;
+        });
+    }
+
+    /**
+     * A horizontal line, two crossing lines and a fitted circle, far enough from each other
+     * not to interfere at the default tolerance.
+     */
+    private static GraphicModel createSnapModel() {
+        GraphicModel model = new XmlGraphicModel();
+        model.addGraphic(SyntheticStudy.line(100.0, 100.0, 300.0, 100.0));
+        model.addGraphic(SyntheticStudy.line(400.0, 500.0, 700.0, 500.0));
+        model.addGraphic(SyntheticStudy.line(500.0, 400.0, 500.0, 700.0));
+        model.addGraphic(LoadGenerator.circleFit(1000.0, 1000.0, 50.0, 5));
+        return model;
+    }
+
+    private static LineGraphic addSelectedLine(ViewCanvas<?> view, double x1, double y1, double x2, double y2) {
+        LineGraphic line = SyntheticStudy.line(x1, y1, x2, y2);
+        line.setSelected(Boolean.TRUE);
+        view.getGraphicManager().addGraphic(line);
+        return line;
+    }
+
+    private static Graphic singleConstruction(Graphic source) {
+        List<Construction> constructions = ConstructionGraph.getConstructions(source);
+        check(constructions.size() == 1, "expected 1 construction, got " + constructions.size());
+        return constructions.get(0).target();
+    }
+
+    private static Point2D midpoint(Graphic graphic) {
+        Point2D a = graphic.getPts().get(0);
+        Point2D b = graphic.getPts().get(1);
+        return new Point2D.Double((a.getX() + b.getX()) / 2.0, (a.getY() + b.getY()) / 2.0);
+    }
+
+    private static double length(Graphic graphic) {
+        return graphic.getPts().get(0).distance(graphic.getPts().get(1));
+    }
+
+    private static void assertPerpendicular(Graphic line, Graphic other) {
+        Point2D a = line.getPts().get(0);
+        Point2D b = line.getPts().get(1);
+        Point2D c = other.getPts().get(0);
+        Point2D d = other.getPts().get(1);
+        double dot = (b.getX() - a.getX()) * (d.getX() - c.getX()) + (b.getY() - a.getY()) * (d.getY() - c.getY());
+        assertEquals(0.0, dot / (length(line) * length(other)), "cosine between the lines");
+    }
+
+    private static void assertPoint(Point2D actual, double x, double y) {
+        check(Math.abs(actual.getX() - x) < EPSILON && Math.abs(actual.getY() - y) < EPSILON,
+            String.format(Locale.ROOT, "expected (%.3f, %.3f), got (%.3f, %.3f)", x, y, actual.getX(),
+                actual.getY()));
+    }
+
+    private static void assertEquals(double expected, double actual, String what) {
+        check(Math.abs(expected - actual) < EPSILON,
+            String.format(Locale.ROOT, "%s: expected %.6f, got %.6f", what, expected, actual));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static <T> T onEdt(Callable<T> task) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.set(task.call());
+            } catch (Exception | AssertionError e) {
+                error.set(e);
+            }
+        });
+        if (error.get() instanceof AssertionError e) {
+            throw e;
+        }
+        if (error.get() instanceof Exception e) {
+            throw e;
+        }
+        return result.get();
+    }
+}
@@ -0,0 +1,75 @@
+package com.mycompany.weasis.measure.enhance.testkit;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.weasis.core.ui.model.GraphicModel;
+import org.weasis.core.ui.model.graphic.Graphic;
+import org.weasis.core.ui.model.graphic.imp.line.LineGraphic;
+import org.weasis.core.ui.model.imp.XmlGraphicModel;
+import org.weasis.core.ui.model.layer.LayerType;
+import org.weasis.core.ui.model.utils.exceptions.InvalidShapeException;
+
+import com.mycompany.weasis.measure.enhance.CircleCenterToolGraphic;
+
+/**
+ * Builds in-memory graphic models with a given number of measurements spread over an image,
+ * as found on annotated follow-up studies. Generation is seeded, so runs are comparable.
+ */
+public final class SyntheticStudy {
+
+    public static final double IMAGE_SIZE = 2048.0;
+
+    private SyntheticStudy() {
+    }
+
+    /**
+     * Create a model holding the given number of graphics, 4 lines for 1 circle center tool.
+     */
+    public static GraphicModel createModel(int graphicCount, long seed) {
+        GraphicModel model = new XmlGraphicModel();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < graphicCount; i++) {
+            model.addGraphic(i % 5 == 4 ? randomCircle(random) : randomLine(random));
+        }
+        return model;
+    }
+
+    public static LineGraphic randomLine(SplittableRandom random) {
+        double x = random.nextDouble(IMAGE_SIZE);
+        double y = random.nextDouble(IMAGE_SIZE);
+        double angle = random.nextDouble(Math.PI);
+        double length = 20.0 + random.nextDouble(200.0);
+        return line(x, y, x + Math.cos(angle) * length, y + Math.sin(angle) * length);
+    }
+
+    public static LineGraphic line(double x1, double y1, double x2, double y2) {
+        LineGraphic line = new LineGraphic();
+        line.setLayerType(LayerType.MEASURE);
+        build(line, Arrays.asList(new Point2D.Double(x1, y1), new Point2D.Double(x2, y2)));
+        return line;
+    }
+
+    public static Graphic randomCircle(SplittableRandom random) {
+        double cx = random.nextDouble(IMAGE_SIZE);
+        double cy = random.nextDouble(IMAGE_SIZE);
+        double r = 10.0 + random.nextDouble(80.0);
+        CircleCenterToolGraphic circle = new CircleCenterToolGraphic();
+        circle.setLayerType(LayerType.MEASURE);
+        build(circle, Arrays.asList(
+            new Point2D.Double(cx + r, cy),
+            new Point2D.Double(cx, cy + r),
+            new Point2D.Double(cx - r, cy)));
+        return circle;
+    }
+
+    private static void build(Graphic graphic, List<Point2D> points) {
+        try {
+            graphic.buildGraphic(points);
+        } catch (InvalidShapeException e) {
+            throw new IllegalStateException("Cannot build synthetic graphic", e);
+        }
+    }
+}